@@ -20,19 +20,23 @@
 package org.sonar.java.checks;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.caching.FileSummary;
+import org.sonar.java.caching.FileSummaryCache;
 import org.sonar.java.checks.helpers.ExpressionsHelper;
 import org.sonar.plugins.java.api.InputFileScannerContext;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.internal.PrefetchedCacheEntries;
 import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
 
-public abstract class AbstractPackageInfoChecker implements JavaFileScanner, EndOfAnalysis {
+public abstract class AbstractPackageInfoChecker implements JavaFileScanner, EndOfAnalysis, PrefetchedCacheEntries {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractPackageInfoChecker.class);
   private static final String CACHE_KEY_PREFIX = "java:S1228;S4032:package:";
 
@@ -42,6 +46,11 @@ public abstract class AbstractPackageInfoChecker implements JavaFileScanner, End
 
   protected abstract void processFile(InputFileScannerContext context, String packageName);
 
+  @Override
+  public List<String> cacheKeysToPrefetch(InputFile inputFile) {
+    return List.of(cacheKey(inputFile));
+  }
+
   @Override
   public boolean scanWithoutParsing(InputFileScannerContext inputFileScannerContext) {
     return getPackageFromCache(inputFileScannerContext).map(packageName -> {
@@ -74,7 +83,11 @@ public abstract class AbstractPackageInfoChecker implements JavaFileScanner, End
   protected static Optional<String> getPackageFromCache(InputFileScannerContext inputFileScannerContext) {
     var cacheKey = cacheKey(inputFileScannerContext.getInputFile());
     var bytes = inputFileScannerContext.getCacheContext().getReadCache().readBytes(cacheKey);
-    return bytes != null ? Optional.of(new String(bytes, StandardCharsets.UTF_8)) : Optional.empty();
+    if (bytes != null) {
+      return Optional.of(new String(bytes, StandardCharsets.UTF_8));
+    }
+    // The file may have been analyzed before the rule was enabled, its summary still gives its package
+    return FileSummaryCache.read(inputFileScannerContext).map(FileSummary::packageName);
   }
 
   protected static void writePackageNameToCache(InputFileScannerContext context, String packageName) {
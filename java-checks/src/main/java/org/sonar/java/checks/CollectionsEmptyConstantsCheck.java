@@ -20,10 +20,9 @@
 package org.sonar.java.checks;
 
 import org.sonar.check.Rule;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonarsource.analyzer.commons.collections.MapBuilder;
-import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
@@ -31,7 +30,7 @@ import org.sonar.plugins.java.api.tree.Tree.Kind;
 import java.util.Map;
 
 @Rule(key = "S1596")
-public class CollectionsEmptyConstantsCheck extends BaseTreeVisitor implements JavaFileScanner {
+public class CollectionsEmptyConstantsCheck extends FusableTreeVisitor {
 
   private static final Map<String, String> IDENTIFIER_REPLACEMENT = MapBuilder.<String, String>newMap()
     .put("EMPTY_LIST", "emptyList()")
@@ -49,13 +48,13 @@ public class CollectionsEmptyConstantsCheck extends BaseTreeVisitor implements J
 
   @Override
   public void visitMemberSelectExpression(MemberSelectExpressionTree tree) {
-    super.visitMemberSelectExpression(tree);
     String identifier = tree.identifier().name();
     boolean isCollectionsCall = tree.expression().is(Kind.IDENTIFIER) && "Collections".equals(((IdentifierTree) tree.expression()).name());
     boolean callEmptyConstant = identifier.startsWith("EMPTY_");
     if (isCollectionsCall && callEmptyConstant) {
       context.reportIssue(this, tree, "Replace \"Collections." + identifier + "\" by \"Collections." + IDENTIFIER_REPLACEMENT.get(identifier) + "\".");
     }
+    super.visitMemberSelectExpression(tree);
   }
 
 }
@@ -20,14 +20,13 @@
 package org.sonar.java.checks;
 
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.LiteralTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 @Rule(key = "S1314")
-public class OctalValuesCheck extends BaseTreeVisitor implements JavaFileScanner {
+public class OctalValuesCheck extends FusableTreeVisitor {
 
   private JavaFileScannerContext context;
 
@@ -21,10 +21,9 @@ package org.sonar.java.checks;
 
 import java.util.Set;
 import org.sonar.check.Rule;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonarsource.analyzer.commons.collections.SetUtils;
-import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.LiteralTree;
@@ -33,7 +32,7 @@ import org.sonar.plugins.java.api.tree.NewClassTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 @Rule(key = "S1317")
-public class StringBufferAndBuilderWithCharCheck extends BaseTreeVisitor implements JavaFileScanner {
+public class StringBufferAndBuilderWithCharCheck extends FusableTreeVisitor {
 
   private JavaFileScannerContext context;
   private static final Set<String> TARGETED_CLASS = SetUtils.immutableSetOf("StringBuilder", "StringBuffer");
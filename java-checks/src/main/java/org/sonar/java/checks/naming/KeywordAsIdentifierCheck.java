@@ -21,15 +21,14 @@ package org.sonar.java.checks.naming;
 
 import java.util.Set;
 import org.sonar.check.Rule;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonarsource.analyzer.commons.collections.SetUtils;
-import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
 @Rule(key = "S1190")
-public class KeywordAsIdentifierCheck extends BaseTreeVisitor implements JavaFileScanner {
+public class KeywordAsIdentifierCheck extends FusableTreeVisitor {
 
   private JavaFileScannerContext context;
 
@@ -20,16 +20,15 @@
 package org.sonar.java.checks.naming;
 
 import org.sonar.check.Rule;
-import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
-import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 @Rule(key = "S1223")
-public class MethodNameSameAsClassCheck extends BaseTreeVisitor implements JavaFileScanner {
+public class MethodNameSameAsClassCheck extends FusableTreeVisitor {
 
   private JavaFileScannerContext context;
 
@@ -41,20 +40,19 @@ public class MethodNameSameAsClassCheck extends BaseTreeVisitor implements JavaF
 
   @Override
   public void visitClass(ClassTree tree) {
-    super.visitClass(tree);
     IdentifierTree classSimpleName = tree.simpleName();
-    if (classSimpleName == null) {
-      return;
-    }
-    String className = classSimpleName.name();
-    for (Tree member : tree.members()) {
-      if (member.is(Tree.Kind.METHOD)) {
-        IdentifierTree simpleName = ((MethodTree) member).simpleName();
-        if (className.equals(simpleName.name())) {
-          context.reportIssue(this, simpleName, "Rename this method to prevent any misunderstanding or make it a constructor.");
+    if (classSimpleName != null) {
+      String className = classSimpleName.name();
+      for (Tree member : tree.members()) {
+        if (member.is(Tree.Kind.METHOD)) {
+          IdentifierTree simpleName = ((MethodTree) member).simpleName();
+          if (className.equals(simpleName.name())) {
+            context.reportIssue(this, simpleName, "Rename this method to prevent any misunderstanding or make it a constructor.");
+          }
         }
       }
     }
+    super.visitClass(tree);
   }
 
 }
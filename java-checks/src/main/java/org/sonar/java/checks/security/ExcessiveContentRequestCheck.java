@@ -46,6 +46,7 @@ import org.sonar.plugins.java.api.caching.CacheContext;
 import org.sonar.plugins.java.api.caching.JavaReadCache;
 import org.sonar.plugins.java.api.caching.JavaWriteCache;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.internal.PrefetchedCacheEntries;
 import org.sonar.plugins.java.api.semantic.MethodMatchers;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
 import org.sonar.plugins.java.api.tree.IdentifierTree;
@@ -58,7 +59,7 @@ import static org.sonar.java.checks.security.ExcessiveContentRequestCheck.Cached
 import static org.sonar.plugins.java.api.semantic.MethodMatchers.ANY;
 
 @Rule(key = "S5693")
-public class ExcessiveContentRequestCheck extends IssuableSubscriptionVisitor implements EndOfAnalysis {
+public class ExcessiveContentRequestCheck extends IssuableSubscriptionVisitor implements EndOfAnalysis, PrefetchedCacheEntries {
 
   @RuleProperty(
     key = "fileUploadSizeLimit",
@@ -290,6 +291,11 @@ public class ExcessiveContentRequestCheck extends IssuableSubscriptionVisitor im
     return Optional.empty();
   }
 
+  @Override
+  public List<String> cacheKeysToPrefetch(InputFile inputFile) {
+    return List.of(computeCacheKey(inputFile));
+  }
+
   private static String computeCacheKey(InputFile inputFile) {
     return "java:S5693:" + inputFile.key();
   }
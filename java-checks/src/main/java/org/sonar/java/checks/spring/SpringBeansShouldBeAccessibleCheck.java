@@ -43,6 +43,7 @@ import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.ModuleScannerContext;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.internal.PrefetchedCacheEntries;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.semantic.SymbolMetadata;
 import org.sonar.plugins.java.api.tree.ClassTree;
@@ -51,7 +52,7 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonarsource.analyzer.commons.collections.SetUtils;
 
 @Rule(key = "S4605")
-public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisitor implements EndOfAnalysis {
+public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisitor implements EndOfAnalysis, PrefetchedCacheEntries {
 
   private static final Logger LOG = LoggerFactory.getLogger(SpringBeansShouldBeAccessibleCheck.class);
 
@@ -148,6 +149,11 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
     packagesScannedBySpringAtFileLevel.clear();
   }
 
+  @Override
+  public List<String> cacheKeysToPrefetch(InputFile inputFile) {
+    return List.of(cacheKey(inputFile));
+  }
+
   private static String cacheKey(InputFile inputFile) {
     return CACHE_KEY_PREFIX + inputFile.key();
   }
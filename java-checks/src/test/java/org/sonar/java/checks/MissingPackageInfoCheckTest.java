@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -33,10 +34,15 @@ import org.sonar.api.batch.sensor.cache.ReadCache;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.java.AnalysisException;
 import org.sonar.java.caching.FileHashingUtils;
+import org.sonar.java.caching.FileSummary;
+import org.sonar.java.caching.FileSummaryCache;
 import org.sonar.java.checks.helpers.HashCacheTestHelper;
 import org.sonar.java.checks.verifier.CheckVerifier;
 import org.sonar.java.checks.verifier.internal.InternalReadCache;
 import org.sonar.java.checks.verifier.internal.InternalWriteCache;
+import org.sonar.plugins.java.api.InputFileScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -88,6 +94,29 @@ class MissingPackageInfoCheckTest {
     assertThat(set.iterator().next()).isEqualTo(EXPECTED_PACKAGE);
   }
 
+  @Test
+  void cache_keys_to_prefetch() {
+    InputFile inputFile = mock(InputFile.class);
+    doReturn("module:src/main/java/Foo.java").when(inputFile).key();
+    assertThat(new MissingPackageInfoCheck().cacheKeysToPrefetch(inputFile)).containsExactly("java:S1228;S4032:package:module:src/main/java/Foo.java");
+  }
+
+  @Test
+  void package_is_read_from_the_file_summary_when_not_cached_by_the_rule() {
+    InputFile inputFile = mock(InputFile.class);
+    doReturn("module:src/main/java/Foo.java").when(inputFile).key();
+    JavaReadCache javaReadCache = mock(JavaReadCache.class);
+    doReturn(new FileSummary("org.foo", List.of(), List.of()).toBytes()).when(javaReadCache).readBytes(FileSummaryCache.cacheKey(inputFile));
+    CacheContext cacheContext = mock(CacheContext.class);
+    doReturn(true).when(cacheContext).isCacheEnabled();
+    doReturn(javaReadCache).when(cacheContext).getReadCache();
+    InputFileScannerContext context = mock(InputFileScannerContext.class);
+    doReturn(inputFile).when(context).getInputFile();
+    doReturn(cacheContext).when(context).getCacheContext();
+
+    assertThat(AbstractPackageInfoChecker.getPackageFromCache(context)).contains("org.foo");
+  }
+
   @Test
   void caching() {
     verifier
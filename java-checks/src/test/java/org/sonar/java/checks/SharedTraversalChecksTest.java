@@ -0,0 +1,115 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.checks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.checks.naming.KeywordAsIdentifierCheck;
+import org.sonar.java.checks.naming.MethodNameSameAsClassCheck;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.JParser;
+import org.sonar.java.model.JParserConfig;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.model.VisitorsBridge;
+import org.sonar.java.reporting.AnalyzerMessage;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.sonar.java.checks.verifier.TestUtils.mainCodeSourcesPath;
+
+/**
+ * The checks extending {@link org.sonar.java.ast.visitors.FusableTreeVisitor} must report the same issues, in the same order, whether
+ * they traverse the trees on their own or share a single traversal.
+ */
+class SharedTraversalChecksTest {
+
+  private static final JavaVersion MAX_JAVA_VERSION = new JavaVersionImpl();
+
+  private static final Map<String, JavaVersion> FILES = Map.of(
+    "src/test/files/checks/CollectionsEmptyConstants.java", MAX_JAVA_VERSION,
+    "src/test/files/checks/OctalValuesCheck.java", MAX_JAVA_VERSION,
+    "src/test/files/checks/naming/KeywordAsIdentifierCheck.java", new JavaVersionImpl(4),
+    "src/test/files/checks/naming/MethodNameSameAsClassCheck.java", MAX_JAVA_VERSION,
+    mainCodeSourcesPath("checks/MathOnFloatCheckSample.java"), MAX_JAVA_VERSION,
+    mainCodeSourcesPath("checks/StringBufferAndBuilderWithCharCheckSample.java"), MAX_JAVA_VERSION);
+
+  @Test
+  void fusable_checks_report_the_same_issues_in_the_same_order_with_and_without_shared_traversal() {
+    FILES.forEach((path, javaVersion) -> {
+      Map<Class<?>, List<String>> ownTraversal = issuesByCheck(path, javaVersion, false);
+      Map<Class<?>, List<String>> sharedTraversal = issuesByCheck(path, javaVersion, true);
+
+      assertThat(ownTraversal).as(path).isNotEmpty();
+      assertThat(sharedTraversal).as(path).containsExactlyEntriesOf(ownTraversal);
+    });
+  }
+
+  private static Map<Class<?>, List<String>> issuesByCheck(String path, JavaVersion javaVersion, boolean sharedTraversal) {
+    List<JavaCheck> checks = List.of(
+      new CollectionsEmptyConstantsCheck(),
+      new KeywordAsIdentifierCheck(),
+      new MathOnFloatCheck(),
+      new MethodNameSameAsClassCheck(),
+      new OctalValuesCheck(),
+      new StringBufferAndBuilderWithCharCheck());
+
+    Map<Class<?>, List<String>> issues = new LinkedHashMap<>();
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    doReturn(sharedTraversal).when(sonarComponents).isSharedTraversalEnabled();
+    doAnswer(invocation -> {
+      AnalyzerMessage message = invocation.getArgument(0);
+      issues.computeIfAbsent(message.getCheck().getClass(), k -> new ArrayList<>())
+        .add(message.primaryLocation() + " " + message.getMessage());
+      return null;
+    }).when(sonarComponents).reportIssue(any(AnalyzerMessage.class));
+
+    File file = new File(path);
+    VisitorsBridge bridge = new VisitorsBridge(checks, Collections.emptyList(), sonarComponents, javaVersion);
+    bridge.setCurrentFile(InternalInputFile.inputFile("", file));
+    bridge.visitFile(parse(file, javaVersion), false);
+    return issues;
+  }
+
+  private static CompilationUnitTree parse(File file, JavaVersion javaVersion) {
+    try {
+      String source = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+      return JParser.parse(JParserConfig.Mode.FILE_BY_FILE.create(javaVersion, Collections.emptyList()).astParser(),
+        javaVersion.effectiveJavaVersionAsString(), file.getName(), source);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read " + file, e);
+    }
+  }
+
+}
@@ -144,6 +144,13 @@ class SpringBeansShouldBeAccessibleCheckTest {
       .verifyIssues();
   }
 
+  @Test
+  void cache_keys_to_prefetch() {
+    InputFile inputFile = mock(InputFile.class);
+    doReturn("module:src/main/java/Foo.java").when(inputFile).key();
+    assertThat(new SpringBeansShouldBeAccessibleCheck().cacheKeysToPrefetch(inputFile)).containsExactly("java:S4605:targeted:module:src/main/java/Foo.java");
+  }
+
   @Test
   void caching() throws NoSuchAlgorithmException, IOException {
     var unchangedFiles = Stream.of(
@@ -0,0 +1,126 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Sizes the batches of files parsed together from the heap consumed by the previous batches.
+ * <p>
+ * The heap used is sampled after every analyzed file: the growth of the heap during a batch, relative to the size of its sources, gives
+ * the cost of a source byte. The next batch is as large as the heap left to batches can afford at that cost. When a garbage collection
+ * hides the growth of the heap, the number of bindings resolved in the batch is used to estimate it from the cost of a binding observed
+ * in the previous batches.
+ */
+class AdaptiveBatchSizer implements LongSupplier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatchSizer.class);
+
+  static final long MIN_BATCH_SIZE_IN_BYTES = 10_000L;
+  /**
+   * Share of the heap which can be used by a batch, the rest is left to the checks and to the data kept during the whole analysis.
+   */
+  private static final double HEAP_SHARE_FOR_BATCHES = 0.5;
+  /**
+   * Weight of the last batch in the estimated costs, to smooth the differences between batches.
+   */
+  private static final double LAST_BATCH_WEIGHT = 0.5;
+  private static final int MAX_GROWTH_FACTOR = 16;
+
+  private final MemoryMXBean memoryBean;
+  private final long maxMemoryInBytes;
+  private final long maxBatchSizeInBytes;
+  private long nextBatchSizeInBytes;
+  private double heapPerSourceByte = 0.0;
+  private double heapPerBinding = 0.0;
+
+  private int batchCount = 0;
+  private long batchSourceBytes;
+  private long batchBindings;
+  private long heapAtBatchStart;
+  private long peakHeap;
+
+  AdaptiveBatchSizer(long initialBatchSizeInBytes, long maxMemoryInBytes, MemoryMXBean memoryBean) {
+    this.memoryBean = memoryBean;
+    this.maxMemoryInBytes = maxMemoryInBytes;
+    this.nextBatchSizeInBytes = Math.max(MIN_BATCH_SIZE_IN_BYTES, initialBatchSizeInBytes);
+    this.maxBatchSizeInBytes = nextBatchSizeInBytes * MAX_GROWTH_FACTOR;
+  }
+
+  /**
+   * @return the size, in bytes, of the sources of the next batch
+   */
+  @Override
+  public long getAsLong() {
+    return nextBatchSizeInBytes;
+  }
+
+  void startBatch(List<? extends InputFile> batch) {
+    batchCount++;
+    batchSourceBytes = batch.stream().mapToLong(inputFile -> inputFile.file().length()).sum();
+    batchBindings = 0L;
+    heapAtBatchStart = usedHeap();
+    peakHeap = heapAtBatchStart;
+  }
+
+  void fileAnalyzed(int resolvedBindings) {
+    batchBindings += resolvedBindings;
+    peakHeap = Math.max(peakHeap, usedHeap());
+  }
+
+  void endBatch() {
+    long heapAtBatchEnd = usedHeap();
+    peakHeap = Math.max(peakHeap, heapAtBatchEnd);
+    long heapGrowth = peakHeap - heapAtBatchStart;
+    if (batchSourceBytes > 0L) {
+      if (heapGrowth > 0L) {
+        heapPerSourceByte = smooth(heapPerSourceByte, heapGrowth / (double) batchSourceBytes);
+        if (batchBindings > 0L) {
+          heapPerBinding = smooth(heapPerBinding, heapGrowth / (double) batchBindings);
+        }
+      } else if (batchBindings > 0L && heapPerBinding > 0.0) {
+        heapPerSourceByte = smooth(heapPerSourceByte, heapPerBinding * batchBindings / batchSourceBytes);
+      }
+    }
+    if (heapPerSourceByte > 0.0) {
+      long availableHeap = (long) (maxMemoryInBytes * HEAP_SHARE_FOR_BATCHES) - heapAtBatchEnd;
+      long affordableBatchSize = (long) (Math.max(0L, availableHeap) / heapPerSourceByte);
+      nextBatchSizeInBytes = Math.max(MIN_BATCH_SIZE_IN_BYTES, Math.min(maxBatchSizeInBytes, affordableBatchSize));
+    }
+    LOG.debug("Batch {}: {} KB of sources, {} resolved bindings, peak heap {} MB. Next batch size: {} KB.",
+      batchCount, batchSourceBytes / 1_000L, batchBindings, peakHeap / 1_000_000L, nextBatchSizeInBytes / 1_000L);
+  }
+
+  private long usedHeap() {
+    return memoryBean.getHeapMemoryUsage().getUsed();
+  }
+
+  private static double smooth(double previousEstimate, double observation) {
+    if (previousEstimate == 0.0) {
+      return observation;
+    }
+    return LAST_BATCH_WEIGHT * observation + (1.0 - LAST_BATCH_WEIGHT) * previousEstimate;
+  }
+}
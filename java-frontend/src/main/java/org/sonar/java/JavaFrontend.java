@@ -20,6 +20,8 @@
 package org.sonar.java;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
@@ -41,6 +44,7 @@ import org.sonar.java.ast.JavaAstScanner;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
 import org.sonar.java.caching.CacheContextImpl;
+import org.sonar.java.classpath.ClasspathEnvironment;
 import org.sonar.java.collections.CollectionUtils;
 import org.sonar.java.exceptions.ApiMismatchException;
 import org.sonar.java.filters.SonarJavaIssueFilter;
@@ -61,6 +65,8 @@ public class JavaFrontend {
   private final JavaVersion javaVersion;
   private final SonarComponents sonarComponents;
   private final List<File> globalClasspath;
+  @Nullable
+  private final ClasspathEnvironment classpathEnvironment;
   private final JavaAstScanner astScanner;
   private final JavaAstScanner astScannerForTests;
   private final JavaAstScanner astScannerForGeneratedFiles;
@@ -101,6 +107,9 @@ public class JavaFrontend {
     }
     globalClasspath = Stream.of(classpath, testClasspath, jspClasspath)
       .flatMap(Collection::stream).distinct().toList();
+    classpathEnvironment = sonarComponents != null && sonarComponents.isSharedClasspathEnvironmentEnabled()
+      ? new ClasspathEnvironment(globalClasspath)
+      : null;
 
     //AstScanner for main files
     astScanner = new JavaAstScanner(sonarComponents);
@@ -128,6 +137,16 @@ public class JavaFrontend {
   }
 
   public void scan(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles, Iterable<? extends InputFile> generatedFiles) {
+    try {
+      scanFiles(sourceFiles, testFiles, generatedFiles);
+    } finally {
+      if (classpathEnvironment != null) {
+        classpathEnvironment.close();
+      }
+    }
+  }
+
+  private void scanFiles(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles, Iterable<? extends InputFile> generatedFiles) {
     if (canOptimizeScanning()) {
       long successfullyScanned = 0L;
       long total = 0L;
@@ -219,8 +238,30 @@ public class JavaFrontend {
       scanBatch(context, allInputFiles, analysisProgress);
     } else {
       long batchSize = batchModeSizeInKB * 1_000L;
+      boolean packageAffinityOrdering = isPackageAffinityOrdering();
+      // Splitting files which depend on each other across batches makes ECJ resolve their types once per batch
+      List<InputFile> orderedInputFiles = packageAffinityOrdering ? PackageAffinityOrdering.order(allInputFiles) : allInputFiles;
+      int analysisThreads = getAnalysisThreads();
+      boolean pipelinedAnalysis = isPipelinedAnalysis();
+      boolean parallelParsing = analysisThreads > 1 || pipelinedAnalysis;
+      if (isAdaptiveBatchSize()) {
+        if (!parallelParsing) {
+          scanInAdaptiveBatches(context, orderedInputFiles, analysisProgress, batchSize, logUsingBatch);
+          return;
+        }
+        // The sizer measures the memory used by one batch at a time, it can not account for the batches parsed ahead
+        LOG.warn("The adaptive batch size is ignored, as it can not be combined with parallel or pipelined parsing.");
+      }
+      BatchGenerator generator = new BatchGenerator(orderedInputFiles.iterator(), batchSize);
+      if (parallelParsing) {
+        // When pipelined, at least one batch is parsed ahead while the checks are executed on the current one
+        int requestedBatches = pipelinedAnalysis ? Math.max(2, analysisThreads) : analysisThreads;
+        int inFlightBatches = sonarComponents.getMaxBatchesInFlight(requestedBatches);
+        LOG.info("{} with batch size {} KB, parsing up to {} batches in parallel.", logUsingBatch, batchModeSizeInKB, inFlightBatches);
+        scanBatchesInParallel(context, generator, analysisProgress, inFlightBatches);
+        return;
+      }
       LOG.info("{} with batch size {} KB.", logUsingBatch, batchModeSizeInKB);
-      BatchGenerator generator = new BatchGenerator(allInputFiles.iterator(), batchSize);
       while (generator.hasNext()) {
         List<InputFile> batch = generator.next();
         scanBatch(context, batch, analysisProgress);
@@ -228,25 +269,94 @@ public class JavaFrontend {
     }
   }
 
+  private void scanInAdaptiveBatches(BatchModeContext context, List<InputFile> inputFiles, AnalysisProgress analysisProgress, long batchSize,
+    String logUsingBatch) {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(batchSize, sonarComponents.maxMemoryInBytes(), ManagementFactory.getMemoryMXBean());
+    LOG.info("{} with an adaptive batch size, starting at {} KB.", logUsingBatch, sizer.getAsLong() / 1_000L);
+    BatchGenerator generator = new BatchGenerator(inputFiles.iterator(), sizer);
+    while (generator.hasNext()) {
+      List<InputFile> batch = generator.next();
+      sizer.startBatch(batch);
+      scanBatch(context, batch, analysisProgress, sizer);
+      sizer.endBatch();
+    }
+  }
+
+  private void scanBatchesInParallel(BatchModeContext context, BatchGenerator generator, AnalysisProgress analysisProgress, int inFlightBatches) {
+    boolean shouldIgnoreUnnamedModuleForSplitPackage = sonarComponents != null && sonarComponents.shouldIgnoreUnnamedModuleForSplitPackage();
+    ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+    Set<Runnable> environmentsCleaners = new HashSet<>();
+    try {
+      MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+      new ParallelBatchParser(inFlightBatches, sonarComponents.maxMemoryInBytes(), () -> memoryBean.getHeapMemoryUsage().getUsed(),
+        this::analysisCancelled).parse(
+        generator,
+        batch -> JParserConfig.Mode.BATCH.create(javaVersion, classpathOf(context), shouldIgnoreUnnamedModuleForSplitPackage),
+        new ParallelBatchParser.BatchConsumer() {
+          @Override
+          public void startBatch(List<InputFile> batch) {
+            analysisProgress.startBatch(batch.size());
+          }
+
+          @Override
+          public void accept(InputFile inputFile, JParserConfig.Result result) {
+            executionTimeReport.start(inputFile);
+            scanAsBatchCallback(inputFile, result, context, environmentsCleaners);
+            executionTimeReport.end();
+          }
+
+          @Override
+          public void endBatch(List<InputFile> batch) {
+            // The worker which parsed the batch is done with its environment, we can release it, see SONARJAVA-3609.
+            environmentsCleaners.forEach(Runnable::run);
+            environmentsCleaners.clear();
+            if (LOG.isInfoEnabled()) {
+              LOG.info("{}% analyzed", (int) (analysisProgress.toGlobalPercentage(1.0) * 100));
+            }
+            analysisProgress.endBatch();
+          }
+        });
+    } finally {
+      executionTimeReport.reportAsBatch();
+    }
+  }
+
   private <T extends InputFile> void scanBatch(BatchModeContext context, List<T> batchFiles, AnalysisProgress analysisProgress) {
+    scanBatch(context, batchFiles, analysisProgress, null);
+  }
+
+  private <T extends InputFile> void scanBatch(BatchModeContext context, List<T> batchFiles, AnalysisProgress analysisProgress,
+    @Nullable AdaptiveBatchSizer sizer) {
     analysisProgress.startBatch(batchFiles.size());
     Set<Runnable> environmentsCleaners = new HashSet<>();
     boolean shouldIgnoreUnnamedModuleForSplitPackage = sonarComponents!= null && sonarComponents.shouldIgnoreUnnamedModuleForSplitPackage();
     JParserConfig.Mode.BATCH
-      .create(javaVersion, context.getClasspath(), shouldIgnoreUnnamedModuleForSplitPackage)
-      .parse(batchFiles, this::analysisCancelled, analysisProgress, (input, result) -> scanAsBatchCallback(input, result, context, environmentsCleaners));
+      .create(javaVersion, classpathOf(context), shouldIgnoreUnnamedModuleForSplitPackage)
+      .parse(batchFiles, this::analysisCancelled, analysisProgress, (input, result) -> scanAsBatchCallback(input, result, context, environmentsCleaners, sizer));
     // Due to a bug in ECJ, JAR files remain locked after the analysis on Windows, we unlock them manually, at the end of each batches. See SONARJAVA-3609.
     environmentsCleaners.forEach(Runnable::run);
     analysisProgress.endBatch();
   }
 
+  private List<File> classpathOf(BatchModeContext context) {
+    return classpathEnvironment == null ? context.getClasspath() : classpathEnvironment.effectiveClasspath(context.getClasspath());
+  }
+
   private static void scanAsBatchCallback(InputFile inputFile, JParserConfig.Result result, BatchModeContext context, Set<Runnable> environmentsCleaners) {
+    scanAsBatchCallback(inputFile, result, context, environmentsCleaners, null);
+  }
+
+  private static void scanAsBatchCallback(InputFile inputFile, JParserConfig.Result result, BatchModeContext context, Set<Runnable> environmentsCleaners,
+    @Nullable AdaptiveBatchSizer sizer) {
     JavaAstScanner scanner = context.selectScanner(inputFile);
     Duration duration = PerformanceMeasure.start(context.descriptor(inputFile));
-    scanner.simpleScan(inputFile, result, ast ->
+    scanner.simpleScan(inputFile, result, ast -> {
       // In batch mode, we delay the cleaning of the environment as it will be used in later processing.
-      environmentsCleaners.add(ast.sema.getEnvironmentCleaner())
-    );
+      environmentsCleaners.add(ast.sema.getEnvironmentCleaner());
+      if (sizer != null) {
+        sizer.fileAnalyzed(ast.sema.resolvedBindings());
+      }
+    });
     duration.stop();
   }
 
@@ -329,22 +439,32 @@ public class JavaFrontend {
 
   }
 
-  static class BatchGenerator {
-    public final long batchSizeInBytes;
+  static class BatchGenerator implements Iterator<List<InputFile>> {
+    private final LongSupplier batchSizeInBytes;
     private final Iterator<InputFile> source;
     private InputFile buffer = null;
 
 
     public BatchGenerator(Iterator<InputFile> source, long batchSizeInBytes) {
+      this(source, () -> batchSizeInBytes);
+    }
+
+    /**
+     * @param batchSizeInBytes queried before building every batch, the size of the batches can change along the analysis
+     */
+    public BatchGenerator(Iterator<InputFile> source, LongSupplier batchSizeInBytes) {
       this.source = source;
       this.batchSizeInBytes = batchSizeInBytes;
     }
 
+    @Override
     public boolean hasNext() {
       return buffer != null || source.hasNext();
     }
 
+    @Override
     public List<InputFile> next() {
+      long batchSizeInBytes = this.batchSizeInBytes.getAsLong();
       List<InputFile> batch = clearBuffer();
       long batchSize = batch.isEmpty() ? 0L : batch.get(0).file().length();
       while (source.hasNext() && batchSize <= batchSizeInBytes) {
@@ -391,6 +511,26 @@ public class JavaFrontend {
     return sonarComponents == null ? -1L : sonarComponents.getBatchModeSizeInKB();
   }
 
+  @VisibleForTesting
+  int getAnalysisThreads() {
+    return sonarComponents == null ? 1 : sonarComponents.getAnalysisThreads();
+  }
+
+  @VisibleForTesting
+  boolean isPipelinedAnalysis() {
+    return sonarComponents != null && sonarComponents.isPipelinedAnalysisEnabled();
+  }
+
+  @VisibleForTesting
+  boolean isAdaptiveBatchSize() {
+    return sonarComponents != null && sonarComponents.isAdaptiveBatchSizeEnabled();
+  }
+
+  @VisibleForTesting
+  boolean isPackageAffinityOrdering() {
+    return sonarComponents != null && sonarComponents.isPackageAffinityOrderingEnabled();
+  }
+
   private boolean isCacheEnabled() {
     return sonarComponents != null && CacheContextImpl.of(sonarComponents).isCacheEnabled();
   }
@@ -0,0 +1,248 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonarsource.performance.measure.PerformanceMeasure;
+
+/**
+ * Orders the files of the analysis so that files which depend on each other are parsed in the same batch, or in consecutive ones.
+ * <p>
+ * Only the header of the files is read: the {@code package} and {@code import} declarations, with a lexer which stops at the first
+ * other token. Files are grouped by package, and packages are ordered by a depth-first traversal of the graph of the imports between
+ * the packages of the project, so that a package follows the packages it imports. The relative order of the files of a package, and of
+ * the packages which are not related, is kept.
+ */
+public final class PackageAffinityOrdering {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PackageAffinityOrdering.class);
+
+  private PackageAffinityOrdering() {
+  }
+
+  record FileHeader(String packageName, List<String> imports) {
+  }
+
+  public static List<InputFile> order(List<InputFile> inputFiles) {
+    PerformanceMeasure.Duration duration = PerformanceMeasure.start("PackageAffinityOrdering");
+    long start = System.nanoTime();
+    Map<String, List<InputFile>> filesByPackage = new LinkedHashMap<>();
+    Map<String, Set<String>> importsByPackage = new LinkedHashMap<>();
+    for (InputFile inputFile : inputFiles) {
+      FileHeader header = readHeader(inputFile);
+      filesByPackage.computeIfAbsent(header.packageName(), k -> new ArrayList<>()).add(inputFile);
+      importsByPackage.computeIfAbsent(header.packageName(), k -> new LinkedHashSet<>()).addAll(header.imports());
+    }
+    List<InputFile> orderedFiles = new ArrayList<>(inputFiles.size());
+    for (String packageName : orderPackages(importsByPackage)) {
+      orderedFiles.addAll(filesByPackage.get(packageName));
+    }
+    duration.stop();
+    LOG.debug("Ordered {} files of {} packages by package affinity in {} ms.", orderedFiles.size(), filesByPackage.size(),
+      (System.nanoTime() - start) / 1_000_000L);
+    return orderedFiles;
+  }
+
+  /**
+   * @return the packages in post-order of a depth-first traversal of the imports between them, starting from the packages in order
+   */
+  static List<String> orderPackages(Map<String, Set<String>> importsByPackage) {
+    Set<String> projectPackages = importsByPackage.keySet();
+    Set<String> visited = new HashSet<>();
+    List<String> ordered = new ArrayList<>(projectPackages.size());
+    for (String root : projectPackages) {
+      if (!visited.add(root)) {
+        continue;
+      }
+      // Iterative traversal: chains of imports can be as long as the number of packages of the project
+      Deque<PackageVisit> stack = new ArrayDeque<>();
+      stack.push(new PackageVisit(root, importedProjectPackages(importsByPackage.get(root), projectPackages).iterator()));
+      while (!stack.isEmpty()) {
+        PackageVisit visit = stack.peek();
+        if (visit.imports.hasNext()) {
+          String imported = visit.imports.next();
+          if (visited.add(imported)) {
+            stack.push(new PackageVisit(imported, importedProjectPackages(importsByPackage.get(imported), projectPackages).iterator()));
+          }
+        } else {
+          stack.pop();
+          ordered.add(visit.packageName);
+        }
+      }
+    }
+    return ordered;
+  }
+
+  private record PackageVisit(String packageName, Iterator<String> imports) {
+  }
+
+  /**
+   * An import designates a type, a member of a type, or all the members of a package or type: the package is its longest prefix which
+   * is a package of the project. Imports of other packages are ignored.
+   */
+  private static Set<String> importedProjectPackages(Set<String> imports, Set<String> projectPackages) {
+    Set<String> importedPackages = new LinkedHashSet<>();
+    for (String importedName : imports) {
+      String candidate = importedName;
+      int lastDot;
+      while ((lastDot = candidate.lastIndexOf('.')) > 0) {
+        candidate = candidate.substring(0, lastDot);
+        if (projectPackages.contains(candidate)) {
+          importedPackages.add(candidate);
+          break;
+        }
+      }
+    }
+    return importedPackages;
+  }
+
+  static FileHeader readHeader(InputFile inputFile) {
+    try (Reader reader = new BufferedReader(new InputStreamReader(inputFile.inputStream(), inputFile.charset()))) {
+      return new HeaderLexer(reader).read();
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to read the package and imports of {}: {}", inputFile, e.getMessage());
+      return new FileHeader("", List.of());
+    }
+  }
+
+  private static class HeaderLexer {
+    private final Reader reader;
+    private int current;
+
+    HeaderLexer(Reader reader) throws IOException {
+      this.reader = reader;
+      this.current = reader.read();
+    }
+
+    FileHeader read() throws IOException {
+      String packageName = "";
+      List<String> imports = new ArrayList<>();
+      String word = nextWord();
+      if ("package".equals(word)) {
+        packageName = qualifiedName();
+        word = nextWord();
+      }
+      while ("import".equals(word)) {
+        String importedName = qualifiedName();
+        if (importedName.startsWith("static.")) {
+          importedName = importedName.substring("static.".length());
+        }
+        imports.add(importedName);
+        word = nextWord();
+      }
+      return new FileHeader(packageName, imports);
+    }
+
+    /**
+     * @return the next identifier, or an empty string when the next token is not an identifier
+     */
+    private String nextWord() throws IOException {
+      skipWhitespacesAndComments();
+      StringBuilder word = new StringBuilder();
+      while (current != -1 && Character.isJavaIdentifierPart(current)) {
+        word.append((char) current);
+        current = reader.read();
+      }
+      return word.toString();
+    }
+
+    /**
+     * Reads the identifiers up to the next semicolon, joined with dots. "static" and "*" are kept as parts of the name.
+     */
+    private String qualifiedName() throws IOException {
+      List<String> parts = new ArrayList<>();
+      while (true) {
+        skipWhitespacesAndComments();
+        if (current == -1 || current == ';') {
+          current = reader.read();
+          return String.join(".", parts);
+        }
+        if (current == '*') {
+          parts.add("*");
+          current = reader.read();
+        } else if (current == '.') {
+          current = reader.read();
+        } else {
+          String word = nextWord();
+          if (word.isEmpty()) {
+            // Not a valid declaration, the rest of the file is not a header
+            throw new IllegalStateException("Unexpected character '" + (char) current + "'");
+          }
+          parts.add(word);
+        }
+      }
+    }
+
+    private void skipWhitespacesAndComments() throws IOException {
+      while (current != -1) {
+        if (Character.isWhitespace(current) || current == '\uFEFF') {
+          current = reader.read();
+        } else if (current == '/') {
+          reader.mark(1);
+          int next = reader.read();
+          if (next == '/') {
+            skipLine();
+          } else if (next == '*') {
+            skipBlockComment();
+          } else {
+            reader.reset();
+            return;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    private void skipLine() throws IOException {
+      while (current != -1 && current != '\n' && current != '\r') {
+        current = reader.read();
+      }
+    }
+
+    private void skipBlockComment() throws IOException {
+      int previous = 0;
+      current = reader.read();
+      while (current != -1 && !(previous == '*' && current == '/')) {
+        previous = current;
+        current = reader.read();
+      }
+      if (current != -1) {
+        current = reader.read();
+      }
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.model.JParserConfig;
+import org.sonarsource.performance.measure.PerformanceMeasure;
+
+/**
+ * Parses batches of files on a pool of worker threads, and hands the resulting trees over to the calling thread, batch after batch,
+ * in the order in which the batches are provided.
+ * <p>
+ * Every batch is parsed with its own ECJ environment, which is never accessed by two threads at the same time: a worker waits while
+ * the calling thread analyzes the tree it produced, before resolving the next file of its batch. Workers parsing the following batches
+ * are not blocked, so that parsing overlaps with the execution of the checks. The number of batches in flight is bounded, which
+ * applies backpressure on the workers when the checks are slower than the parsing. No batch is parsed ahead of the checks either while
+ * the used heap exceeds the share of the heap left to batches: the batches in flight are analyzed first, and their trees released.
+ */
+public class ParallelBatchParser {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelBatchParser.class);
+
+  /**
+   * Share of the heap which can be used while batches are parsed ahead, as for the batches sized by {@link AdaptiveBatchSizer}: the rest
+   * is left to the checks and to the data kept during the whole analysis. The used heap includes the garbage which is not collected yet,
+   * so this errs on the side of fewer batches in flight.
+   */
+  private static final double HEAP_SHARE_FOR_BATCHES = 0.5;
+
+  private final int maxInFlightBatches;
+  private final long heapLimitInBytes;
+  private final LongSupplier usedHeap;
+  private final BooleanSupplier isCanceled;
+  private int heapDeferrals = 0;
+  private final AtomicLong workersWaitNanos = new AtomicLong();
+  private long checksWaitNanos = 0L;
+  private int maxReadyBatches = 0;
+  private long totalReadyBatches = 0L;
+  private int consumedBatches = 0;
+
+  public ParallelBatchParser(int maxInFlightBatches, BooleanSupplier isCanceled) {
+    this(maxInFlightBatches, Runtime.getRuntime().maxMemory(), () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+      isCanceled);
+  }
+
+  public ParallelBatchParser(int maxInFlightBatches, long maxMemoryInBytes, LongSupplier usedHeap, BooleanSupplier isCanceled) {
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.heapLimitInBytes = (long) (maxMemoryInBytes * HEAP_SHARE_FOR_BATCHES);
+    this.usedHeap = usedHeap;
+    this.isCanceled = isCanceled;
+  }
+
+  public void parse(Iterator<List<InputFile>> batches, Function<List<InputFile>, JParserConfig> configFactory, BatchConsumer consumer) {
+    ExecutorService executor = Executors.newFixedThreadPool(maxInFlightBatches, new WorkerThreadFactory());
+    Deque<ParsedBatch> inFlightBatches = new ArrayDeque<>();
+    try {
+      while (batches.hasNext() || !inFlightBatches.isEmpty()) {
+        while (batches.hasNext() && inFlightBatches.size() < maxInFlightBatches) {
+          if (!inFlightBatches.isEmpty() && usedHeap.getAsLong() > heapLimitInBytes) {
+            heapDeferrals++;
+            break;
+          }
+          ParsedBatch batch = new ParsedBatch(batches.next(), workersWaitNanos);
+          JParserConfig config = configFactory.apply(batch.files);
+          executor.execute(() -> batch.parse(config, isCanceled));
+          inFlightBatches.add(batch);
+        }
+        if (isCanceled.getAsBoolean()) {
+          throw new OperationCanceledException();
+        }
+        recordReadyBatches(inFlightBatches);
+        checksWaitNanos += inFlightBatches.removeFirst().consume(consumer);
+        consumedBatches++;
+      }
+    } finally {
+      // Interrupts the workers still waiting for their trees to be consumed, when the analysis failed or has been cancelled.
+      executor.shutdownNow();
+      logStatistics();
+    }
+  }
+
+  private void recordReadyBatches(Deque<ParsedBatch> inFlightBatches) {
+    int readyBatches = (int) inFlightBatches.stream().filter(ParsedBatch::hasParsedFiles).count();
+    maxReadyBatches = Math.max(maxReadyBatches, readyBatches);
+    totalReadyBatches += readyBatches;
+    // Measured under a single key, the calls divided by the number of batches give the average depth of the pipeline
+    for (int i = 0; i < readyBatches; i++) {
+      PerformanceMeasure.start("ParsedBatchReady").stop();
+    }
+  }
+
+  private void logStatistics() {
+    if (consumedBatches > 0 && LOG.isDebugEnabled()) {
+      LOG.debug("Parsed {} batches with up to {} batches in flight: at most {} and on average {} batches were ready before being analyzed, "
+          + "checks waited {} ms for the parsers, parsers waited {} ms for the checks, {} batches were deferred by the heap usage.",
+        consumedBatches, maxInFlightBatches, maxReadyBatches, String.format(Locale.ROOT, "%.1f", (double) totalReadyBatches / consumedBatches),
+        TimeUnit.NANOSECONDS.toMillis(checksWaitNanos), TimeUnit.NANOSECONDS.toMillis(workersWaitNanos.get()), heapDeferrals);
+    }
+  }
+
+  public interface BatchConsumer {
+
+    void startBatch(List<InputFile> batch);
+
+    void accept(InputFile inputFile, JParserConfig.Result result);
+
+    void endBatch(List<InputFile> batch);
+
+  }
+
+  private static class ParsedBatch {
+    private final List<InputFile> files;
+    private final BlockingQueue<ParsedFile> parsedFiles = new LinkedBlockingQueue<>();
+    private final AtomicLong workersWaitNanos;
+
+    ParsedBatch(List<InputFile> files, AtomicLong workersWaitNanos) {
+      this.files = files;
+      this.workersWaitNanos = workersWaitNanos;
+    }
+
+    boolean hasParsedFiles() {
+      return !parsedFiles.isEmpty();
+    }
+
+    void parse(JParserConfig config, BooleanSupplier isCanceled) {
+      Throwable failure = null;
+      try {
+        config.parseQuietly(files, isCanceled, this::handOver);
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      } finally {
+        parsedFiles.add(ParsedFile.endOfBatch(failure));
+      }
+    }
+
+    private void handOver(InputFile inputFile, JParserConfig.Result result) {
+      ParsedFile parsedFile = new ParsedFile(inputFile, result, null);
+      parsedFiles.add(parsedFile);
+      long start = System.nanoTime();
+      try {
+        parsedFile.consumed.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OperationCanceledException();
+      } finally {
+        workersWaitNanos.addAndGet(System.nanoTime() - start);
+      }
+    }
+
+    /**
+     * @return the time spent waiting for the worker, in nanoseconds
+     */
+    long consume(BatchConsumer consumer) {
+      consumer.startBatch(files);
+      long waitNanos = 0L;
+      while (true) {
+        long start = System.nanoTime();
+        PerformanceMeasure.Duration waitDuration = PerformanceMeasure.start("AwaitParsedFile");
+        ParsedFile parsedFile = take();
+        waitDuration.stop();
+        waitNanos += System.nanoTime() - start;
+        if (parsedFile.inputFile == null) {
+          parsedFile.rethrowFailure();
+          consumer.endBatch(files);
+          return waitNanos;
+        }
+        try {
+          consumer.accept(parsedFile.inputFile, parsedFile.result);
+        } finally {
+          parsedFile.consumed.countDown();
+        }
+      }
+    }
+
+    private ParsedFile take() {
+      try {
+        return parsedFiles.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AnalysisException("Analysis cancelled", e);
+      }
+    }
+  }
+
+  private static class ParsedFile {
+    @Nullable
+    private final InputFile inputFile;
+    @Nullable
+    private final JParserConfig.Result result;
+    @Nullable
+    private final Throwable failure;
+    private final CountDownLatch consumed = new CountDownLatch(1);
+
+    ParsedFile(@Nullable InputFile inputFile, @Nullable JParserConfig.Result result, @Nullable Throwable failure) {
+      this.inputFile = inputFile;
+      this.result = result;
+      this.failure = failure;
+    }
+
+    static ParsedFile endOfBatch(@Nullable Throwable failure) {
+      return new ParsedFile(null, null, failure);
+    }
+
+    void rethrowFailure() {
+      if (failure instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (failure instanceof Error error) {
+        throw error;
+      }
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable);
+      thread.setName("Java AST batch parser " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -35,6 +35,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -62,6 +63,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.java.caching.ContentHashCache;
+import org.sonar.java.caching.FileSummaryCache;
 import org.sonar.java.classpath.ClasspathForMain;
 import org.sonar.java.classpath.ClasspathForTest;
 import org.sonar.java.exceptions.ApiMismatchException;
@@ -103,10 +105,55 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
    * relying on (transitive) dependencies that do not respect modularization as defined by the JLS.
    */
   public static final String SONAR_IGNORE_UNNAMED_MODULE_FOR_SPLIT_PACKAGE = "sonar.java.ignoreUnnamedModuleForSplitPackage";
+
+  /**
+   * Number of threads used to parse batches of files concurrently in batch mode. Checks are still executed one file at a time, following
+   * the order of the batches, so that the results of the analysis do not depend on this setting.
+   */
+  public static final String SONAR_ANALYSIS_THREADS_KEY = "sonar.java.analysis.threads";
+
+  /**
+   * When enabled in batch mode, the next batch is parsed while the checks are executed on the current one, even when a single thread
+   * is configured to parse. The number of batches parsed ahead can be bounded with {@link #SONAR_MAX_BATCHES_IN_FLIGHT_KEY}, and no batch
+   * is parsed ahead while more than half of the heap is used.
+   */
+  public static final String SONAR_PIPELINED_ANALYSIS_KEY = "sonar.java.experimental.pipelinedAnalysis";
+
+  /**
+   * Upper bound on the number of batches parsed concurrently or ahead of the checks. Each of them retains its ECJ environment until its
+   * files are analyzed, so lowering it reduces the heap used by parallel and pipelined parsing.
+   */
+  public static final String SONAR_MAX_BATCHES_IN_FLIGHT_KEY = "sonar.java.experimental.maxBatchesInFlight";
+
+  /**
+   * When enabled in batch mode, the size of each batch is computed from the heap consumed by the previous ones, starting from the
+   * configured or computed batch size. It is ignored when batches are parsed in parallel or pipelined.
+   */
+  public static final String SONAR_ADAPTIVE_BATCH_SIZE_KEY = "sonar.java.experimental.adaptiveBatchSize";
+
+  /**
+   * When enabled in batch mode, files are ordered so that the files of a package, and the packages importing each other, are parsed in
+   * the same batch or in consecutive ones, rather than in the order of the file system.
+   */
+  public static final String SONAR_PACKAGE_AFFINITY_ORDERING_KEY = "sonar.java.experimental.packageAffinityOrdering";
+
+  /**
+   * When enabled, the jars of the classpath are opened once for the main, test and generated files and for all their batches, and kept
+   * open until the end of the analysis. The entries which cannot provide any class are removed from the classpath given to ECJ.
+   */
+  public static final String SONAR_SHARED_CLASSPATH_ENVIRONMENT_KEY = "sonar.java.experimental.sharedClasspathEnvironment";
+
+  /**
+   * When enabled, the checks extending {@link org.sonar.java.ast.visitors.FusableTreeVisitor} do not traverse the tree of a file on their
+   * own: their visits are dispatched by the traversal of the tree which already runs the subscription visitors.
+   */
+  public static final String SONAR_SHARED_TRAVERSAL_KEY = "sonar.java.experimental.sharedTraversal";
   private static final Version SONARLINT_6_3 = Version.parse("6.3");
   private static final Version SONARQUBE_9_2 = Version.parse("9.2");
   @VisibleForTesting
   static LongSupplier maxMemoryInBytesProvider = () -> Runtime.getRuntime().maxMemory();
+  @VisibleForTesting
+  static IntSupplier availableProcessorsProvider = () -> Runtime.getRuntime().availableProcessors();
 
   private final FileLinesContextFactory fileLinesContextFactory;
 
@@ -130,6 +177,8 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
   private final Set<RuleKey> additionalAutoScanCompatibleRuleKeys;
 
   private boolean alreadyLoggedSkipStatus = false;
+  @Nullable
+  private ContentHashCache contentHashCache;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, FileSystem fs,
     ClasspathForMain javaClasspath, ClasspathForTest javaTestClasspath,
@@ -225,6 +274,7 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
 
   public void setSensorContext(SensorContext context) {
     this.context = context;
+    this.contentHashCache = null;
   }
 
   public void setCheckFilter(UnaryOperator<List<JavaCheck>> checkFilter) {
@@ -477,6 +527,70 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
     return context.config().getBoolean(SONAR_IGNORE_UNNAMED_MODULE_FOR_SPLIT_PACKAGE).orElse(false);
   }
 
+  /**
+   * Returns the number of threads to use to parse batches, as read from configuration. The value is bounded by the number of available
+   * processors, and defaults to a single thread, which means that batches are parsed sequentially.
+   *
+   * @return the number of parsing threads, at least 1.
+   */
+  public int getAnalysisThreads() {
+    if (context == null) {
+      return 1;
+    }
+    int configuredThreads = context.config().getInt(SONAR_ANALYSIS_THREADS_KEY).orElse(1);
+    return Math.max(1, Math.min(configuredThreads, availableProcessorsProvider.getAsInt()));
+  }
+
+  /**
+   * Hashing the content of the files ahead of their comparison with the previous analysis only reads the files, independently for each
+   * file: it uses one thread per available processor, whatever the number of parsing threads.
+   */
+  public int getCachePrefetchThreads() {
+    return Math.max(1, availableProcessorsProvider.getAsInt());
+  }
+
+  public boolean isFileSummaryCacheEnabled() {
+    return context != null && context.config().getBoolean(FileSummaryCache.FILE_SUMMARIES_ENABLED_KEY).orElse(false);
+  }
+
+  /**
+   * Returns the number of batches which can be parsed concurrently or ahead of the checks, as read from configuration.
+   *
+   * @param requestedBatches number of batches in flight required by the parsing threads and the pipelining
+   * @return the requested number of batches, bounded by the configured maximum, at least 1.
+   */
+  public int getMaxBatchesInFlight(int requestedBatches) {
+    if (context == null) {
+      return Math.max(1, requestedBatches);
+    }
+    int configuredBatches = context.config().getInt(SONAR_MAX_BATCHES_IN_FLIGHT_KEY).orElse(requestedBatches);
+    return Math.max(1, Math.min(configuredBatches, requestedBatches));
+  }
+
+  public boolean isPipelinedAnalysisEnabled() {
+    return context != null && context.config().getBoolean(SONAR_PIPELINED_ANALYSIS_KEY).orElse(false);
+  }
+
+  public boolean isAdaptiveBatchSizeEnabled() {
+    return context != null && context.config().getBoolean(SONAR_ADAPTIVE_BATCH_SIZE_KEY).orElse(false);
+  }
+
+  public boolean isPackageAffinityOrderingEnabled() {
+    return context != null && context.config().getBoolean(SONAR_PACKAGE_AFFINITY_ORDERING_KEY).orElse(false);
+  }
+
+  public boolean isSharedClasspathEnvironmentEnabled() {
+    return context != null && context.config().getBoolean(SONAR_SHARED_CLASSPATH_ENVIRONMENT_KEY).orElse(false);
+  }
+
+  public boolean isSharedTraversalEnabled() {
+    return context != null && context.config().getBoolean(SONAR_SHARED_TRAVERSAL_KEY).orElse(false);
+  }
+
+  public long maxMemoryInBytes() {
+    return maxMemoryInBytesProvider.getAsLong();
+  }
+
   private static long computeIdealBatchSize() {
     // We take a fraction of the total memory available though -Xmx.
     // If we assume that the average size of a file is 5KB and the average CI should have 1GB of memory,
@@ -546,7 +660,7 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
 
 
   public boolean fileCanBeSkipped(InputFile inputFile) {
-    var contentHashCache = new ContentHashCache(this);
+    var contentHashCache = contentHashCache();
     if (inputFile instanceof GeneratedFile) {
       // Generated files should not be skipped as we cannot assess the change status of the source file
       return false;
@@ -582,6 +696,16 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
     return contentHashCache.hasSameHashCached(inputFile);
   }
 
+  /**
+   * @return the index of content hashes shared by the whole analysis, so that every file is hashed only once
+   */
+  public ContentHashCache contentHashCache() {
+    if (contentHashCache == null) {
+      contentHashCache = new ContentHashCache(this);
+    }
+    return contentHashCache;
+  }
+
   public InputComponent project() {
     return context.project();
   }
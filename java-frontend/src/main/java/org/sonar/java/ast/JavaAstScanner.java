@@ -75,7 +75,10 @@ public class JavaAstScanner {
    * under the {@code false} key, files that need to be parsed for further analysis.
    */
   public Map<Boolean, List<InputFile>> scanWithoutParsing(Iterable<? extends InputFile> inputFiles) {
-    return StreamSupport.stream(inputFiles.spliterator(), false)
+    List<? extends InputFile> files = StreamSupport.stream(inputFiles.spliterator(), false).toList();
+    // Cache entries are loaded in parallel beforehand, the files are then scanned sequentially from memory
+    visitor.prefetchCacheEntries(files);
+    return files.stream()
       // Split files between successfully scanned without parsing and failed to scan without parsing
       .collect(Collectors.partitioningBy(visitor::scanWithoutParsing));
   }
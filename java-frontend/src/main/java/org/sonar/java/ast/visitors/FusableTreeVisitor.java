@@ -0,0 +1,57 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.ast.visitors;
+
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * {@link BaseTreeVisitor} which can share a single traversal of the tree with the other scanners, instead of traversing it on its own.
+ * <p>
+ * During a shared traversal, the subtrees given to {@link #scan(Tree)} are not visited right away: they are visited when the shared
+ * traversal reaches them. Subtrees which are not scanned are skipped, as with a traversal of its own. As a consequence, the visitor must
+ * not rely on its subtrees having been visited when a call to {@code scan} returns: all the work has to be done independently of the
+ * order in which the nodes are visited, without any state maintained along the traversal, such as a stack of the enclosing methods.
+ */
+public abstract class FusableTreeVisitor extends BaseTreeVisitor implements JavaFileScanner {
+
+  @Nullable
+  private Consumer<Tree> deferredScans = null;
+
+  /**
+   * @param deferredScans receives the subtrees to visit during the shared traversal, or null to visit them right away
+   */
+  public void deferScans(@Nullable Consumer<Tree> deferredScans) {
+    this.deferredScans = deferredScans;
+  }
+
+  @Override
+  protected void scan(@Nullable Tree tree) {
+    if (deferredScans == null) {
+      super.scan(tree);
+    } else if (tree != null) {
+      deferredScans.accept(tree);
+    }
+  }
+
+}
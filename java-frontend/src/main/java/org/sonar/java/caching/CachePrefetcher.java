@@ -0,0 +1,99 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.sonar.java.AnalysisException;
+
+/**
+ * Runs the preparation of the cache entries of the files, such as the hashing of their content, on a pool of threads. Actions must be
+ * independent of each other: they only populate thread-safe in-memory indexes, later read sequentially by the analysis.
+ * <p>
+ * Actions must not use the caches of the analysis: {@link org.sonar.api.batch.sensor.cache.ReadCache} implementations are not required
+ * to be thread-safe, their entries are loaded by the calling thread.
+ */
+public class CachePrefetcher implements AutoCloseable {
+
+  private final int threads;
+  @Nullable
+  private final ExecutorService executor;
+
+  public CachePrefetcher(int threads) {
+    this.threads = Math.max(1, threads);
+    if (this.threads > 1) {
+      AtomicInteger threadCount = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setName("Java cache prefetcher " + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    } else {
+      executor = null;
+    }
+  }
+
+  /**
+   * Applies the action to every item, splitting the items in as many chunks as threads, and waits for all of them to be processed.
+   */
+  public <T> void forEach(Collection<T> items, Consumer<T> action) {
+    if (executor == null || items.size() < 2) {
+      items.forEach(action);
+      return;
+    }
+    List<T> itemList = new ArrayList<>(items);
+    int chunkSize = (itemList.size() + threads - 1) / threads;
+    List<Future<?>> futures = new ArrayList<>();
+    for (int start = 0; start < itemList.size(); start += chunkSize) {
+      List<T> chunk = itemList.subList(start, Math.min(itemList.size(), start + chunkSize));
+      futures.add(executor.submit(() -> chunk.forEach(action)));
+    }
+    for (Future<?> future : futures) {
+      await(future);
+    }
+  }
+
+  private static void await(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Cache prefetching interrupted", e);
+    } catch (ExecutionException e) {
+      throw new AnalysisException("Cache prefetching failed", e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Configuration;
+
+/**
+ * Algorithms available to compute the hash of the content of a file, which is used to detect unchanged files between analyses.
+ * Each algorithm has its own versioned cache key, so that switching from one to another, or changing the way a hash is computed,
+ * invalidates previously cached hashes instead of comparing incompatible values.
+ */
+public enum ContentHashAlgorithm {
+
+  /**
+   * Cryptographic digest. The cache key is the one used by previous versions of the analyzer, so that their caches stay valid.
+   */
+  MD5("MD5") {
+    @Override
+    public Hasher newHasher() throws NoSuchAlgorithmException {
+      return new MessageDigestHasher(MessageDigest.getInstance("MD5"));
+    }
+  },
+
+  /**
+   * Non-cryptographic checksum, much cheaper to compute. The CRC-32C of the content is combined with its length in bytes.
+   */
+  CRC32C("CRC32C:v1") {
+    @Override
+    public Hasher newHasher() {
+      return new Crc32cHasher();
+    }
+  };
+
+  /**
+   * Selects the algorithm used to hash the content of files. Defaults to {@link #MD5}.
+   */
+  public static final String CONTENT_HASH_ALGORITHM_KEY = "sonar.java.caching.contentHashAlgorithm";
+
+  private static final Logger LOG = LoggerFactory.getLogger(ContentHashAlgorithm.class);
+
+  private final String cacheKeyId;
+
+  ContentHashAlgorithm(String cacheKeyId) {
+    this.cacheKeyId = cacheKeyId;
+  }
+
+  public String cacheKeyPrefix() {
+    return "java:contentHash:" + cacheKeyId + ":";
+  }
+
+  public abstract Hasher newHasher() throws NoSuchAlgorithmException;
+
+  public static ContentHashAlgorithm fromConfiguration(@Nullable Configuration configuration) {
+    Optional<String> configuredAlgorithm = Optional.ofNullable(configuration).flatMap(config -> config.get(CONTENT_HASH_ALGORITHM_KEY));
+    if (configuredAlgorithm.isEmpty()) {
+      return MD5;
+    }
+    String name = configuredAlgorithm.get().trim().toUpperCase(Locale.ROOT);
+    return Arrays.stream(values())
+      .filter(algorithm -> algorithm.name().equals(name))
+      .findFirst()
+      .orElseGet(() -> {
+        LOG.warn("Unknown content hash algorithm \"{}\" set in \"{}\", using {} instead.", configuredAlgorithm.get(), CONTENT_HASH_ALGORITHM_KEY, MD5);
+        return MD5;
+      });
+  }
+
+  public interface Hasher {
+
+    void update(byte[] bytes, int offset, int length);
+
+    byte[] digest();
+
+  }
+
+  private static class MessageDigestHasher implements Hasher {
+    private final MessageDigest messageDigest;
+
+    MessageDigestHasher(MessageDigest messageDigest) {
+      this.messageDigest = messageDigest;
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+      messageDigest.update(bytes, offset, length);
+    }
+
+    @Override
+    public byte[] digest() {
+      return messageDigest.digest();
+    }
+  }
+
+  private static class Crc32cHasher implements Hasher {
+    private final CRC32C checksum = new CRC32C();
+    private long contentLength = 0L;
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+      checksum.update(bytes, offset, length);
+      contentLength += length;
+    }
+
+    @Override
+    public byte[] digest() {
+      return ByteBuffer.allocate(Integer.BYTES + Long.BYTES)
+        .putInt((int) checksum.getValue())
+        .putLong(contentLength)
+        .array();
+    }
+  }
+
+}
@@ -20,8 +20,14 @@
 package org.sonar.java.caching;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
@@ -29,27 +35,73 @@ import org.sonar.api.batch.sensor.cache.ReadCache;
 import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.java.SonarComponents;
 
+/**
+ * Index of the hashes of the content of the files of the analysis. It is meant to be shared by all its callers during an analysis (see
+ * {@link SonarComponents#fileCanBeSkipped(InputFile)}): the content of every file is hashed at most once, and the comparison with the
+ * previous analysis is only performed once per file. Hashes can be computed ahead of time, in parallel, with
+ * {@link #prefetch(Collection, CachePrefetcher)}.
+ */
 public class ContentHashCache {
 
   private static final Logger LOG = LoggerFactory.getLogger(ContentHashCache.class);
-  private static final String CONTENT_HASH_KEY = String.format("java:contentHash:%s:", FileHashingUtils.HASH_ALGORITHM);
   private static final String HASH_COMPUTE_FAIL_MSG = "Failed to compute content hash for file %s";
 
   private ReadCache readCache;
   private WriteCache writeCache;
   private final boolean enabled;
+  private final ContentHashAlgorithm algorithm;
+  private final Map<String, byte[]> contentHashes = new ConcurrentHashMap<>();
+  private final Map<String, byte[]> previousHashes = new ConcurrentHashMap<>();
+  private final Set<String> missingPreviousHashes = ConcurrentHashMap.newKeySet();
+  private final Map<String, Boolean> sameHashCached = new HashMap<>();
 
   public ContentHashCache(SonarComponents sonarComponents) {
     CacheContextImpl cacheContext = CacheContextImpl.of(sonarComponents);
     enabled = cacheContext.isCacheEnabled();
 
     var sensorContext = sonarComponents.context();
+    algorithm = ContentHashAlgorithm.fromConfiguration(sensorContext == null ? null : sensorContext.config());
     if (enabled) {
       readCache = sensorContext.previousCache();
       writeCache = sensorContext.nextCache();
     }
   }
 
+  /**
+   * Loads the hashes of the given files from the previous analysis, then computes their current hashes in parallel.
+   */
+  public void prefetch(Collection<? extends InputFile> inputFiles, CachePrefetcher prefetcher) {
+    if (enabled) {
+      inputFiles.forEach(this::prefetchPreviousHash);
+      prefetcher.forEach(inputFiles, this::prefetchContentHash);
+    }
+  }
+
+  private void prefetchPreviousHash(InputFile inputFile) {
+    String cacheKey = getCacheKey(inputFile);
+    try {
+      if (readCache.contains(cacheKey)) {
+        try (InputStream in = readCache.read(cacheKey)) {
+          previousHashes.put(cacheKey, in.readAllBytes());
+        }
+      } else {
+        missingPreviousHashes.add(cacheKey);
+      }
+    } catch (IOException | RuntimeException e) {
+      // The hash is read again, and the failure reported, when the file is compared with the previous analysis
+      LOG.trace("Unable to prefetch the previous content hash of file {}: {}", inputFile.key(), e.getMessage());
+    }
+  }
+
+  private void prefetchContentHash(InputFile inputFile) {
+    try {
+      contentHash(inputFile);
+    } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+      // The hash is computed again, and the failure reported, when the file is compared with the previous analysis
+      LOG.trace("Unable to prefetch the content hash of file {}: {}", inputFile.key(), e.getMessage());
+    }
+  }
+
   public boolean hasSameHashCached(InputFile inputFile) {
     if (!enabled) {
       if (inputFile.status() == InputFile.Status.SAME) {
@@ -59,11 +111,21 @@ public class ContentHashCache {
       LOG.trace("Cache is disabled. File status is: {}. File can't be skipped.", inputFile.status());
       return false;
     }
+    Boolean previousResult = sameHashCached.get(inputFile.key());
+    if (previousResult != null) {
+      return previousResult;
+    }
+    boolean result = compareWithCachedHash(inputFile);
+    sameHashCached.put(inputFile.key(), result);
+    return result;
+  }
+
+  private boolean compareWithCachedHash(InputFile inputFile) {
     String cacheKey = getCacheKey(inputFile);
     try {
       LOG.trace("Reading cache for the file {}", inputFile.key());
-      byte[] cachedHash = readCache.read(cacheKey).readAllBytes();
-      byte[] fileHash = FileHashingUtils.inputFileContentHash(inputFile);
+      byte[] cachedHash = readPreviousHash(cacheKey);
+      byte[] fileHash = contentHash(inputFile);
       boolean isHashEqual = MessageDigest.isEqual(fileHash, cachedHash);
       if (isHashEqual) {
         copyFromPrevious(inputFile);
@@ -80,12 +142,27 @@ public class ContentHashCache {
     return false;
   }
 
+  private byte[] readPreviousHash(String cacheKey) throws IOException {
+    byte[] prefetched = previousHashes.remove(cacheKey);
+    if (prefetched != null) {
+      return prefetched;
+    }
+    if (missingPreviousHashes.contains(cacheKey)) {
+      throw new IllegalArgumentException("No cache entry for key " + cacheKey);
+    }
+    return readCache.read(cacheKey).readAllBytes();
+  }
+
   public boolean contains(InputFile inputFile) {
     if (!enabled) {
       LOG.trace("Cannot lookup cached hashes when the cache is disabled ({}).", inputFile.key());
       return false;
     }
-    return readCache.contains(getCacheKey(inputFile));
+    String cacheKey = getCacheKey(inputFile);
+    if (previousHashes.containsKey(cacheKey)) {
+      return true;
+    }
+    return !missingPreviousHashes.contains(cacheKey) && readCache.contains(cacheKey);
   }
 
   public boolean writeToCache(InputFile inputFile) {
@@ -96,7 +173,7 @@ public class ContentHashCache {
     LOG.trace("Writing to the cache for file {}", inputFile.key());
     String cacheKey = getCacheKey(inputFile);
     try {
-      writeCache.write(cacheKey, FileHashingUtils.inputFileContentHash(inputFile));
+      writeCache.write(cacheKey, contentHash(inputFile));
       return true;
     } catch (IllegalArgumentException e) {
       LOG.trace(String.format("Tried to write multiple times to cache key %s. Ignoring writes after the first.", cacheKey));
@@ -106,12 +183,21 @@ public class ContentHashCache {
     return false;
   }
 
+  private byte[] contentHash(InputFile inputFile) throws IOException, NoSuchAlgorithmException {
+    byte[] hash = contentHashes.get(inputFile.key());
+    if (hash == null) {
+      hash = FileHashingUtils.inputFileContentHash(inputFile, algorithm);
+      contentHashes.put(inputFile.key(), hash);
+    }
+    return hash;
+  }
+
   private void copyFromPrevious(InputFile inputFile) {
     LOG.trace("Copying cache from previous for file {}", inputFile.key());
     writeCache.copyFromPrevious(getCacheKey(inputFile));
   }
 
-  private static String getCacheKey(InputFile inputFile) {
-    return CONTENT_HASH_KEY + inputFile.key();
+  private String getCacheKey(InputFile inputFile) {
+    return algorithm.cacheKeyPrefix() + inputFile.key();
   }
 }
@@ -19,14 +19,19 @@
  */
 package org.sonar.java.caching;
 
-import org.sonar.api.batch.fs.InputFile;
-
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import org.sonar.api.batch.fs.InputFile;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -35,19 +40,54 @@ public class FileHashingUtils {
   private FileHashingUtils() {
   }
 
-  public static final String HASH_ALGORITHM = "MD5";
+  public static final String HASH_ALGORITHM = ContentHashAlgorithm.MD5.name();
+
+  private static final int BUFFER_SIZE = 8192;
 
   public static byte[] inputFileContentHash(InputFile inputFile) throws IOException, NoSuchAlgorithmException {
-    byte[] contentBytes = inputFile.contents().getBytes(StandardCharsets.UTF_8);
-    MessageDigest messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
-    return messageDigest.digest(contentBytes);
+    return inputFileContentHash(inputFile, ContentHashAlgorithm.MD5);
+  }
+
+  /**
+   * Hashes the content of the file, streamed from disk and re-encoded in UTF-8 chunk by chunk. The result is the hash of
+   * {@code inputFile.contents().getBytes(UTF_8)}, without materializing the content as a {@code String}.
+   */
+  public static byte[] inputFileContentHash(InputFile inputFile, ContentHashAlgorithm algorithm) throws IOException, NoSuchAlgorithmException {
+    try (InputStream inputStream = inputFile.inputStream()) {
+      return hash(inputStream, inputFile.charset(), algorithm);
+    }
   }
 
   public static byte[] inputFileContentHash(String filepath) throws IOException, NoSuchAlgorithmException {
     File file = new File(filepath);
-    String contents = new String(Files.readAllBytes(file.toPath()), UTF_8);
-    MessageDigest messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
-    return messageDigest.digest(contents.getBytes(UTF_8));
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      return hash(inputStream, UTF_8, ContentHashAlgorithm.MD5);
+    }
+  }
+
+  private static byte[] hash(InputStream inputStream, Charset charset, ContentHashAlgorithm algorithm) throws IOException, NoSuchAlgorithmException {
+    ContentHashAlgorithm.Hasher hasher = algorithm.newHasher();
+    // Same replacement policy as String#getBytes for malformed input
+    CharsetEncoder encoder = UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    ByteBuffer bytes = ByteBuffer.allocate((int) (BUFFER_SIZE * encoder.maxBytesPerChar()));
+    Reader reader = new InputStreamReader(inputStream, charset);
+    boolean endOfInput = false;
+    while (!endOfInput) {
+      endOfInput = reader.read(chars) < 0;
+      chars.flip();
+      // An incomplete surrogate pair at the end of the buffer is kept for the next chunk
+      encoder.encode(chars, bytes, endOfInput);
+      if (endOfInput) {
+        encoder.flush(bytes);
+      }
+      hasher.update(bytes.array(), 0, bytes.position());
+      bytes.clear();
+      chars.compact();
+    }
+    return hasher.digest();
   }
 
 }
@@ -0,0 +1,202 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.AnnotationTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.ImportTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Compact summary of the declarations of a file: its package, its imports, and for every named type it declares, its kind, its
+ * annotations and the signatures of its methods. It is stored in the cache (see {@link FileSummaryCache}) so that unchanged files do
+ * not need to be parsed again to retrieve these facts.
+ * <p>
+ * The binary format starts with a magic number and a format version. Summaries written with another version are rejected, the file
+ * is then parsed again and its summary rewritten with the current version.
+ */
+public record FileSummary(String packageName, List<String> imports, List<TypeSummary> types) {
+
+  static final int MAGIC = 0x4A53554D;
+  public static final int FORMAT_VERSION = 1;
+
+  public FileSummary {
+    imports = List.copyOf(imports);
+    types = List.copyOf(types);
+  }
+
+  public record TypeSummary(String name, String kind, List<String> annotations, List<String> methods) {
+    public TypeSummary {
+      annotations = List.copyOf(annotations);
+      methods = List.copyOf(methods);
+    }
+  }
+
+  public static FileSummary of(CompilationUnitTree tree) {
+    PackageDeclarationTree packageDeclaration = tree.packageDeclaration();
+    String packageName = packageDeclaration == null ? "" : qualifiedName(packageDeclaration.packageName());
+    List<String> imports = new ArrayList<>();
+    for (Tree importTree : tree.imports()) {
+      if (importTree instanceof ImportTree importClause) {
+        String importedName = qualifiedName(importClause.qualifiedIdentifier());
+        imports.add(importClause.isStatic() ? ("static " + importedName) : importedName);
+      }
+    }
+    List<TypeSummary> types = new ArrayList<>();
+    collectTypes(tree.types(), types);
+    return new FileSummary(packageName, imports, types);
+  }
+
+  private static void collectTypes(List<? extends Tree> trees, List<TypeSummary> types) {
+    for (Tree tree : trees) {
+      if (tree instanceof ClassTree classTree && classTree.simpleName() != null) {
+        types.add(summarize(classTree));
+        collectTypes(classTree.members(), types);
+      }
+    }
+  }
+
+  private static TypeSummary summarize(ClassTree classTree) {
+    Type type = classTree.symbol().type();
+    String name = type == null || type.isUnknown() ? classTree.simpleName().name() : type.fullyQualifiedName();
+    List<String> annotations = new ArrayList<>();
+    for (AnnotationTree annotation : classTree.modifiers().annotations()) {
+      Type annotationType = annotation.symbolType();
+      annotations.add(annotationType.isUnknown() ? qualifiedName(annotation.annotationType()) : annotationType.fullyQualifiedName());
+    }
+    List<String> methods = new ArrayList<>();
+    for (Tree member : classTree.members()) {
+      if (member instanceof MethodTree methodTree) {
+        methods.add(methodTree.symbol().isUnknown() ? methodTree.simpleName().name() : methodTree.symbol().signature());
+      }
+    }
+    return new TypeSummary(name, classTree.kind().name(), annotations, methods);
+  }
+
+  private static String qualifiedName(@Nullable Tree tree) {
+    if (tree instanceof IdentifierTree identifier) {
+      return identifier.name();
+    }
+    if (tree instanceof MemberSelectExpressionTree memberSelect) {
+      return qualifiedName(memberSelect.expression()) + "." + memberSelect.identifier().name();
+    }
+    return "";
+  }
+
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, packageName);
+      writeStrings(out, imports);
+      out.writeInt(types.size());
+      for (TypeSummary type : types) {
+        writeString(out, type.name());
+        writeString(out, type.kind());
+        writeStrings(out, type.annotations());
+        writeStrings(out, type.methods());
+      }
+    } catch (IOException e) {
+      // Not expected when writing to memory
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IOException when the data is truncated, is not a file summary, or has been written with another version of the format
+   */
+  public static FileSummary fromBytes(byte[] data) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a file summary");
+      }
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported file summary format version " + version);
+      }
+      String packageName = readString(in);
+      List<String> imports = readStrings(in);
+      int typeCount = readSize(in);
+      List<TypeSummary> types = new ArrayList<>(typeCount);
+      for (int i = 0; i < typeCount; i++) {
+        types.add(new TypeSummary(readString(in), readString(in), readStrings(in), readStrings(in)));
+      }
+      if (in.available() > 0) {
+        throw new IOException("Unexpected data after the file summary");
+      }
+      return new FileSummary(packageName, imports, types);
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = readSize(in);
+    List<String> strings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readSize(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int readSize(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size < 0 || size > in.available()) {
+      // Every element takes at least one byte, a larger size can only come from corrupted data
+      throw new IOException("Invalid size in file summary: " + size);
+    }
+    return size;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.IOException;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.java.api.InputFileScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+/**
+ * Reads and writes the {@link FileSummary} of the files in the cache. Summaries are written for every parsed file when
+ * {@link #FILE_SUMMARIES_ENABLED_KEY} is set, and carried over to the next analysis for the files scanned without parsing.
+ */
+public final class FileSummaryCache {
+
+  /**
+   * Enables the storage of a summary of the declarations of every file in the cache.
+   */
+  public static final String FILE_SUMMARIES_ENABLED_KEY = "sonar.java.caching.fileSummaries";
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileSummaryCache.class);
+  private static final String CACHE_KEY_PREFIX = "java:fileSummary:v" + FileSummary.FORMAT_VERSION + ":";
+
+  private FileSummaryCache() {
+  }
+
+  public static String cacheKey(InputFile inputFile) {
+    return CACHE_KEY_PREFIX + inputFile.key();
+  }
+
+  /**
+   * @return the summary stored by the previous analysis for the file of the context, if any
+   */
+  public static Optional<FileSummary> read(InputFileScannerContext context) {
+    CacheContext cacheContext = context.getCacheContext();
+    if (!cacheContext.isCacheEnabled()) {
+      return Optional.empty();
+    }
+    String cacheKey = cacheKey(context.getInputFile());
+    byte[] data = cacheContext.getReadCache().readBytes(cacheKey);
+    if (data == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(FileSummary.fromBytes(data));
+    } catch (IOException e) {
+      LOG.trace("Unable to read the file summary stored under key '{}': {}", cacheKey, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  public static void write(CacheContext cacheContext, InputFile inputFile, CompilationUnitTree tree) {
+    String cacheKey = cacheKey(inputFile);
+    try {
+      cacheContext.getWriteCache().write(cacheKey, FileSummary.of(tree).toBytes());
+    } catch (IllegalArgumentException e) {
+      LOG.trace("Tried to write multiple times to cache key '{}'. Ignoring writes after the first.", cacheKey);
+    }
+  }
+
+  /**
+   * Keeps the summary of an unchanged file for the next analysis.
+   */
+  public static void copyFromPrevious(CacheContext cacheContext, InputFile inputFile) {
+    String cacheKey = cacheKey(inputFile);
+    if (cacheContext.getReadCache().contains(cacheKey)) {
+      try {
+        cacheContext.getWriteCache().copyFromPrevious(cacheKey);
+      } catch (IllegalArgumentException e) {
+        LOG.trace("Tried to write multiple times to cache key '{}'. Ignoring writes after the first.", cacheKey);
+      }
+    }
+  }
+}
@@ -19,9 +19,14 @@
  */
 package org.sonar.java.caching;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,13 +38,63 @@ public class JavaReadCacheImpl implements JavaReadCache {
   private static final Logger LOG = LoggerFactory.getLogger(JavaReadCacheImpl.class);
 
   private final ReadCache readCache;
+  /**
+   * Entries loaded ahead of time by {@link #prefetch(Collection)}, kept until {@link #releasePrefetched(Collection)} is called once the
+   * file which reads them is analyzed.
+   */
+  private final Map<String, byte[]> prefetchedEntries = new ConcurrentHashMap<>();
+  private final Set<String> prefetchedMisses = ConcurrentHashMap.newKeySet();
 
   public JavaReadCacheImpl(ReadCache readCache) {
     this.readCache = readCache;
   }
 
+  /**
+   * Loads the given entries of the previous cache in memory, so that reading them later on does not query the underlying cache anymore.
+   */
+  public void prefetch(Collection<String> keys) {
+    PerformanceMeasure.Duration duration = PerformanceMeasure.start("JavaReadCache.prefetch");
+    try {
+      keys.forEach(this::prefetch);
+    } finally {
+      duration.stop();
+    }
+    LOG.debug("Prefetched {} cache entries, {} of them were not found in the cache.", keys.size(), prefetchedMisses.size());
+  }
+
+  private void prefetch(String key) {
+    if (!readCache.contains(key)) {
+      prefetchedMisses.add(key);
+      return;
+    }
+    try (var in = readCache.read(key)) {
+      prefetchedEntries.put(key, in.readAllBytes());
+    } catch (IOException | RuntimeException e) {
+      // The entry is read again, and the failure reported, if it is actually needed
+      LOG.trace("Unable to prefetch data for key '{}': {}", key, e.getMessage());
+    }
+  }
+
+  /**
+   * Drops the given prefetched entries, to release their memory: the following reads of the same keys go to the underlying cache.
+   */
+  public void releasePrefetched(Collection<String> keys) {
+    keys.forEach(key -> {
+      prefetchedEntries.remove(key);
+      prefetchedMisses.remove(key);
+    });
+  }
+
   @Override
   public InputStream read(String key) {
+    byte[] prefetched = prefetchedEntries.get(key);
+    if (prefetched != null) {
+      return new ByteArrayInputStream(prefetched);
+    }
+    if (prefetchedMisses.contains(key)) {
+      // as the underlying cache does for the keys it does not contain
+      throw new IllegalArgumentException(String.format("No cache data available for key '%s'", key));
+    }
     PerformanceMeasure.Duration duration = PerformanceMeasure.start("JavaReadCache.read");
     InputStream read;
     try {
@@ -53,6 +108,14 @@ public class JavaReadCacheImpl implements JavaReadCache {
   @CheckForNull
   @Override
   public byte[] readBytes(String key) {
+    byte[] prefetched = prefetchedEntries.get(key);
+    if (prefetched != null) {
+      return prefetched;
+    }
+    if (prefetchedMisses.contains(key)) {
+      LOG.trace("Cache miss for key '{}'", key);
+      return null;
+    }
     PerformanceMeasure.Duration duration = PerformanceMeasure.start("JavaReadCache.readBytes");
     try {
       if (readCache.contains(key)) {
@@ -72,7 +135,10 @@ public class JavaReadCacheImpl implements JavaReadCache {
 
   @Override
   public boolean contains(String key) {
-    return readCache.contains(key);
+    if (prefetchedEntries.containsKey(key)) {
+      return true;
+    }
+    return !prefetchedMisses.contains(key) && readCache.contains(key);
   }
 
   @Override
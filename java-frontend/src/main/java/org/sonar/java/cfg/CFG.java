@@ -136,6 +136,14 @@ public class CFG implements ControlFlowGraph {
   private Map<String, Block> labelsBreakTarget = new HashMap<>();
   private Map<String, Block> labelsContinueTarget = new HashMap<>();
 
+  /**
+   * Liveness of the variables, computed once and shared by all the consumers of this CFG.
+   */
+  @Nullable
+  LiveVariables liveVariables;
+  @Nullable
+  LiveVariables liveVariablesWithFields;
+
   private CFG(List<? extends Tree> trees, @Nullable MethodTree tree, boolean ignoreBreakAndContinue) {
     if (tree != null) {
       methodSymbol = tree.symbol();
@@ -1271,6 +1279,9 @@ public class CFG implements ControlFlowGraph {
 
   public void setMethodSymbol(Symbol.MethodSymbol methodSymbol) {
     this.methodSymbol = methodSymbol;
+    // the variables read by lambdas and anonymous classes depend on the method symbol
+    liveVariables = null;
+    liveVariablesWithFields = null;
   }
 
   private void buildPattern(PatternTree tree) {
@@ -19,16 +19,23 @@
  */
 package org.sonar.java.cfg;
 
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.cfg.ControlFlowGraph;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.AssignmentExpressionTree;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
@@ -41,90 +48,185 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
 import org.sonar.plugins.java.api.tree.VariableTree;
 import org.sonarsource.analyzer.commons.collections.ListUtils;
-import org.sonarsource.analyzer.commons.collections.SetUtils;
 
+/**
+ * Backward dataflow computing the variables live at the boundaries of the blocks of a {@link CFG}.
+ * <p>
+ * Each tracked symbol gets an index, and the gen/kill/in/out sets of the blocks are bitsets indexed by the ids of the blocks,
+ * which are their positions in {@link CFG#reversedBlocks()}. The results are cached on the CFG, so that all the checks
+ * (and the symbolic execution) working on the same method share a single computation.
+ */
 public class LiveVariables {
 
   private final CFG cfg;
-  private final Map<CFG.Block, Set<Symbol>> out = new HashMap<>();
-  private final Map<CFG.Block, Set<Symbol>> in = new HashMap<>();
   private final boolean includeFields;
+  private final Map<Symbol, Integer> symbolIndexes = new HashMap<>();
+  private final List<Symbol> symbols = new ArrayList<>();
+  private final BitSet[] in;
+  private final BitSet[] out;
+  private final List<Set<Symbol>> inSets;
+  private final List<Set<Symbol>> outSets;
 
   private LiveVariables(CFG cfg, boolean includeFields) {
     this.cfg = cfg;
     this.includeFields = includeFields;
+    int blockCount = cfg.reversedBlocks().size();
+    this.in = new BitSet[blockCount];
+    this.out = new BitSet[blockCount];
+    this.inSets = new ArrayList<>(blockCount);
+    this.outSets = new ArrayList<>(blockCount);
   }
 
-  public Set<Symbol> getOut(CFG.Block block) {
-    return out.get(block);
+  public Set<Symbol> getOut(ControlFlowGraph.Block block) {
+    return outSets.get(block.id());
   }
 
-  public Set<Symbol> getIn(CFG.Block block) {
-    return in.get(block);
+  public Set<Symbol> getIn(ControlFlowGraph.Block block) {
+    return inSets.get(block.id());
   }
 
   /**
    * Returns LiveVariables object with information concerning local variables and parameters
    */
   public static LiveVariables analyze(CFG cfg) {
-    return analyze(cfg, false);
+    LiveVariables liveVariables = cfg.liveVariables;
+    if (liveVariables == null) {
+      liveVariables = analyze(cfg, false);
+      cfg.liveVariables = liveVariables;
+    }
+    return liveVariables;
   }
 
   /**
    * Returns LiveVariables object with information concerning local variables, parameters and fields
    */
   public static LiveVariables analyzeWithFields(CFG cfg) {
-    return analyze(cfg, true);
+    LiveVariables liveVariables = cfg.liveVariablesWithFields;
+    if (liveVariables == null) {
+      liveVariables = analyze(cfg, true);
+      cfg.liveVariablesWithFields = liveVariables;
+    }
+    return liveVariables;
   }
 
   private static LiveVariables analyze(CFG cfg, boolean includeFields) {
     LiveVariables liveVariables = new LiveVariables(cfg, includeFields);
     // Generate kill/gen for each block in isolation
-    Map<CFG.Block, Set<Symbol>> kill = new HashMap<>();
-    Map<CFG.Block, Set<Symbol>> gen = new HashMap<>();
-    for (CFG.Block block : liveVariables.cfg.reversedBlocks()) {
-      Set<Symbol> blockKill = new HashSet<>();
-      Set<Symbol> blockGen = new HashSet<>();
+    int blockCount = liveVariables.in.length;
+    BitSet[] kill = new BitSet[blockCount];
+    BitSet[] gen = new BitSet[blockCount];
+    for (CFG.Block block : cfg.reversedBlocks()) {
+      BitSet blockKill = new BitSet();
+      BitSet blockGen = new BitSet();
       liveVariables.processBlockElements(block, blockKill, blockGen);
-      kill.put(block, blockKill);
-      gen.put(block, blockGen);
+      kill[block.id()] = blockKill;
+      gen[block.id()] = blockGen;
+      liveVariables.in[block.id()] = new BitSet();
+      liveVariables.out[block.id()] = new BitSet();
     }
-    liveVariables.analyzeCFG(liveVariables.in, kill, gen);
+    liveVariables.analyzeCFG(kill, gen);
     // out of exit block are empty by definition.
-    if (!liveVariables.out.get(liveVariables.cfg.reversedBlocks().get(0)).isEmpty()) {
+    if (!liveVariables.out[cfg.reversedBlocks().get(0).id()].isEmpty()) {
       throw new IllegalStateException("Out of exit block should be empty");
     }
-
-    // Make things immutable.
-    for (Map.Entry<CFG.Block, Set<Symbol>> blockSetEntry : liveVariables.out.entrySet()) {
-      blockSetEntry.setValue(Collections.unmodifiableSet(blockSetEntry.getValue()));
+    for (int id = 0; id < blockCount; id++) {
+      liveVariables.inSets.add(liveVariables.new SymbolSet(liveVariables.in[id]));
+      liveVariables.outSets.add(liveVariables.new SymbolSet(liveVariables.out[id]));
     }
-
     return liveVariables;
   }
 
-  private void analyzeCFG(Map<CFG.Block, Set<Symbol>> in, Map<CFG.Block, Set<Symbol>> kill, Map<CFG.Block, Set<Symbol>> gen) {
-    Deque<CFG.Block> workList = new LinkedList<>();
-    workList.addAll(cfg.reversedBlocks());
+  private void analyzeCFG(BitSet[] kill, BitSet[] gen) {
+    List<CFG.Block> blocks = cfg.reversedBlocks();
+    List<List<CFG.Block>> predecessors = predecessors(blocks);
+    // successors are processed before their predecessors, so that most blocks are processed once per loop
+    Deque<CFG.Block> workList = new ArrayDeque<>(postOrder(blocks));
+    BitSet inWorkList = new BitSet(blocks.size());
+    inWorkList.set(0, blocks.size());
     while (!workList.isEmpty()) {
       CFG.Block block = workList.removeFirst();
+      int id = block.id();
+      inWorkList.clear(id);
 
-      Set<Symbol> blockOut = out.computeIfAbsent(block, k -> new HashSet<>());
-      block.successors().stream().map(in::get).filter(Objects::nonNull).forEach(blockOut::addAll);
-      block.exceptions().stream().map(in::get).filter(Objects::nonNull).forEach(blockOut::addAll);
+      BitSet blockOut = out[id];
+      successorsAndExceptions(block).forEach(successor -> blockOut.or(in[successor.id()]));
       // in = gen and (out - kill)
-      Set<Symbol> newIn = new HashSet<>(gen.get(block));
-      newIn.addAll(SetUtils.difference(blockOut, kill.get(block)));
+      BitSet newIn = (BitSet) blockOut.clone();
+      newIn.andNot(kill[id]);
+      newIn.or(gen[id]);
 
-      if (newIn.equals(in.get(block))) {
+      if (newIn.equals(in[id])) {
         continue;
       }
-      in.put(block, newIn);
-      block.predecessors().forEach(workList::addLast);
+      in[id] = newIn;
+      for (CFG.Block predecessor : predecessors.get(id)) {
+        if (!inWorkList.get(predecessor.id())) {
+          inWorkList.set(predecessor.id());
+          workList.addLast(predecessor);
+        }
+      }
+    }
+  }
+
+  /**
+   * Predecessors through both normal and exceptional edges, derived from the successors as some of these are redirected
+   * after the predecessors of the CFG are computed.
+   */
+  private static List<List<CFG.Block>> predecessors(List<CFG.Block> blocks) {
+    List<List<CFG.Block>> predecessors = new ArrayList<>(blocks.size());
+    blocks.forEach(block -> predecessors.add(new ArrayList<>()));
+    for (CFG.Block block : blocks) {
+      successorsAndExceptions(block).forEach(successor -> predecessors.get(successor.id()).add(block));
+    }
+    return predecessors;
+  }
+
+  /**
+   * Blocks in post-order of a depth-first traversal from the entry block, followed by the blocks which are not reachable from it.
+   */
+  private List<CFG.Block> postOrder(List<CFG.Block> blocks) {
+    List<CFG.Block> order = new ArrayList<>(blocks.size());
+    BitSet visited = new BitSet(blocks.size());
+    Deque<CFG.Block> path = new ArrayDeque<>();
+    Deque<Iterator<CFG.Block>> pendingSuccessors = new ArrayDeque<>();
+    CFG.Block root = cfg.entryBlock();
+    int next = 0;
+    while (root != null) {
+      visited.set(root.id());
+      path.push(root);
+      pendingSuccessors.push(successorsAndExceptions(root).iterator());
+      while (!path.isEmpty()) {
+        Iterator<CFG.Block> successors = pendingSuccessors.peek();
+        if (successors.hasNext()) {
+          CFG.Block successor = successors.next();
+          if (!visited.get(successor.id())) {
+            visited.set(successor.id());
+            path.push(successor);
+            pendingSuccessors.push(successorsAndExceptions(successor).iterator());
+          }
+        } else {
+          order.add(path.pop());
+          pendingSuccessors.pop();
+        }
+      }
+      next = visited.nextClearBit(next);
+      root = next < blocks.size() ? blocks.get(next) : null;
     }
+    return order;
   }
 
-  private void processBlockElements(CFG.Block block, Set<Symbol> blockKill, Set<Symbol> blockGen) {
+  private static Stream<CFG.Block> successorsAndExceptions(CFG.Block block) {
+    return Stream.concat(block.successors().stream(), block.exceptions().stream());
+  }
+
+  private int index(Symbol symbol) {
+    return symbolIndexes.computeIfAbsent(symbol, s -> {
+      symbols.add(s);
+      return symbols.size() - 1;
+    });
+  }
+
+  private void processBlockElements(CFG.Block block, BitSet blockKill, BitSet blockGen) {
     // process elements from bottom to top
     Set<Tree> assignmentLHS = new HashSet<>();
     for (Tree element : ListUtils.reverse(block.elements())) {
@@ -139,17 +241,18 @@ public class LiveVariables {
           processMemberSelect((MemberSelectExpressionTree) element, assignmentLHS, blockGen);
           break;
         case VARIABLE:
-          blockKill.add(((VariableTree) element).symbol());
-          blockGen.remove(((VariableTree) element).symbol());
+          int variable = index(((VariableTree) element).symbol());
+          blockKill.set(variable);
+          blockGen.clear(variable);
           break;
         case LAMBDA_EXPRESSION:
-          blockGen.addAll(getUsedVariables(((LambdaExpressionTree) element).body(), cfg.methodSymbol()));
+          generate(blockGen, getUsedVariables(((LambdaExpressionTree) element).body(), cfg.methodSymbol()));
           break;
         case METHOD_REFERENCE:
-          blockGen.addAll(getUsedVariables(((MethodReferenceTree) element).expression(), cfg.methodSymbol()));
+          generate(blockGen, getUsedVariables(((MethodReferenceTree) element).expression(), cfg.methodSymbol()));
           break;
         case NEW_CLASS:
-          blockGen.addAll(getUsedVariables(((NewClassTree) element).classBody(), cfg.methodSymbol()));
+          generate(blockGen, getUsedVariables(((NewClassTree) element).classBody(), cfg.methodSymbol()));
           break;
         default:
           // Ignore other kind of elements, no change of gen/kill
@@ -157,24 +260,28 @@ public class LiveVariables {
     }
   }
 
-  private void processIdentifier(IdentifierTree element, Set<Symbol> blockGen, Set<Tree> assignmentLHS) {
+  private void generate(BitSet blockGen, Collection<Symbol> usedVariables) {
+    usedVariables.forEach(symbol -> blockGen.set(index(symbol)));
+  }
+
+  private void processIdentifier(IdentifierTree element, BitSet blockGen, Set<Tree> assignmentLHS) {
     Symbol symbol = element.symbol();
     if (!assignmentLHS.contains(element) && includeSymbol(symbol)) {
-      blockGen.add(symbol);
+      blockGen.set(index(symbol));
     }
   }
 
-  private void processMemberSelect(MemberSelectExpressionTree element, Set<Tree> assignmentLHS, Set<Symbol> blockGen) {
+  private void processMemberSelect(MemberSelectExpressionTree element, Set<Tree> assignmentLHS, BitSet blockGen) {
     Symbol symbol;
     if (!assignmentLHS.contains(element) && includeFields) {
       symbol = getField(element);
       if (symbol != null) {
-        blockGen.add(symbol);
+        blockGen.set(index(symbol));
       }
     }
   }
 
-  private void processAssignment(AssignmentExpressionTree element, Set<Symbol> blockKill, Set<Symbol> blockGen, Set<Tree> assignmentLHS) {
+  private void processAssignment(AssignmentExpressionTree element, BitSet blockKill, BitSet blockGen, Set<Tree> assignmentLHS) {
     Symbol symbol = null;
     ExpressionTree lhs = element.variable();
     if (lhs.is(Kind.IDENTIFIER)) {
@@ -186,11 +293,11 @@ public class LiveVariables {
 
     if (symbol != null && includeSymbol(symbol)) {
       assignmentLHS.add(lhs);
-      blockGen.remove(symbol);
-      blockKill.add(symbol);
+      int variable = index(symbol);
+      blockGen.clear(variable);
+      blockKill.set(variable);
     }
   }
-
   private boolean includeSymbol(Symbol symbol) {
     return symbol.isLocalVariable() || (includeFields && isField(symbol));
   }
@@ -226,4 +333,34 @@ public class LiveVariables {
     return extractorFromClass.usedVariables();
   }
 
+  /**
+   * Unmodifiable view of the symbols of a bitset.
+   */
+  private class SymbolSet extends AbstractSet<Symbol> {
+
+    private final BitSet bits;
+    private final int size;
+
+    private SymbolSet(BitSet bits) {
+      this.bits = bits;
+      this.size = bits.cardinality();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      Integer index = symbolIndexes.get(o);
+      return index != null && bits.get(index);
+    }
+
+    @Override
+    public Iterator<Symbol> iterator() {
+      return bits.stream().mapToObj(symbols::get).iterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
 }
@@ -0,0 +1,163 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonarsource.performance.measure.PerformanceMeasure;
+
+/**
+ * Classpath shared by all the batches and all the scanners of an analysis, from the first batch until {@link #close()}.
+ * <p>
+ * ECJ opens the jars of the classpath again for every batch, and closes them when the environment of the batch is cleaned up. The jars
+ * are opened once here, and kept open: the JDK shares the central directory and the file handle of a zip file among all the
+ * {@link ZipFile} instances opened on it, so that the following batches neither read the central directories again nor open new file
+ * handles. While reading them, the jars which do not contain any class nor reference other jars through their manifest, and the entries
+ * which do not exist, are removed from the classpath given to ECJ, as every lookup of a type would otherwise probe them in vain.
+ */
+public class ClasspathEnvironment implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClasspathEnvironment.class);
+
+  private final List<File> classpath;
+  private final Map<File, ZipFile> openedJars = new LinkedHashMap<>();
+  private final Set<File> excludedEntries = new HashSet<>();
+  private boolean indexed = false;
+
+  public ClasspathEnvironment(List<File> classpath) {
+    this.classpath = classpath;
+  }
+
+  /**
+   * @return the given entries, without duplicates, and without the entries which cannot provide any class
+   */
+  public synchronized List<File> effectiveClasspath(List<File> entries) {
+    if (!indexed) {
+      index();
+    }
+    return entries.stream()
+      .filter(entry -> !excludedEntries.contains(entry))
+      .distinct()
+      .toList();
+  }
+
+  private void index() {
+    PerformanceMeasure.Duration duration = PerformanceMeasure.start("ClasspathEnvironment");
+    long start = System.nanoTime();
+    int classes = 0;
+    for (File entry : classpath) {
+      if (openedJars.containsKey(entry) || excludedEntries.contains(entry)) {
+        continue;
+      }
+      if (!entry.exists()) {
+        excludedEntries.add(entry);
+      } else if (entry.isFile() && isArchive(entry)) {
+        classes += openJar(entry);
+      }
+    }
+    indexed = true;
+    duration.stop();
+    LOG.debug("Opened {} jars of the classpath, providing {} classes, in {} ms. {} entries are excluded from the classpath.",
+      openedJars.size(), classes, (System.nanoTime() - start) / 1_000_000L, excludedEntries.size());
+  }
+
+  /**
+   * @return the number of classes of the jar
+   */
+  private int openJar(File jar) {
+    ZipFile zipFile;
+    try {
+      zipFile = new ZipFile(jar);
+    } catch (IOException e) {
+      // Left in the classpath, ECJ reports the problem when it fails to read the jar
+      LOG.debug("Unable to open {}: {}", jar, e.getMessage());
+      return 0;
+    }
+    int classes = (int) zipFile.stream().filter(zipEntry -> zipEntry.getName().endsWith(".class")).count();
+    if (classes == 0 && !hasClassPathAttribute(jar, zipFile)) {
+      excludedEntries.add(jar);
+      closeQuietly(jar, zipFile);
+    } else {
+      openedJars.put(jar, zipFile);
+    }
+    return classes;
+  }
+
+  /**
+   * "Pathing" jars, which only hold a manifest, provide the classes of the entries listed in its Class-Path attribute, as ECJ follows it.
+   */
+  private static boolean hasClassPathAttribute(File jar, ZipFile zipFile) {
+    ZipEntry manifestEntry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+    if (manifestEntry == null) {
+      return false;
+    }
+    try (InputStream manifest = zipFile.getInputStream(manifestEntry)) {
+      return new Manifest(manifest).getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null;
+    } catch (IOException e) {
+      LOG.debug("Unable to read the manifest of {}: {}", jar, e.getMessage());
+      return false;
+    }
+  }
+
+  private static boolean isArchive(File file) {
+    String name = file.getName().toLowerCase(Locale.ROOT);
+    return name.endsWith(".jar") || name.endsWith(".zip");
+  }
+
+  @VisibleForTesting
+  synchronized int openedJars() {
+    return openedJars.size();
+  }
+
+  /**
+   * Releases the jars of the classpath. The environment can still be used afterwards, the jars are then opened again.
+   */
+  @Override
+  public synchronized void close() {
+    openedJars.forEach(ClasspathEnvironment::closeQuietly);
+    openedJars.clear();
+    excludedEntries.clear();
+    indexed = false;
+  }
+
+  private static void closeQuietly(File jar, ZipFile zipFile) {
+    try {
+      zipFile.close();
+    } catch (IOException e) {
+      LOG.debug("Unable to close {}: {}", jar, e.getMessage());
+    }
+  }
+
+}
@@ -260,13 +260,19 @@ public class JParser {
   private static final Predicate<IProblem> IS_SYNTAX_ERROR = error -> (error.getID() & IProblem.Syntax) != 0;
   private static final Predicate<IProblem> IS_UNDEFINED_TYPE_ERROR = error -> (error.getID() & IProblem.UndefinedType) != 0;
 
+  /**
+   * Only read by the {@link TokenManager} when it is created, so a single instance is shared by all the conversions.
+   */
+  private static final DefaultCodeFormatterOptions FORMATTER_OPTIONS = new DefaultCodeFormatterOptions(new HashMap<>());
+
   /**
    * @param unitName see {@link ASTParser#setUnitName(String)}
    * @throws RecognitionException in case of syntax errors
    */
   public static JavaTree.CompilationUnitTreeImpl parse(ASTParser astParser, String version, String unitName, String source) {
     astParser.setUnitName(unitName);
-    astParser.setSource(source.toCharArray());
+    char[] sourceChars = source.toCharArray();
+    astParser.setSource(sourceChars);
 
     CompilationUnit astNode;
     try {
@@ -276,10 +282,17 @@ public class JParser {
       throw new RecognitionException(-1, "ECJ: Unable to parse file.", e);
     }
 
-    return convert(version, unitName, source, astNode);
+    return convert(version, unitName, source, sourceChars, astNode);
   }
 
   static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, String source, CompilationUnit astNode) {
+    return convert(version, unitName, source, source.toCharArray(), astNode);
+  }
+
+  /**
+   * @param sourceChars characters of the source, shared with the parser when possible instead of copying the source again
+   */
+  private static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, String source, char[] sourceChars, CompilationUnit astNode) {
     List<IProblem> errors = Stream.of(astNode.getProblems()).filter(IProblem::isError).toList();
     Optional<IProblem> possibleSyntaxError = errors.stream().filter(IS_SYNTAX_ERROR).findFirst();
     if (possibleSyntaxError.isPresent()) {
@@ -302,24 +315,27 @@ public class JParser {
     converter.sema = new JSema(astNode.getAST());
     converter.sema.undefinedTypes.addAll(undefinedTypes);
     converter.compilationUnit = astNode;
-    converter.tokenManager = new TokenManager(lex(version, unitName, source.toCharArray()), source, new DefaultCodeFormatterOptions(new HashMap<>()));
+    converter.tokenManager = new TokenManager(lex(version, unitName, sourceChars), source, FORMATTER_OPTIONS);
 
     JavaTree.CompilationUnitTreeImpl tree = converter.convertCompilationUnit(astNode);
     tree.sema = converter.sema;
-    JWarning.Mapper.warningsFor(astNode).mappedInto(tree);
 
     ASTUtils.mayTolerateMissingType(astNode.getAST());
 
-    setParents(tree);
+    // parents and warnings are set during a single walk of the tree
+    JWarning.Mapper warnings = JWarning.Mapper.warningsFor(astNode);
+    setParentsAndWarnings(tree, warnings);
+    warnings.mappedInto(tree);
     return tree;
   }
 
-  private static void setParents(Tree node) {
+  private static void setParentsAndWarnings(Tree node, JWarning.Mapper warnings) {
+    warnings.visitNode(node);
     Iterator<Tree> childrenIterator = iteratorFor(node);
     while (childrenIterator.hasNext()) {
       Tree child = childrenIterator.next();
       ((JavaTree) child).setParent(node);
-      setParents(child);
+      setParentsAndWarnings(child, warnings);
     }
   }
 
@@ -331,6 +347,10 @@ public class JParser {
     return ((JavaTree) node).getChildren().iterator();
   }
 
+  /**
+   * ECJ does not keep the tokens of the parsed unit, so they are scanned again. Every token ends up in the tree,
+   * hence the whole source is scanned at once rather than region by region.
+   */
   private static List<Token> lex(String version, String unitName, char[] sourceChars) {
     List<Token> tokens = new ArrayList<>();
     Scanner scanner = new Scanner(
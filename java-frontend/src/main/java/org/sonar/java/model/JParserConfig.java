@@ -32,6 +32,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.stream.StreamSupport;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
@@ -72,6 +74,12 @@ public abstract class JParserConfig {
   public abstract void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled,
     AnalysisProgress analysisProgress, BiConsumer<InputFile, Result> action);
 
+  /**
+   * Parses the given files without reporting progress and without recording performance measures, as both rely on state shared by the
+   * whole analysis. Meant to be called from worker threads, each of them using its own configuration.
+   */
+  public abstract void parseQuietly(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action);
+
   public enum Mode {
     BATCH(Batch::new),
     FILE_BY_FILE(FileByFile::new);
@@ -157,6 +165,41 @@ public abstract class JParserConfig {
     @Override
     public void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled,
       AnalysisProgress analysisProgress, BiConsumer<InputFile, Result> action) {
+      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      ProgressMonitor monitor = new ProgressMonitor(isCanceled, analysisProgress);
+      PerformanceMeasure.Duration batchPerformance = PerformanceMeasure.start("ParseAsBatch");
+      try {
+        parse(inputFiles, isCanceled, monitor, (inputFile, ast) -> {
+          PerformanceMeasure.Duration convertDuration = PerformanceMeasure.start("Convert");
+          executionTimeReport.start(inputFile);
+          Result result = convert(inputFile, ast);
+          convertDuration.stop();
+          PerformanceMeasure.Duration analyzeDuration = PerformanceMeasure.start("Analyze");
+          action.accept(inputFile, result);
+          executionTimeReport.end();
+          analyzeDuration.stop();
+        }, action, true);
+      } finally {
+        batchPerformance.stop();
+        // ExecutionTimeReport will not include the parsing time by file when using batch mode.
+        executionTimeReport.reportAsBatch();
+        monitor.done();
+      }
+    }
+
+    @Override
+    public void parseQuietly(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
+      IProgressMonitor monitor = new NullProgressMonitor() {
+        @Override
+        public boolean isCanceled() {
+          return isCanceled.getAsBoolean();
+        }
+      };
+      parse(inputFiles, isCanceled, monitor, (inputFile, ast) -> action.accept(inputFile, convert(inputFile, ast)), action, false);
+    }
+
+    private void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, IProgressMonitor monitor,
+      BiConsumer<InputFile, CompilationUnit> astAction, BiConsumer<InputFile, Result> fallbackAction, boolean measured) {
 
       List<String> sourceFilePaths = new ArrayList<>();
       Set<InputFile> notYetAnalyzedFiles = new LinkedHashSet<>();
@@ -170,29 +213,13 @@ public abstract class JParserConfig {
         notYetAnalyzedFiles.add(inputFile);
       }
 
-      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
-      ProgressMonitor monitor = new ProgressMonitor(isCanceled, analysisProgress);
-      PerformanceMeasure.Duration batchPerformance = PerformanceMeasure.start("ParseAsBatch");
       try {
         astParser().createASTs(sourceFilePaths.toArray(new String[0]), encodings.toArray(new String[0]), new String[0], new FileASTRequestor() {
           @Override
           public void acceptAST(String sourceFilePath, CompilationUnit ast) {
-            PerformanceMeasure.Duration convertDuration = PerformanceMeasure.start("Convert");
             InputFile inputFile = inputs.get(new File(sourceFilePath));
-            executionTimeReport.start(inputFile);
-            Result result;
-            try {
-              result = new Result(JParser.convert(javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents(), ast));
-            } catch (Exception e) {
-              result = new Result(e);
-            }
-            convertDuration.stop();
-            PerformanceMeasure.Duration analyzeDuration = PerformanceMeasure.start("Analyze");
-            action.accept(inputFile, result);
-
+            astAction.accept(inputFile, ast);
             notYetAnalyzedFiles.remove(inputFile);
-            executionTimeReport.end();
-            analyzeDuration.stop();
           }
         }, monitor);
         if (!notYetAnalyzedFiles.isEmpty()) {
@@ -204,23 +231,31 @@ public abstract class JParserConfig {
       } catch (RuntimeException e) {
         LOG.warn("Unexpected {}: {}", e.getClass().getSimpleName(), e.getMessage());
         if (!notYetAnalyzedFiles.isEmpty()) {
-          fallbackToFileByFileMode(notYetAnalyzedFiles.stream().toList(), isCanceled, action);
+          fallbackToFileByFileMode(notYetAnalyzedFiles.stream().toList(), isCanceled, fallbackAction, measured);
         }
-      } finally {
-        batchPerformance.stop();
-        // ExecutionTimeReport will not include the parsing time by file when using batch mode.
-        executionTimeReport.reportAsBatch();
-        monitor.done();
       }
     }
 
-    private void fallbackToFileByFileMode(List<InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
+    private Result convert(InputFile inputFile, CompilationUnit ast) {
+      try {
+        return new Result(JParser.convert(javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents(), ast));
+      } catch (Exception e) {
+        return new Result(e);
+      }
+    }
+
+    private void fallbackToFileByFileMode(List<InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action,
+      boolean measured) {
       LOG.warn("Fallback to file by file analysis for {} files", inputFiles.size());
       for (InputFile inputFile : inputFiles) {
         if (isCanceled.getAsBoolean()) {
           break;
         }
-        FileByFile.parse(astParser(), inputFile, javaVersion, action);
+        if (measured) {
+          FileByFile.parse(astParser(), inputFile, javaVersion, action);
+        } else {
+          action.accept(inputFile, FileByFile.parse(astParser(), inputFile, javaVersion));
+        }
       }
     }
 
@@ -266,17 +301,29 @@ public abstract class JParserConfig {
       }
     }
 
+    @Override
+    public void parseQuietly(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
+      for (InputFile inputFile : inputFiles) {
+        if (isCanceled.getAsBoolean()) {
+          break;
+        }
+        action.accept(inputFile, parse(astParser(), inputFile, javaVersion));
+      }
+    }
+
     private static void parse(ASTParser astParser, InputFile inputFile, JavaVersion javaVersion, BiConsumer<InputFile, Result> action) {
-      Result result;
       PerformanceMeasure.Duration parseDuration = PerformanceMeasure.start("JParser");
+      Result result = parse(astParser, inputFile, javaVersion);
+      parseDuration.stop();
+      action.accept(inputFile, result);
+    }
+
+    private static Result parse(ASTParser astParser, InputFile inputFile, JavaVersion javaVersion) {
       try {
-        result = new Result(JParser.parse(astParser, javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents()));
+        return new Result(JParser.parse(astParser, javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents()));
       } catch (Exception e) {
-        result = new Result(e);
-      } finally {
-        parseDuration.stop();
+        return new Result(e);
       }
-      action.accept(inputFile, result);
     }
   }
 
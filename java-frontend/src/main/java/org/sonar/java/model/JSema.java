@@ -154,6 +154,19 @@ public final class JSema implements Sema {
     return ASTUtils.getEnvironmentCleaner(ast);
   }
 
+  /**
+   * @return the number of distinct bindings resolved for the declarations and the usages of the file
+   */
+  public int resolvedBindings() {
+    int resolvedBindings = declarations.size();
+    for (IBinding binding : usages.keySet()) {
+      if (!declarations.containsKey(binding)) {
+        resolvedBindings++;
+      }
+    }
+    return resolvedBindings;
+  }
+
   public Set<JProblem> undefinedTypes() {
     return Collections.unmodifiableSet(undefinedTypes);
   }
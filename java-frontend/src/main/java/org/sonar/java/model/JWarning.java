@@ -19,23 +19,20 @@
  */
 package org.sonar.java.model;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.Iterator;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.sonar.java.annotations.VisibleForTesting;
-import org.sonar.java.ast.visitors.SubscriptionVisitor;
 import org.sonar.java.model.location.InternalPosition;
 import org.sonar.plugins.java.api.location.Position;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -89,22 +86,36 @@ public final class JWarning extends JProblem {
     return Objects.hash(super.hashCode(), start, end);
   }
 
-  public static class Mapper extends SubscriptionVisitor {
+  /**
+   * Attaches the warnings reported by ECJ to the most precise trees containing them. The warnings are sorted by position,
+   * so that the candidates of a tree are found by binary search, and the trees are expected to be visited in pre-order,
+   * from the outermost to the innermost.
+   */
+  public static class Mapper {
 
-    private static final Set<Tree.Kind> KINDS = Stream.of(Type.values())
-      .map(Type::getKinds)
-      .flatMap(Set::stream)
-      .collect(Collectors.toSet());
+    private static final Comparator<JWarning> BY_POSITION = Comparator.comparing(JWarning::start).thenComparing(JWarning::end);
 
     private final Map<Type, Set<JWarning>> warningsByType = new EnumMap<>(Type.class);
 
-    private final PriorityQueue<JWarning> warnings = new PriorityQueue<>(Comparator.comparing(JWarning::start).thenComparing(JWarning::end));
+    private final List<JWarning> warnings;
+
+    private final Set<Tree.Kind> kinds = EnumSet.noneOf(Tree.Kind.class);
+
+    /**
+     * Warnings matching exactly a tree, which can not be attached to a more precise one.
+     */
+    private final BitSet exactlyMatched;
 
     private Mapper(CompilationUnit ast) {
-      Stream.of(ast.getProblems())
+      warnings = Stream.of(ast.getProblems())
         .map(problem -> convert(problem, ast))
         .filter(Objects::nonNull)
-        .forEach(warnings::add);
+        // warnings without kinds of tree can not be attached to any tree
+        .filter(warning -> !warning.type().getKinds().isEmpty())
+        .sorted(BY_POSITION)
+        .toList();
+      warnings.forEach(warning -> kinds.addAll(warning.type().getKinds()));
+      exactlyMatched = new BitSet(warnings.size());
     }
 
     @CheckForNull
@@ -126,34 +137,52 @@ public final class JWarning extends JProblem {
       return new Mapper(ast);
     }
 
+    /**
+     * Adds to the compilation unit the warnings attached to its trees, once all of them have been visited.
+     */
     public void mappedInto(JavaTree.CompilationUnitTreeImpl cut) {
-      scanTree(cut);
       cut.addWarnings(warningsByType);
     }
 
-    @Override
-    public List<Tree.Kind> nodesToVisit() {
-      return new ArrayList<>(KINDS);
-    }
-
-    @Override
     public void visitNode(Tree tree) {
-      if (warnings.isEmpty()) {
+      if (!kinds.contains(tree.kind())) {
         return;
       }
-      for (Iterator<JWarning> iterator = warnings.iterator(); iterator.hasNext();) {
-        JWarning warning = iterator.next();
-        if (isInsideTree(warning, tree)) {
+      Position end = endOf(tree);
+      for (int i = firstWarningFrom(startOf(tree)); i < warnings.size(); i++) {
+        JWarning warning = warnings.get(i);
+        if (warning.start().compareTo(end) > 0) {
+          // the following warnings start after the tree
+          return;
+        }
+        if (!exactlyMatched.get(i) && isInsideTree(warning, tree)) {
           setSyntaxTree(warning, tree);
           warningsByType.computeIfAbsent(warning.type(), k -> new LinkedHashSet<>()).add(warning);
 
           if (matchesTreeExactly(warning)) {
-            iterator.remove();
+            exactlyMatched.set(i);
           }
         }
       }
     }
 
+    /**
+     * @return index of the first warning starting at or after the given position
+     */
+    private int firstWarningFrom(Position start) {
+      int low = 0;
+      int high = warnings.size();
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (warnings.get(middle).start().compareTo(start) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
     @VisibleForTesting
     static void setSyntaxTree(JWarning warning, Tree tree) {
       if (warning.syntaxTree == null || isMorePreciseTree(warning.syntaxTree, tree)) {
@@ -26,10 +26,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -43,9 +47,13 @@ import org.sonar.java.ExceptionHandler;
 import org.sonar.java.IllegalRuleParameterException;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
 import org.sonar.java.caching.CacheContextImpl;
+import org.sonar.java.caching.CachePrefetcher;
+import org.sonar.java.caching.FileSummaryCache;
+import org.sonar.java.caching.JavaReadCacheImpl;
 import org.sonar.java.exceptions.ApiMismatchException;
 import org.sonar.java.exceptions.ThrowableUtils;
 import org.sonar.plugins.java.api.InputFileScannerContext;
@@ -58,6 +66,7 @@ import org.sonar.plugins.java.api.JavaVersionAwareVisitor;
 import org.sonar.plugins.java.api.ModuleScannerContext;
 import org.sonar.plugins.java.api.caching.CacheContext;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.internal.PrefetchedCacheEntries;
 import org.sonar.plugins.java.api.semantic.Sema;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
@@ -79,8 +88,11 @@ public class VisitorsBridge {
   protected boolean inAndroidContext = false;
   private int fullyScannedFileCount = 0;
   private int skippedFileCount = 0;
+  private long treeTraversals = 0L;
+  private long treeTraversalsWithoutSharing = 0L;
   @VisibleForTesting
   CacheContext cacheContext;
+  private List<PrefetchedCacheEntries> prefetchingScanners = Collections.emptyList();
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -123,17 +135,23 @@ public class VisitorsBridge {
       .forEach(visitor -> {
         if (visitor instanceof IssuableSubscriptionVisitor issuableSubscriptionVisitor) {
           runner.add(issuableSubscriptionVisitor);
+        } else if (visitor instanceof FusableTreeVisitor fusableTreeVisitor && isSharedTraversalEnabled()) {
+          runner.add(fusableTreeVisitor);
         } else if (visitor instanceof JavaFileScanner javaFileScanner) {
           scanners.add(javaFileScanner);
         }
       });
 
-    if (!runner.subscriptionVisitors.isEmpty()) {
+    if (!runner.isEmpty()) {
       scanners.add(runner);
     }
     return scanners;
   }
 
+  private boolean isSharedTraversalEnabled() {
+    return sonarComponents != null && sonarComponents.isSharedTraversalEnabled();
+  }
+
   boolean canSkipScanningOfUnchangedFiles() {
     try {
       return sonarComponents != null && sonarComponents.canSkipUnchangedFiles();
@@ -171,6 +189,56 @@ public class VisitorsBridge {
     this.cacheContext = cacheContext;
   }
 
+  /**
+   * In cases where incremental analysis is enabled, loads in memory the data read by {@link #scanWithoutParsing(InputFile)} for the given
+   * files: their content hashes, compared with the previous analysis, and the cache entries declared by the scanners which cannot be
+   * skipped (see {@link PrefetchedCacheEntries}). The cache entries of a file are kept until it is analyzed.
+   */
+  public void prefetchCacheEntries(List<? extends InputFile> inputFiles) {
+    if (sonarComponents == null || !canSkipScanningOfUnchangedFiles()) {
+      return;
+    }
+    List<InputFile> filesToPrefetch = inputFiles.stream()
+      .filter(inputFile -> !(inputFile instanceof GeneratedFile))
+      .map(InputFile.class::cast)
+      .toList();
+    if (filesToPrefetch.isEmpty()) {
+      return;
+    }
+    List<PrefetchedCacheEntries> prefetchedEntries = StreamSupport.stream(visitors.spliterator(), false)
+      .filter(this::isUnskippableVisitor)
+      .filter(PrefetchedCacheEntries.class::isInstance)
+      .map(PrefetchedCacheEntries.class::cast)
+      .toList();
+    PerformanceMeasure.Duration duration = PerformanceMeasure.start("PrefetchCacheEntries");
+    try (CachePrefetcher prefetcher = new CachePrefetcher(sonarComponents.getCachePrefetchThreads())) {
+      sonarComponents.contentHashCache().prefetch(filesToPrefetch, prefetcher);
+      if (!prefetchedEntries.isEmpty() && cacheContext.getReadCache() instanceof JavaReadCacheImpl readCache) {
+        prefetchingScanners = prefetchedEntries;
+        List<String> keys = filesToPrefetch.stream()
+          .flatMap(inputFile -> cacheKeysToPrefetch(inputFile).stream())
+          .distinct()
+          .toList();
+        readCache.prefetch(keys);
+      }
+    } finally {
+      duration.stop();
+    }
+  }
+
+  private List<String> cacheKeysToPrefetch(InputFile inputFile) {
+    return prefetchingScanners.stream().flatMap(scanner -> scanner.cacheKeysToPrefetch(inputFile).stream()).toList();
+  }
+
+  /**
+   * Releases the cache entries prefetched for the file, once all the scanners are done with it.
+   */
+  private void releasePrefetchedCacheEntries(InputFile inputFile) {
+    if (!prefetchingScanners.isEmpty() && cacheContext.getReadCache() instanceof JavaReadCacheImpl readCache) {
+      readCache.releasePrefetched(cacheKeysToPrefetch(inputFile));
+    }
+  }
+
   /**
    * In cases where incremental analysis is enabled, try to scan a raw file without parsing its content.
    *
@@ -209,6 +277,13 @@ public class VisitorsBridge {
           }
         }
       }
+      if (allScansSucceeded && shouldCacheFileSummaries()) {
+        FileSummaryCache.copyFromPrevious(cacheContext, inputFile);
+      }
+      if (allScansSucceeded) {
+        // Otherwise, the file is parsed and its entries are read again by the scanners
+        releasePrefetchedCacheEntries(inputFile);
+      }
       duration.stop();
       return allScansSucceeded;
     } else {
@@ -239,6 +314,7 @@ public class VisitorsBridge {
     var scanners = getScanners(fileCanBeSkipped);
 
     PerformanceMeasure.Duration scannersDuration = PerformanceMeasure.start("Scanners");
+    countTreeTraversals(scanners);
     for (JavaFileScanner scanner : scanners) {
       PerformanceMeasure.Duration scannerDuration = PerformanceMeasure.start(scanner);
       try {
@@ -250,6 +326,39 @@ public class VisitorsBridge {
       }
     }
     scannersDuration.stop();
+
+    if (fileParsed && currentFile != null && shouldCacheFileSummaries()) {
+      writeFileSummary(currentFile, tree);
+    }
+    if (currentFile != null) {
+      releasePrefetchedCacheEntries(currentFile);
+    }
+  }
+
+  private void writeFileSummary(InputFile inputFile, CompilationUnitTree tree) {
+    PerformanceMeasure.Duration fileSummaryDuration = PerformanceMeasure.start("FileSummary");
+    try {
+      FileSummaryCache.write(cacheContext, inputFile, tree);
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to write the file summary of {}: {}", inputFile, e.getMessage());
+    } finally {
+      fileSummaryDuration.stop();
+    }
+  }
+
+  /**
+   * Every scanner traverses the tree on its own, except the scanners run by {@link IssuableSubscriptionVisitorsRunner}, which share a
+   * single traversal.
+   */
+  private void countTreeTraversals(List<JavaFileScanner> scanners) {
+    for (JavaFileScanner scanner : scanners) {
+      treeTraversals++;
+      treeTraversalsWithoutSharing += scanner instanceof IssuableSubscriptionVisitorsRunner runner ? runner.traversalsWithoutSharing() : 1;
+    }
+  }
+
+  private boolean shouldCacheFileSummaries() {
+    return sonarComponents != null && cacheContext.isCacheEnabled() && sonarComponents.isFileSummaryCacheEnabled();
   }
 
   private void interruptIfFailFast(CheckFailureException e) {
@@ -363,6 +472,13 @@ public class VisitorsBridge {
     } else if (fullyScannedFileCount > 0) {
       LOG.info("Did not optimize analysis for any files, performed a full analysis for all {} files.", fullyScannedFileCount);
     }
+    int scannedFileCount = skippedFileCount + fullyScannedFileCount;
+    if (scannedFileCount > 0 && LOG.isDebugEnabled()) {
+      LOG.debug("Traversed the trees of {} files {} times ({} per file), they would have been traversed {} times ({} per file) " +
+          "without sharing traversals between BaseTreeVisitor scanners.",
+        scannedFileCount, treeTraversals, perFile(treeTraversals, scannedFileCount),
+        treeTraversalsWithoutSharing, perFile(treeTraversalsWithoutSharing, scannedFileCount));
+    }
 
     var moduleContext = createScannerContext(sonarComponents, javaVersion, inAndroidContext, cacheContext);
 
@@ -372,9 +488,19 @@ public class VisitorsBridge {
       .forEach(check -> check.endOfAnalysis(moduleContext));
   }
 
+  private static String perFile(long traversals, int fileCount) {
+    return String.format(Locale.ROOT, "%.1f", (double) traversals / fileCount);
+  }
+
+  /**
+   * Runs the {@link SubscriptionVisitor}s, dispatching the nodes by kind, and the {@link FusableTreeVisitor}s, dispatching the nodes
+   * they scanned, during a single traversal of the tree.
+   */
   private class IssuableSubscriptionVisitorsRunner implements JavaFileScanner, EndOfAnalysis {
     private EnumMap<Tree.Kind, List<SubscriptionVisitor>> checks;
     private List<SubscriptionVisitor> subscriptionVisitors;
+    private final List<FusableTreeVisitor> fusableVisitors = new ArrayList<>();
+    private final Map<Tree, List<FusableTreeVisitor>> deferredScans = new IdentityHashMap<>();
 
     IssuableSubscriptionVisitorsRunner() {
       checks = new EnumMap<>(Tree.Kind.class);
@@ -387,10 +513,24 @@ public class VisitorsBridge {
         .forEach(k -> checks.computeIfAbsent(k, key -> new ArrayList<>()).add(subscriptionVisitor));
     }
 
+    private void add(FusableTreeVisitor fusableVisitor) {
+      this.fusableVisitors.add(fusableVisitor);
+    }
+
+    private boolean isEmpty() {
+      return subscriptionVisitors.isEmpty() && fusableVisitors.isEmpty();
+    }
+
+    private int traversalsWithoutSharing() {
+      return (subscriptionVisitors.isEmpty() ? 0 : 1) + fusableVisitors.size();
+    }
+
     @Override
     public boolean scanWithoutParsing(InputFileScannerContext fileScannerContext) throws AnalysisException {
       boolean allScansSucceeded = true;
-      for (SubscriptionVisitor visitor : subscriptionVisitors) {
+      List<JavaFileScanner> visitors = new ArrayList<>(subscriptionVisitors);
+      visitors.addAll(fusableVisitors);
+      for (JavaFileScanner visitor : visitors) {
         PerformanceMeasure.Duration duration = PerformanceMeasure.start(visitor);
         try {
           allScansSucceeded &= visitor.scanWithoutParsing(fileScannerContext);
@@ -415,18 +555,52 @@ public class VisitorsBridge {
       PerformanceMeasure.Duration issuableSubscriptionVisitorsDuration = PerformanceMeasure.start("IssuableSubscriptionVisitors");
       try {
         forEach(subscriptionVisitors, s -> s.setContext(javaFileScannerContext));
+        startFusableVisitors(javaFileScannerContext);
         visit(javaFileScannerContext.getTree());
+        scanSkippedSubtrees();
         forEach(subscriptionVisitors, s -> s.leaveFile(javaFileScannerContext));
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       } finally {
+        fusableVisitors.forEach(v -> v.deferScans(null));
+        deferredScans.clear();
         issuableSubscriptionVisitorsDuration.stop();
       }
     }
 
+    private void startFusableVisitors(JavaFileScannerContext javaFileScannerContext) throws CheckFailureException {
+      for (FusableTreeVisitor visitor : fusableVisitors) {
+        visitor.deferScans(tree -> deferredScans.computeIfAbsent(tree, key -> new ArrayList<>(2)).add(visitor));
+        runFusableVisitor(visitor, () -> visitor.scanFile(javaFileScannerContext));
+      }
+    }
+
+    /**
+     * Subtrees scanned by a visitor after the traversal passed them, or which are not children of their parent, such as the type shared
+     * by the variables of a same declaration, are scanned on their own once the traversal is done.
+     */
+    private void scanSkippedSubtrees() throws CheckFailureException {
+      fusableVisitors.forEach(v -> v.deferScans(null));
+      for (Map.Entry<Tree, List<FusableTreeVisitor>> entry : new ArrayList<>(deferredScans.entrySet())) {
+        for (FusableTreeVisitor visitor : entry.getValue()) {
+          runFusableVisitor(visitor, () -> entry.getKey().accept(visitor));
+        }
+      }
+      deferredScans.clear();
+    }
+
+    private void runFusableVisitor(FusableTreeVisitor visitor, Runnable action) throws CheckFailureException {
+      PerformanceMeasure.Duration visitorDuration = PerformanceMeasure.start(visitor);
+      try {
+        runScanner(action, visitor);
+      } finally {
+        visitorDuration.stop();
+      }
+    }
+
     @Override
     public void endOfAnalysis(ModuleScannerContext cachedContext) {
-      subscriptionVisitors.stream()
+      Stream.concat(subscriptionVisitors.stream(), fusableVisitors.stream())
         .filter(EndOfAnalysis.class::isInstance)
         .map(EndOfAnalysis.class::cast)
         .forEach(check -> check.endOfAnalysis(cachedContext));
@@ -444,6 +618,14 @@ public class VisitorsBridge {
     }
 
     private void visit(Tree tree) throws CheckFailureException {
+      if (!deferredScans.isEmpty()) {
+        List<FusableTreeVisitor> scanningVisitors = deferredScans.remove(tree);
+        if (scanningVisitors != null) {
+          for (FusableTreeVisitor visitor : scanningVisitors) {
+            runFusableVisitor(visitor, () -> tree.accept(visitor));
+          }
+        }
+      }
       Kind kind = tree.kind();
       List<SubscriptionVisitor> subscribed = checks.getOrDefault(kind, Collections.emptyList());
       Consumer<SubscriptionVisitor> callback;
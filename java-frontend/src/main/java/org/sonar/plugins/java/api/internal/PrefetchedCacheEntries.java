@@ -0,0 +1,38 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.java.api.internal;
+
+import java.util.List;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.annotations.Beta;
+
+/**
+ * Common interface for scanners which read, when scanning a file without parsing it, cache entries whose keys only depend on the file.
+ * These entries are loaded in memory for all the files of the module before any of them is scanned without parsing.
+ */
+@Beta
+public interface PrefetchedCacheEntries {
+
+  /**
+   * @param inputFile a file which may be scanned without parsing
+   * @return the keys of the entries of the previous cache read by {@code scanWithoutParsing} for this file
+   */
+  List<String> cacheKeysToPrefetch(InputFile inputFile);
+}
@@ -0,0 +1,105 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.File;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveBatchSizerTest {
+
+  private static final long MB = 1_000_000L;
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  private final MemoryMXBean memoryBean = mock(MemoryMXBean.class);
+
+  @Test
+  void initial_batch_size_is_at_least_the_minimal_size() {
+    assertThat(new AdaptiveBatchSizer(0L, 1_000 * MB, memoryBean).getAsLong()).isEqualTo(AdaptiveBatchSizer.MIN_BATCH_SIZE_IN_BYTES);
+    assertThat(new AdaptiveBatchSizer(MB, 1_000 * MB, memoryBean).getAsLong()).isEqualTo(MB);
+  }
+
+  @Test
+  void next_batch_size_is_computed_from_the_heap_consumed_by_the_previous_batch() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 1_000 * MB, memoryBean);
+    // 1 MB of sources made the heap grow by 100 MB: a source byte costs 100 bytes of heap
+    analyzeBatch(sizer, MB, 100 * MB, 200 * MB, 150 * MB, 1_000);
+    // Half of the heap is available to batches, 150 MB are still used: (500 - 150) MB / 100
+    assertThat(sizer.getAsLong()).isEqualTo(3_500_000L);
+    assertThat(logTester.logs(Level.DEBUG))
+      .containsExactly("Batch 1: 1000 KB of sources, 1000 resolved bindings, peak heap 200 MB. Next batch size: 3500 KB.");
+  }
+
+  @Test
+  void batch_size_is_bounded() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 1_000 * MB, memoryBean);
+    // Sources are almost free: the batch size can only grow up to 16 times the initial size
+    analyzeBatch(sizer, MB, 100 * MB, 101 * MB, 100 * MB, 1_000);
+    assertThat(sizer.getAsLong()).isEqualTo(16 * MB);
+
+    sizer = new AdaptiveBatchSizer(MB, 1_000 * MB, memoryBean);
+    // The heap is already full: batches keep the minimal size
+    analyzeBatch(sizer, MB, 600 * MB, 900 * MB, 800 * MB, 1_000);
+    assertThat(sizer.getAsLong()).isEqualTo(AdaptiveBatchSizer.MIN_BATCH_SIZE_IN_BYTES);
+  }
+
+  @Test
+  void bindings_estimate_the_cost_of_a_batch_when_a_garbage_collection_hides_it() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 1_000 * MB, memoryBean);
+    // 100 MB for 1000 bindings: a binding costs 100 KB
+    analyzeBatch(sizer, MB, 100 * MB, 200 * MB, 100 * MB, 1_000);
+    assertThat(sizer.getAsLong()).isEqualTo(4 * MB);
+
+    // The heap shrank during the batch, the 4000 bindings of 4 MB of sources cost 400 MB: the cost of a source byte is unchanged
+    analyzeBatch(sizer, 4 * MB, 100 * MB, 50 * MB, 50 * MB, 4_000);
+    assertThat(sizer.getAsLong()).isEqualTo(4_500_000L);
+
+    // Without bindings nor heap growth, the previous estimate is kept
+    analyzeBatch(sizer, MB, 100 * MB, 100 * MB, 100 * MB, 0);
+    assertThat(sizer.getAsLong()).isEqualTo(4 * MB);
+  }
+
+  private void analyzeBatch(AdaptiveBatchSizer sizer, long sourceBytes, long heapAtStart, long peakHeap, long heapAtEnd, int bindings) {
+    InputFile inputFile = mock(InputFile.class);
+    File file = mock(File.class);
+    when(file.length()).thenReturn(sourceBytes);
+    when(inputFile.file()).thenReturn(file);
+    when(memoryBean.getHeapMemoryUsage()).thenReturn(heapUsage(heapAtStart), heapUsage(peakHeap), heapUsage(heapAtEnd));
+    sizer.startBatch(List.of(inputFile));
+    sizer.fileAnalyzed(bindings);
+    sizer.endBatch();
+  }
+
+  private static MemoryUsage heapUsage(long used) {
+    return new MemoryUsage(0L, used, used, -1L);
+  }
+}
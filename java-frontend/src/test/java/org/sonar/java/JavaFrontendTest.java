@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.IntSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -515,6 +516,123 @@ class JavaFrontendTest {
     assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
   }
 
+  @Test
+  void test_scan_as_batch_parses_batches_in_parallel() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, 2);
+    IntSupplier oldValue = SonarComponents.availableProcessorsProvider;
+    SonarComponents.availableProcessorsProvider = () -> 4;
+    try {
+      scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}");
+    } finally {
+      SonarComponents.availableProcessorsProvider = oldValue;
+    }
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(logTester.logs(Level.INFO))
+      .contains("Using ECJ batch to parse 3 Main java source files with batch size 0 KB, parsing up to 2 batches in parallel.")
+      .contains("100% analyzed");
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.lastScannedTree.types()).hasSize(1);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void test_scan_as_batch_pipelines_parsing_and_checks() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_PIPELINED_ANALYSIS_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(logTester.logs(Level.INFO))
+      .contains("Using ECJ batch to parse 3 Main java source files with batch size 0 KB, parsing up to 2 batches in parallel.");
+    assertThat(logTester.logs(Level.DEBUG))
+      .anyMatch(log -> log.startsWith("Parsed 3 batches with up to 2 batches in flight"));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void test_scan_as_batch_with_adaptive_batch_size() throws IOException {
+    logTester.setLevel(Level.DEBUG);
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_ADAPTIVE_BATCH_SIZE_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(logTester.logs(Level.INFO))
+      .contains("Using ECJ batch to parse 3 Main java source files with an adaptive batch size, starting at 10 KB.");
+    // The minimal batch size is large enough for the 3 files
+    assertThat(logTester.logs(Level.DEBUG))
+      .anyMatch(log -> log.startsWith("Batch 1: 0 KB of sources, "))
+      .noneMatch(log -> log.startsWith("Batch 2: "));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void test_scan_as_batch_ignores_adaptive_batch_size_when_pipelined() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_ADAPTIVE_BATCH_SIZE_KEY, true)
+      .setProperty(SonarComponents.SONAR_PIPELINED_ANALYSIS_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(logTester.logs(Level.WARN))
+      .contains("The adaptive batch size is ignored, as it can not be combined with parallel or pipelined parsing.");
+    assertThat(logTester.logs(Level.INFO))
+      .contains("Using ECJ batch to parse 3 Main java source files with batch size 0 KB, parsing up to 2 batches in parallel.");
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+  }
+
+  @Test
+  void test_scan_as_batch_with_package_affinity_ordering() throws IOException {
+    logTester.setLevel(Level.DEBUG);
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_PACKAGE_AFFINITY_ORDERING_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "package a; import b.B; class A {}", "package b; class B {}", "package a; class C {}");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(logTester.logs(Level.DEBUG))
+      .anyMatch(log -> log.startsWith("Ordered 3 files of 2 packages by package affinity in "));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void test_scan_as_batch_with_shared_classpath_environment() throws IOException {
+    logTester.setLevel(Level.DEBUG);
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_SHARED_CLASSPATH_ENVIRONMENT_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    // The classpath is opened once for all the batches
+    assertThat(logTester.logs(Level.DEBUG))
+      .filteredOn(log -> log.startsWith("Opened ") && log.contains(" jars of the classpath"))
+      .hasSize(1);
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void should_handle_analysis_cancellation_when_parsing_batches_in_parallel() throws IOException {
+    mainCodeIssueScannerAndFilter.isCancelled = true;
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0L)
+      .setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, 2);
+    IntSupplier oldValue = SonarComponents.availableProcessorsProvider;
+    SonarComponents.availableProcessorsProvider = () -> 4;
+    try {
+      assertThatThrownBy(() -> scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B { A a; }", "class C {}"))
+        .isInstanceOf(AnalysisException.class)
+        .hasMessage("Analysis cancelled");
+    } finally {
+      SonarComponents.availableProcessorsProvider = oldValue;
+    }
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
   @Test
   void should_handle_analysis_cancellation() throws IOException {
     mainCodeIssueScannerAndFilter.isCancelled = true;
@@ -791,6 +909,24 @@ class JavaFrontendTest {
     assertThat(generator.next()).isEmpty();
   }
 
+  @Test
+  void batch_generator_queries_the_batch_size_before_every_batch() throws IOException {
+    if (sensorContext == null) {
+      File baseDir = temp.getRoot().getAbsoluteFile();
+      sensorContext = SensorContextTester.create(baseDir);
+      sensorContext.setSettings(new MapSettings());
+    }
+    InputFile fileA = addFile("class A {}", sensorContext);
+    InputFile fileB = addFile("class B {}", sensorContext);
+    InputFile fileC = addFile("class C {}", sensorContext);
+    long[] batchSize = {0L};
+    JavaFrontend.BatchGenerator generator = new JavaFrontend.BatchGenerator(Arrays.asList(fileA, fileB, fileC).iterator(), () -> batchSize[0]);
+    assertThat(generator.next()).containsExactly(fileA);
+    batchSize[0] = Long.MAX_VALUE / 2;
+    assertThat(generator.next()).containsExactly(fileB, fileC);
+    assertThat(generator.hasNext()).isFalse();
+  }
+
   @Test
   void sonar_java_ignoreUnnamedModuleForSplitPackage_is_logged_at_debug_level_when_enabled() throws IOException {
     MapSettings settings = new MapSettings();
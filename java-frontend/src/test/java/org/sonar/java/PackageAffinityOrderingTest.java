@@ -0,0 +1,143 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PackageAffinityOrderingTest {
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @Test
+  void header_contains_the_package_and_the_imports() {
+    InputFile inputFile = inputFile("A.java", """
+      /*
+       * License header, with a fake declaration: package org.bar;
+       */
+      // import org.bar.B;
+      package org.foo ;
+
+      import java.util.List;
+      import static org.foo.bar.Constants.VALUE;
+      import org.foo.baz.* ;
+      import /* inline */ org.
+        foo.qix.C;
+
+      import java.util.Map;
+
+      class A {
+        // import org.ignored.D;
+      }
+      """);
+    assertThat(PackageAffinityOrdering.readHeader(inputFile))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("org.foo",
+        List.of("java.util.List", "org.foo.bar.Constants.VALUE", "org.foo.baz.*", "org.foo.qix.C", "java.util.Map")));
+  }
+
+  @Test
+  void header_without_package_or_imports() {
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("A.java", "class A {}")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("", List.of()));
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("A.java", "\uFEFFpackage org.foo; class A {}")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("org.foo", List.of()));
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("A.java", "")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("", List.of()));
+    // Lexing stops at the first token which is not part of a declaration
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("package-info.java", "@Deprecated package org.foo;")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("", List.of()));
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("A.java", "package org.foo; import ; class A {}")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("org.foo", List.of("")));
+    assertThat(PackageAffinityOrdering.readHeader(inputFile("A.java", "package org.foo /")))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("", List.of()));
+  }
+
+  @Test
+  void header_of_an_unreadable_file_is_empty() throws Exception {
+    InputFile inputFile = mock(InputFile.class);
+    when(inputFile.charset()).thenReturn(UTF_8);
+    when(inputFile.inputStream()).thenThrow(new IOException("boom"));
+    when(inputFile.toString()).thenReturn("A.java");
+    assertThat(PackageAffinityOrdering.readHeader(inputFile))
+      .isEqualTo(new PackageAffinityOrdering.FileHeader("", List.of()));
+    assertThat(logTester.logs(Level.DEBUG)).containsExactly("Unable to read the package and imports of A.java: boom");
+  }
+
+  @Test
+  void packages_follow_the_packages_they_import() {
+    Map<String, Set<String>> importsByPackage = new LinkedHashMap<>();
+    importsByPackage.put("app", imports("app.service.Service", "java.util.List"));
+    importsByPackage.put("app.model", imports());
+    importsByPackage.put("app.service", imports("app.model.*", "app.util.Strings.isEmpty"));
+    importsByPackage.put("app.util", imports("app.service.Service"));
+    importsByPackage.put("other", imports());
+    assertThat(PackageAffinityOrdering.orderPackages(importsByPackage))
+      .containsExactly("app.model", "app.util", "app.service", "app", "other");
+  }
+
+  @Test
+  void long_chains_of_imports_are_ordered() {
+    Map<String, Set<String>> importsByPackage = new LinkedHashMap<>();
+    int packages = 10_000;
+    for (int i = 0; i < packages; i++) {
+      importsByPackage.put("p" + i, i + 1 < packages ? imports("p" + (i + 1) + ".A") : imports());
+    }
+    List<String> ordered = PackageAffinityOrdering.orderPackages(importsByPackage);
+    assertThat(ordered).hasSize(packages).startsWith("p9999", "p9998").endsWith("p1", "p0");
+  }
+
+  @Test
+  void files_are_grouped_by_package() {
+    InputFile a1 = inputFile("a/A1.java", "package a; import b.B; class A1 {}");
+    InputFile b = inputFile("b/B.java", "package b; class B {}");
+    InputFile c = inputFile("c/C.java", "package c; class C {}");
+    InputFile a2 = inputFile("a/A2.java", "package a; class A2 {}");
+    assertThat(PackageAffinityOrdering.order(List.of(a1, c, a2, b))).containsExactly(b, a1, a2, c);
+    assertThat(logTester.logs(Level.DEBUG)).anyMatch(log -> log.startsWith("Ordered 4 files of 3 packages by package affinity in "));
+  }
+
+  private static Set<String> imports(String... imports) {
+    return new LinkedHashSet<>(List.of(imports));
+  }
+
+  private static InputFile inputFile(String path, String contents) {
+    return new TestInputFileBuilder("", path)
+      .setContents(contents)
+      .setCharset(UTF_8)
+      .setLanguage("java")
+      .build();
+  }
+}
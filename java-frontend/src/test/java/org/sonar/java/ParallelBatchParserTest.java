@@ -0,0 +1,228 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.java.model.JParserConfig;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class ParallelBatchParserTest {
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void trees_are_consumed_in_the_order_of_the_batches() throws IOException {
+    List<List<InputFile>> batches = List.of(
+      List.of(inputFile("A", "class A { B b; }"), inputFile("B", "class B {}")),
+      List.of(inputFile("C", "class C {}")),
+      List.of(inputFile("D", "class D {}"), inputFile("E", "class E {}")));
+
+    List<String> events = new ArrayList<>();
+    new ParallelBatchParser(2, () -> false).parse(batches.iterator(), ParallelBatchParserTest::config, new ParallelBatchParser.BatchConsumer() {
+      @Override
+      public void startBatch(List<InputFile> batch) {
+        events.add("start " + batch.size());
+      }
+
+      @Override
+      public void accept(InputFile inputFile, JParserConfig.Result result) {
+        events.add(inputFile.filename() + " " + typeOfFirstField(result));
+      }
+
+      @Override
+      public void endBatch(List<InputFile> batch) {
+        events.add("end");
+      }
+    });
+
+    assertThat(events).containsExactly(
+      "start 2", "A.java B", "B.java null", "end",
+      "start 1", "C.java null", "end",
+      "start 2", "D.java null", "E.java null", "end");
+  }
+
+  @Test
+  void failures_of_workers_are_rethrown_to_the_caller() throws IOException {
+    List<List<InputFile>> batches = List.of(List.of(inputFile("A", "class A {}")));
+    IllegalStateException failure = new IllegalStateException("boom");
+    JParserConfig failingConfig = mock(JParserConfig.class);
+    doThrow(failure).when(failingConfig).parseQuietly(any(), any(), any());
+
+    List<String> events = new ArrayList<>();
+    ParallelBatchParser parser = new ParallelBatchParser(2, () -> false);
+    ParallelBatchParser.BatchConsumer consumer = new ParallelBatchParser.BatchConsumer() {
+      @Override
+      public void startBatch(List<InputFile> batch) {
+        events.add("start");
+      }
+
+      @Override
+      public void accept(InputFile file, JParserConfig.Result result) {
+        events.add("accept");
+      }
+
+      @Override
+      public void endBatch(List<InputFile> batch) {
+        events.add("end");
+      }
+    };
+
+    assertThatThrownBy(() -> parser.parse(batches.iterator(), batch -> failingConfig, consumer)).isSameAs(failure);
+    assertThat(events).containsExactly("start");
+  }
+
+  @Test
+  void cancellation_is_checked_before_consuming_a_batch() throws IOException {
+    List<List<InputFile>> batches = List.of(List.of(inputFile("A", "class A {}")));
+    ParallelBatchParser parser = new ParallelBatchParser(2, () -> true);
+    ParallelBatchParser.BatchConsumer consumer = new ParallelBatchParser.BatchConsumer() {
+      @Override
+      public void startBatch(List<InputFile> batch) {
+        throw new IllegalStateException("Should not be called");
+      }
+
+      @Override
+      public void accept(InputFile file, JParserConfig.Result result) {
+        throw new IllegalStateException("Should not be called");
+      }
+
+      @Override
+      public void endBatch(List<InputFile> batch) {
+        throw new IllegalStateException("Should not be called");
+      }
+    };
+    assertThatThrownBy(() -> parser.parse(batches.iterator(), ParallelBatchParserTest::config, consumer))
+      .isInstanceOf(OperationCanceledException.class);
+  }
+
+  @Test
+  void pipeline_statistics_are_logged() throws IOException {
+    List<List<InputFile>> batches = List.of(List.of(inputFile("A", "class A {}")), List.of(inputFile("B", "class B {}")));
+    new ParallelBatchParser(2, () -> false).parse(batches.iterator(), ParallelBatchParserTest::config, new ParallelBatchParser.BatchConsumer() {
+      @Override
+      public void startBatch(List<InputFile> batch) {
+        // nothing to do
+      }
+
+      @Override
+      public void accept(InputFile inputFile, JParserConfig.Result result) {
+        // nothing to do
+      }
+
+      @Override
+      public void endBatch(List<InputFile> batch) {
+        // nothing to do
+      }
+    });
+    assertThat(logTester.logs(Level.DEBUG))
+      .anyMatch(log -> log.startsWith("Parsed 2 batches with up to 2 batches in flight: at most "));
+  }
+
+  @Test
+  void no_batch_is_parsed_ahead_while_the_heap_is_used() throws IOException {
+    List<List<InputFile>> batches = List.of(List.of(inputFile("A", "class A {}")), List.of(inputFile("B", "class B {}")));
+    List<String> events = new ArrayList<>();
+    ParallelBatchParser.BatchConsumer consumer = new ParallelBatchParser.BatchConsumer() {
+      @Override
+      public void startBatch(List<InputFile> batch) {
+        events.add("start " + batch.get(0).filename());
+      }
+
+      @Override
+      public void accept(InputFile inputFile, JParserConfig.Result result) {
+        // nothing to do
+      }
+
+      @Override
+      public void endBatch(List<InputFile> batch) {
+        events.add("end " + batch.get(0).filename());
+      }
+    };
+    Function<List<InputFile>, JParserConfig> configFactory = batch -> {
+      events.add("parse " + batch.get(0).filename());
+      return config(batch);
+    };
+
+    new ParallelBatchParser(2, 1_000L, () -> 501L, () -> false).parse(batches.iterator(), configFactory, consumer);
+    assertThat(events).containsExactly("parse A.java", "start A.java", "end A.java", "parse B.java", "start B.java", "end B.java");
+    assertThat(logTester.logs(Level.DEBUG)).anyMatch(log -> log.endsWith(", 1 batches were deferred by the heap usage."));
+
+    events.clear();
+    new ParallelBatchParser(2, 1_000L, () -> 500L, () -> false).parse(batches.iterator(), configFactory, consumer);
+    assertThat(events).containsExactly("parse A.java", "parse B.java", "start A.java", "end A.java", "start B.java", "end B.java");
+  }
+
+  private static JParserConfig config(List<InputFile> batch) {
+    return JParserConfig.Mode.BATCH.create(new JavaVersionImpl(), Collections.emptyList());
+  }
+
+  private static String typeOfFirstField(JParserConfig.Result result) {
+    try {
+      return String.valueOf(firstFieldTypeName(result.get()));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String firstFieldTypeName(JavaTree.CompilationUnitTreeImpl tree) {
+    ClassTree classTree = (ClassTree) tree.types().get(0);
+    return classTree.members().stream()
+      .filter(VariableTree.class::isInstance)
+      .map(VariableTree.class::cast)
+      .map(variable -> variable.type().symbolType().name())
+      .findFirst()
+      .orElse(null);
+  }
+
+  private InputFile inputFile(String className, String code) throws IOException {
+    File file = tempDir.resolve(className + ".java").toFile();
+    Files.writeString(file.toPath(), code, StandardCharsets.UTF_8);
+    return TestUtils.inputFile(file);
+  }
+
+}
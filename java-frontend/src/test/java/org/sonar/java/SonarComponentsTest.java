@@ -32,9 +32,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -740,6 +742,62 @@ class SonarComponentsTest {
     assertThat(batchModeSizeInKB).isEqualTo(expectedBatchSizeKB);
   }
 
+  @ParameterizedTest
+  @CsvSource({
+    ", 8, 1",
+    "0, 8, 1",
+    "4, 8, 4",
+    "16, 8, 8",
+  })
+  void analysis_threads_are_bounded_by_available_processors(@Nullable Integer configuredThreads, int availableProcessors, int expectedThreads) {
+    MapSettings settings = new MapSettings();
+    if (configuredThreads != null) {
+      settings.setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, configuredThreads);
+    }
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    sonarComponents.setSensorContext(SensorContextTester.create(new File("")).setSettings(settings));
+
+    IntSupplier oldValue = SonarComponents.availableProcessorsProvider;
+    SonarComponents.availableProcessorsProvider = () -> availableProcessors;
+    int analysisThreads = sonarComponents.getAnalysisThreads();
+    SonarComponents.availableProcessorsProvider = oldValue;
+    assertThat(analysisThreads).isEqualTo(expectedThreads);
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    ", 2, 2",
+    "0, 2, 1",
+    "1, 2, 1",
+    "3, 4, 3",
+    "8, 4, 4",
+  })
+  void batches_in_flight_are_bounded_by_configuration(@Nullable Integer configuredBatches, int requestedBatches, int expectedBatches) {
+    MapSettings settings = new MapSettings();
+    if (configuredBatches != null) {
+      settings.setProperty(SonarComponents.SONAR_MAX_BATCHES_IN_FLIGHT_KEY, configuredBatches);
+    }
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    sonarComponents.setSensorContext(SensorContextTester.create(new File("")).setSettings(settings));
+
+    assertThat(sonarComponents.getMaxBatchesInFlight(requestedBatches)).isEqualTo(expectedBatches);
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "0, 1",
+    "1, 1",
+    "8, 8",
+  })
+  void cache_prefetch_threads_use_available_processors(int availableProcessors, int expectedThreads) {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    IntSupplier oldValue = SonarComponents.availableProcessorsProvider;
+    SonarComponents.availableProcessorsProvider = () -> availableProcessors;
+    int prefetchThreads = sonarComponents.getCachePrefetchThreads();
+    SonarComponents.availableProcessorsProvider = oldValue;
+    assertThat(prefetchThreads).isEqualTo(expectedThreads);
+  }
+
   @Test
   void file_by_file_getters() {
     MapSettings settings = new MapSettings();
@@ -748,6 +806,26 @@ class SonarComponentsTest {
 
     // default value
     assertThat(sonarComponents.isFileByFileEnabled()).isFalse();
+    assertThat(sonarComponents.isPipelinedAnalysisEnabled()).isFalse();
+
+    settings.setProperty("sonar.java.experimental.pipelinedAnalysis", "true");
+    assertThat(sonarComponents.isPipelinedAnalysisEnabled()).isTrue();
+
+    assertThat(sonarComponents.isAdaptiveBatchSizeEnabled()).isFalse();
+    settings.setProperty("sonar.java.experimental.adaptiveBatchSize", "true");
+    assertThat(sonarComponents.isAdaptiveBatchSizeEnabled()).isTrue();
+
+    assertThat(sonarComponents.isPackageAffinityOrderingEnabled()).isFalse();
+    settings.setProperty("sonar.java.experimental.packageAffinityOrdering", "true");
+    assertThat(sonarComponents.isPackageAffinityOrderingEnabled()).isTrue();
+
+    assertThat(sonarComponents.isSharedClasspathEnvironmentEnabled()).isFalse();
+    settings.setProperty("sonar.java.experimental.sharedClasspathEnvironment", "true");
+    assertThat(sonarComponents.isSharedClasspathEnvironmentEnabled()).isTrue();
+
+    assertThat(sonarComponents.isSharedTraversalEnabled()).isFalse();
+    settings.setProperty("sonar.java.experimental.sharedTraversal", "true");
+    assertThat(sonarComponents.isSharedTraversalEnabled()).isTrue();
 
     // file by file
     settings.setProperty("sonar.java.fileByFile", "true");
@@ -759,6 +837,31 @@ class SonarComponentsTest {
     assertThat(sonarComponents.getBatchModeSizeInKB()).isEqualTo(1000);
   }
 
+  @Test
+  void experimental_settings_without_sensor_context() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    assertThat(sonarComponents.getAnalysisThreads()).isEqualTo(1);
+    assertThat(sonarComponents.getMaxBatchesInFlight(2)).isEqualTo(2);
+    assertThat(sonarComponents.isPipelinedAnalysisEnabled()).isFalse();
+    assertThat(sonarComponents.isAdaptiveBatchSizeEnabled()).isFalse();
+    assertThat(sonarComponents.isPackageAffinityOrderingEnabled()).isFalse();
+    assertThat(sonarComponents.isSharedClasspathEnvironmentEnabled()).isFalse();
+    assertThat(sonarComponents.isSharedTraversalEnabled()).isFalse();
+  }
+
+  @Test
+  void file_summary_cache_is_disabled_by_default() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    assertThat(sonarComponents.isFileSummaryCacheEnabled()).isFalse();
+
+    MapSettings settings = new MapSettings();
+    sonarComponents.setSensorContext(SensorContextTester.create(new File("")).setSettings(settings));
+    assertThat(sonarComponents.isFileSummaryCacheEnabled()).isFalse();
+
+    settings.setProperty("sonar.java.caching.fileSummaries", "true");
+    assertThat(sonarComponents.isFileSummaryCacheEnabled()).isTrue();
+  }
+
   @Test
   void skipUnchangedFiles_returns_result_from_context() throws ApiMismatchException {
     SensorContextTester sensorContextTester = SensorContextTester.create(new File(""));
@@ -407,6 +407,7 @@ class JavaAstScannerTest {
     assertThat(actual).hasSize(2);
     assertThat(actual.get(false)).containsExactly(unsuccessful);
     assertThat(actual.get(true)).containsExactly(successful, successful);
+    verify(visitorsBridge).prefetchCacheEntries(files);
   }
 
   private void scanSingleFile(InputFile file, boolean failOnException) {
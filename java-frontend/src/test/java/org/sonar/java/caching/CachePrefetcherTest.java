@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.sonar.java.AnalysisException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachePrefetcherTest {
+
+  @Test
+  void every_item_is_processed_by_the_pool_of_threads() {
+    List<Integer> items = IntStream.range(0, 100).boxed().toList();
+    Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    try (CachePrefetcher prefetcher = new CachePrefetcher(4)) {
+      prefetcher.forEach(items, item -> {
+        processed.add(item);
+        threads.add(Thread.currentThread().getName());
+      });
+    }
+    assertThat(processed).containsExactlyInAnyOrderElementsOf(items);
+    assertThat(threads).allMatch(name -> name.startsWith("Java cache prefetcher "));
+  }
+
+  @Test
+  void a_single_thread_processes_the_items_in_the_calling_thread() {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    try (CachePrefetcher prefetcher = new CachePrefetcher(0)) {
+      prefetcher.forEach(List.of(1, 2, 3), item -> threads.add(Thread.currentThread().getName()));
+    }
+    assertThat(threads).containsExactly(Thread.currentThread().getName());
+  }
+
+  @Test
+  void failures_are_propagated() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    try (CachePrefetcher prefetcher = new CachePrefetcher(2)) {
+      List<Integer> items = List.of(1, 2, 3, 4);
+      assertThatThrownBy(() -> prefetcher.forEach(items, item -> {
+        if (item == 3) {
+          throw failure;
+        }
+      }))
+        .isInstanceOf(AnalysisException.class)
+        .hasMessage("Cache prefetching failed")
+        .hasCause(failure);
+    }
+  }
+}
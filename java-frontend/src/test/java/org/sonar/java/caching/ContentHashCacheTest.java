@@ -24,6 +24,8 @@ import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -33,6 +35,7 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.cache.ReadCache;
 import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.testfixtures.log.LogAndArguments;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.java.SonarComponents;
@@ -40,9 +43,15 @@ import org.sonar.java.TestUtils;
 import org.sonar.plugins.java.api.caching.SonarLintCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ContentHashCacheTest {
@@ -157,7 +166,7 @@ class ContentHashCacheTest {
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setPreviousCache(readCache);
     sensorContext.setNextCache(writeCache);
-    when(inputFile1.contents()).thenThrow(new IOException());
+    when(inputFile1.inputStream()).thenThrow(new IOException());
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
     Assertions.assertFalse(contentHashCache.hasSameHashCached(inputFile1));
 
@@ -166,6 +175,79 @@ class ContentHashCacheTest {
       contains("Failed to compute content hash for file " + inputFile1.key());
   }
 
+  @Test
+  void hasSameHashCached_hashes_and_compares_every_file_only_once() throws IOException {
+    SensorContextTester sensorContext = getSensorContextTesterWithEmptyCache(true);
+    InputFile spiedInputFile = spy(inputFile);
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Assertions.assertFalse(contentHashCache.hasSameHashCached(spiedInputFile));
+    Assertions.assertFalse(contentHashCache.hasSameHashCached(spiedInputFile));
+    Assertions.assertTrue(contentHashCache.writeToCache(spiedInputFile));
+
+    verify(spiedInputFile, times(1)).inputStream();
+    verify(sensorContext.previousCache(), times(1)).read("java:contentHash:MD5:" + inputFile.key());
+  }
+
+  @Test
+  void prefetched_hashes_are_compared_without_reading_the_files_and_the_cache_again() throws IOException, NoSuchAlgorithmException {
+    SensorContextTester sensorContext = getSonarComponentsTester();
+    InputFile spiedInputFile = spy(inputFile);
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Set<String> cacheReadingThreads = ConcurrentHashMap.newKeySet();
+    doAnswer(invocation -> {
+      cacheReadingThreads.add(Thread.currentThread().getName());
+      return true;
+    }).when(sensorContext.previousCache()).contains("java:contentHash:MD5:" + inputFile.key());
+    try (CachePrefetcher prefetcher = new CachePrefetcher(2)) {
+      contentHashCache.prefetch(List.of(spiedInputFile), prefetcher);
+    }
+    // The previous cache is only read by the analysis thread
+    assertThat(cacheReadingThreads).containsExactly(Thread.currentThread().getName());
+    verify(spiedInputFile, times(1)).inputStream();
+    verify(sensorContext.previousCache(), times(1)).read("java:contentHash:MD5:" + inputFile.key());
+
+    Assertions.assertTrue(contentHashCache.contains(spiedInputFile));
+    Assertions.assertTrue(contentHashCache.hasSameHashCached(spiedInputFile));
+    verify(spiedInputFile, times(1)).inputStream();
+    verify(sensorContext.previousCache(), times(1)).read("java:contentHash:MD5:" + inputFile.key());
+    verify(sensorContext.previousCache(), times(1)).contains("java:contentHash:MD5:" + inputFile.key());
+  }
+
+  @Test
+  void prefetched_missing_hashes_are_written_to_the_cache() {
+    logTester.setLevel(Level.TRACE);
+    SensorContextTester sensorContext = getSensorContextTesterWithEmptyCache(true);
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    try (CachePrefetcher prefetcher = new CachePrefetcher(1)) {
+      contentHashCache.prefetch(List.of(inputFile), prefetcher);
+    }
+    Assertions.assertFalse(contentHashCache.contains(inputFile));
+    Assertions.assertFalse(contentHashCache.hasSameHashCached(inputFile));
+    verify(sensorContext.previousCache(), times(0)).read("java:contentHash:MD5:" + inputFile.key());
+    verify(sensorContext.nextCache()).write(eq("java:contentHash:MD5:" + inputFile.key()), any(byte[].class));
+    assertThat(logTester.logs(Level.TRACE)).contains("Could not find key java:contentHash:MD5:" + inputFile.key() + " in the cache");
+  }
+
+  @Test
+  void content_hash_algorithm_can_be_configured() throws IOException, NoSuchAlgorithmException {
+    SensorContextTester sensorContext = SensorContextTester.create(file.getAbsoluteFile());
+    sensorContext.setCacheEnabled(true);
+    sensorContext.setSettings(new MapSettings().setProperty(ContentHashAlgorithm.CONTENT_HASH_ALGORITHM_KEY, "crc32c"));
+    String cacheKey = "java:contentHash:CRC32C:v1:" + inputFile.key();
+    ReadCache readCache = mock(ReadCache.class);
+    when(readCache.read(cacheKey))
+      .thenReturn(new ByteArrayInputStream(FileHashingUtils.inputFileContentHash(inputFile, ContentHashAlgorithm.CRC32C)));
+    when(readCache.contains(cacheKey)).thenReturn(true);
+    WriteCache writeCache = mock(WriteCache.class);
+    sensorContext.setPreviousCache(readCache);
+    sensorContext.setNextCache(writeCache);
+
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Assertions.assertTrue(contentHashCache.contains(inputFile));
+    Assertions.assertTrue(contentHashCache.hasSameHashCached(inputFile));
+    verify(writeCache).copyFromPrevious(cacheKey);
+  }
+
   @Test
   void contains_returns_true_when_file_is_in_cache() throws IOException, NoSuchAlgorithmException {
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(getSonarComponentsTester()));
@@ -218,7 +300,7 @@ class ContentHashCacheTest {
     // mocking static method requires mockito-inline, which currently breaks the tests.
     InputFile inputFile1 = mock(InputFile.class);
     when(inputFile1.key()).thenReturn("key");
-    when(inputFile1.contents()).thenThrow(new IOException());
+    when(inputFile1.inputStream()).thenThrow(new IOException());
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
     Assertions.assertFalse(contentHashCache.writeToCache(inputFile1));
 
@@ -0,0 +1,73 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileHashingUtilsTest {
+
+  @Test
+  void streamed_hash_is_the_hash_of_the_utf8_content() throws IOException, NoSuchAlgorithmException {
+    // Long enough to span several chunks, with characters encoded on several bytes and surrogate pairs
+    String content = "class A { String s = \"\u00e9\u00e8\u20ac\uD83D\uDE00\"; }\n".repeat(2_000);
+    InputFile utf8File = inputFile(content, StandardCharsets.UTF_8);
+    InputFile latin1File = inputFile("class A { String s = \"\u00e9\u00e8\"; }\n".repeat(2_000), StandardCharsets.ISO_8859_1);
+
+    assertThat(FileHashingUtils.inputFileContentHash(utf8File)).isEqualTo(md5(utf8File.contents()));
+    assertThat(FileHashingUtils.inputFileContentHash(latin1File)).isEqualTo(md5(latin1File.contents()));
+  }
+
+  @Test
+  void crc32c_hash_depends_on_content_and_length() throws IOException, NoSuchAlgorithmException {
+    byte[] hash = FileHashingUtils.inputFileContentHash(inputFile("class A {}", StandardCharsets.UTF_8), ContentHashAlgorithm.CRC32C);
+    byte[] sameHash = FileHashingUtils.inputFileContentHash(inputFile("class A {}", StandardCharsets.UTF_8), ContentHashAlgorithm.CRC32C);
+    byte[] otherHash = FileHashingUtils.inputFileContentHash(inputFile("class B {}", StandardCharsets.UTF_8), ContentHashAlgorithm.CRC32C);
+
+    assertThat(hash).hasSize(12).isEqualTo(sameHash).isNotEqualTo(otherHash);
+  }
+
+  @Test
+  void cache_keys_are_versioned_by_algorithm() {
+    assertThat(ContentHashAlgorithm.MD5.cacheKeyPrefix()).isEqualTo("java:contentHash:MD5:");
+    assertThat(ContentHashAlgorithm.CRC32C.cacheKeyPrefix()).isEqualTo("java:contentHash:CRC32C:v1:");
+    assertThat(ContentHashAlgorithm.fromConfiguration(null)).isEqualTo(ContentHashAlgorithm.MD5);
+  }
+
+  private static byte[] md5(String content) throws NoSuchAlgorithmException {
+    return MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static InputFile inputFile(String content, Charset charset) {
+    return new TestInputFileBuilder("", "A.java")
+      .setContents(content)
+      .setCharset(charset)
+      .build();
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.java.model.JParserTestUtils;
+import org.sonar.plugins.java.api.InputFileScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class FileSummaryCacheTest {
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.TRACE);
+
+  private static final String KEY = "java:fileSummary:v" + FileSummary.FORMAT_VERSION + ":module:src/main/java/A.java";
+
+  private final InputFile inputFile = mock(InputFile.class);
+  private final JavaReadCache readCache = mock(JavaReadCache.class);
+  private final JavaWriteCache writeCache = mock(JavaWriteCache.class);
+  private final CacheContext cacheContext = mock(CacheContext.class);
+  private final InputFileScannerContext context = mock(InputFileScannerContext.class);
+
+  FileSummaryCacheTest() {
+    doReturn("module:src/main/java/A.java").when(inputFile).key();
+    doReturn(true).when(cacheContext).isCacheEnabled();
+    doReturn(readCache).when(cacheContext).getReadCache();
+    doReturn(writeCache).when(cacheContext).getWriteCache();
+    doReturn(inputFile).when(context).getInputFile();
+    doReturn(cacheContext).when(context).getCacheContext();
+  }
+
+  @Test
+  void cache_key_is_versioned() {
+    assertThat(FileSummaryCache.cacheKey(inputFile)).isEqualTo(KEY);
+  }
+
+  @Test
+  void written_summaries_can_be_read() {
+    CompilationUnitTree tree = JParserTestUtils.parse("package org.foo; class A { }");
+    FileSummaryCache.write(cacheContext, inputFile, tree);
+    byte[] expected = FileSummary.of(tree).toBytes();
+    verify(writeCache).write(KEY, expected);
+
+    doReturn(expected).when(readCache).readBytes(KEY);
+    assertThat(FileSummaryCache.read(context)).contains(FileSummary.of(tree));
+  }
+
+  @Test
+  void nothing_is_read_when_the_cache_is_disabled_or_has_no_valid_summary() {
+    assertThat(FileSummaryCache.read(context)).isEmpty();
+
+    doReturn(new byte[] {1, 2, 3}).when(readCache).readBytes(KEY);
+    assertThat(FileSummaryCache.read(context)).isEmpty();
+    assertThat(logTester.logs(Level.TRACE)).anyMatch(log -> log.startsWith("Unable to read the file summary stored under key '" + KEY + "'"));
+
+    doReturn(false).when(cacheContext).isCacheEnabled();
+    assertThat(FileSummaryCache.read(context)).isEmpty();
+  }
+
+  @Test
+  void writing_twice_is_ignored() {
+    doThrow(new IllegalArgumentException()).when(writeCache).write(eq(KEY), any(byte[].class));
+    FileSummaryCache.write(cacheContext, inputFile, JParserTestUtils.parse("class A { }"));
+    assertThat(logTester.logs(Level.TRACE)).contains("Tried to write multiple times to cache key '" + KEY + "'. Ignoring writes after the first.");
+  }
+
+  @Test
+  void summaries_are_only_copied_when_present_in_the_previous_cache() {
+    FileSummaryCache.copyFromPrevious(cacheContext, inputFile);
+    verify(writeCache, never()).copyFromPrevious(any());
+
+    doReturn(true).when(readCache).contains(KEY);
+    FileSummaryCache.copyFromPrevious(cacheContext, inputFile);
+    verify(writeCache).copyFromPrevious(KEY);
+
+    doThrow(new IllegalArgumentException()).when(writeCache).copyFromPrevious(KEY);
+    FileSummaryCache.copyFromPrevious(cacheContext, inputFile);
+    assertThat(logTester.logs(Level.TRACE)).contains("Tried to write multiple times to cache key '" + KEY + "'. Ignoring writes after the first.");
+  }
+}
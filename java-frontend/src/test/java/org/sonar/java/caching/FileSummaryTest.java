@@ -0,0 +1,142 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.java.caching.FileSummary.TypeSummary;
+import org.sonar.java.model.JParserTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileSummaryTest {
+
+  private static final String SOURCE = """
+    package org.foo;
+
+    import java.util.List;
+    import static java.util.Collections.emptyList;
+    import java.io.*;
+
+    @Deprecated
+    class A {
+      void bar(int i) { }
+      List<String> baz() { return emptyList(); }
+
+      interface Inner {
+        void qix();
+      }
+
+      Object anonymous = new Object() {
+        void ignored() { }
+      };
+    }
+
+    enum B { ONE }
+    """;
+
+  @Test
+  void summary_of_a_compilation_unit() {
+    FileSummary summary = FileSummary.of(JParserTestUtils.parse(SOURCE));
+
+    assertThat(summary.packageName()).isEqualTo("org.foo");
+    assertThat(summary.imports()).containsExactly("java.util.List", "static java.util.Collections.emptyList", "java.io.*");
+    assertThat(summary.types()).extracting(TypeSummary::name).containsExactly("org.foo.A", "org.foo.A$Inner", "org.foo.B");
+    assertThat(summary.types()).extracting(TypeSummary::kind).containsExactly("CLASS", "INTERFACE", "ENUM");
+
+    TypeSummary a = summary.types().get(0);
+    assertThat(a.annotations()).containsExactly("java.lang.Deprecated");
+    assertThat(a.methods()).hasSize(2);
+    assertThat(a.methods().get(0)).contains("bar");
+    assertThat(a.methods().get(1)).contains("baz");
+  }
+
+  @Test
+  void summary_of_a_file_in_the_default_package() {
+    FileSummary summary = FileSummary.of(JParserTestUtils.parse("class A { }"));
+    assertThat(summary.packageName()).isEmpty();
+    assertThat(summary.imports()).isEmpty();
+    assertThat(summary.types()).extracting(TypeSummary::name).containsExactly("A");
+  }
+
+  @Test
+  void round_trip() throws IOException {
+    FileSummary summary = FileSummary.of(JParserTestUtils.parse(SOURCE));
+    assertThat(FileSummary.fromBytes(summary.toBytes())).isEqualTo(summary);
+
+    FileSummary empty = new FileSummary("", List.of(), List.of());
+    assertThat(FileSummary.fromBytes(empty.toBytes())).isEqualTo(empty);
+
+    FileSummary unicode = new FileSummary("\u00E9t\u00E9", List.of("\u65E5\u672C.\u00C5"),
+      List.of(new TypeSummary("\u00E9t\u00E9.\u00C9", "RECORD", List.of(), List.of("\u00E9()"))));
+    assertThat(FileSummary.fromBytes(unicode.toBytes())).isEqualTo(unicode);
+  }
+
+  @Test
+  void format_starts_with_magic_number_and_version() throws IOException {
+    byte[] bytes = new FileSummary("a", List.of(), List.of()).toBytes();
+    assertThat(Arrays.copyOf(bytes, 8)).isEqualTo(header(FileSummary.MAGIC, FileSummary.FORMAT_VERSION));
+  }
+
+  @Test
+  void other_versions_are_rejected() throws IOException {
+    byte[] bytes = new FileSummary("a", List.of(), List.of()).toBytes();
+    byte[] header = header(FileSummary.MAGIC, FileSummary.FORMAT_VERSION + 1);
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    assertThatThrownBy(() -> FileSummary.fromBytes(bytes))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Unsupported file summary format version " + (FileSummary.FORMAT_VERSION + 1));
+  }
+
+  @Test
+  void invalid_data_is_rejected() {
+    byte[] bytes = new FileSummary("org.foo", List.of("java.util.List"), List.of()).toBytes();
+
+    assertThatThrownBy(() -> FileSummary.fromBytes("not a summary".getBytes()))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Not a file summary");
+    assertThatThrownBy(() -> FileSummary.fromBytes(Arrays.copyOf(bytes, bytes.length - 3)))
+      .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> FileSummary.fromBytes(Arrays.copyOf(bytes, bytes.length + 1)))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Unexpected data after the file summary");
+
+    byte[] negativeSize = Arrays.copyOf(bytes, bytes.length);
+    // The length of the package name follows the header
+    negativeSize[8] = (byte) 0xFF;
+    assertThatThrownBy(() -> FileSummary.fromBytes(negativeSize))
+      .isInstanceOf(IOException.class)
+      .hasMessageStartingWith("Invalid size in file summary");
+  }
+
+  private static byte[] header(int magic, int version) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(magic);
+      out.writeInt(version);
+    }
+    return bytes.toByteArray();
+  }
+}
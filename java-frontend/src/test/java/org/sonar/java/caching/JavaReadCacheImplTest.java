@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.sonar.api.batch.sensor.cache.ReadCache;
 
@@ -36,6 +37,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class JavaReadCacheImplTest {
   @Test
@@ -97,6 +99,55 @@ class JavaReadCacheImplTest {
     verify(readCache, times(1)).contains(missingKey);
   }
 
+  @Test
+  void prefetched_entries_are_served_from_memory() throws IOException {
+    ReadCache readCache = mock(ReadCache.class);
+    when(readCache.contains(any())).thenAnswer(invocation -> !invocation.<String>getArgument(0).startsWith("missing"));
+    when(readCache.read(any())).thenAnswer(invocation -> new ByteArrayInputStream(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+
+    JavaReadCacheImpl cache = new JavaReadCacheImpl(readCache);
+    cache.prefetch(List.of("key1", "key2", "missing1", "key3"));
+    verify(readCache, times(3)).read(any());
+
+    assertThat(cache.contains("key1")).isTrue();
+    assertThat(cache.contains("missing1")).isFalse();
+    assertThat(cache.readBytes("key1")).isEqualTo("key1".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.readBytes("missing1")).isNull();
+    try (InputStream read = cache.read("key2")) {
+      assertThat(read).hasBinaryContent("key2".getBytes(StandardCharsets.UTF_8));
+    }
+    assertThatThrownBy(() -> cache.read("missing1"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("No cache data available for key 'missing1'");
+
+    // Prefetched entries are kept until they are released, whatever the number of reads
+    assertThat(cache.readBytes("key1")).isEqualTo("key1".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.contains("key1")).isTrue();
+    verify(readCache, times(3)).read(any());
+    verify(readCache, times(1)).contains("key1");
+    verify(readCache, times(1)).contains("missing1");
+
+    // Once released, reading them queries the underlying cache
+    cache.releasePrefetched(List.of("key1", "missing1"));
+    assertThat(cache.readBytes("key1")).isEqualTo("key1".getBytes(StandardCharsets.UTF_8));
+    assertThat(cache.contains("missing1")).isFalse();
+    verify(readCache, times(2)).read("key1");
+    verify(readCache, times(2)).contains("missing1");
+  }
+
+  @Test
+  void entries_which_cannot_be_prefetched_are_read_on_demand() {
+    ReadCache readCache = mock(ReadCache.class);
+    doReturn(true).when(readCache).contains(any());
+    doThrow(new IllegalStateException("boom")).when(readCache).read("key");
+
+    JavaReadCacheImpl cache = new JavaReadCacheImpl(readCache);
+    cache.prefetch(List.of("key"));
+    assertThatThrownBy(() -> cache.readBytes("key"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("boom");
+  }
+
   @Test
   void equality_is_only_based_on_ReadCache_field() {
     ReadCache readCache = mock(ReadCache.class);
@@ -20,7 +20,9 @@
 package org.sonar.java.cfg;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.sonar.java.model.JParserTestUtils;
 import org.sonar.plugins.java.api.semantic.Symbol;
@@ -29,6 +31,7 @@ import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class LiveVariablesTest {
 
@@ -136,6 +139,35 @@ class LiveVariablesTest {
     assertFieldsByMethodEntry("void foo(int a) { B that = new B(); foo(that.field1); }");
   }
 
+  @Test
+  void results_are_cached_on_the_cfg() {
+    CFG cfg = buildCFG("void foo(int a) { int i = a; if (false) ; foo(i); }");
+    LiveVariables liveVariables = LiveVariables.analyze(cfg);
+    assertThat(LiveVariables.analyze(cfg)).isSameAs(liveVariables);
+    LiveVariables liveVariablesWithFields = LiveVariables.analyzeWithFields(cfg);
+    assertThat(liveVariablesWithFields).isNotSameAs(liveVariables);
+    assertThat(LiveVariables.analyzeWithFields(cfg)).isSameAs(liveVariablesWithFields);
+
+    cfg.setMethodSymbol(cfg.methodSymbol());
+    assertThat(LiveVariables.analyze(cfg)).isNotSameAs(liveVariables);
+  }
+
+  @Test
+  void loops_reach_a_fixpoint() {
+    CFG cfg = buildCFG("void foo(boolean c) { int x = 0; int y = 0; while (c) { use(y); y = x; x = 1; } }");
+    LiveVariables liveVariables = LiveVariables.analyze(cfg);
+    for (CFG.Block block : cfg.reversedBlocks()) {
+      Set<Symbol> expectedOut = new HashSet<>();
+      block.successors().forEach(successor -> expectedOut.addAll(liveVariables.getIn(successor)));
+      block.exceptions().forEach(successor -> expectedOut.addAll(liveVariables.getIn(successor)));
+      assertThat(liveVariables.getOut(block)).as("out of B" + block.id()).isEqualTo(expectedOut);
+    }
+    // 'x' is read, through 'y', by the next iteration of the loop
+    Set<Symbol> loopOut = liveVariables.getOut(cfg.entryBlock());
+    assertThat(loopOut.stream().map(Symbol::name)).containsExactlyInAnyOrder("c", "x", "y");
+    assertThatThrownBy(() -> loopOut.add(loopOut.iterator().next())).isInstanceOf(UnsupportedOperationException.class);
+  }
+
   private void assertFieldsByMethodEntry(String methodCode, String ...inEntryNames) {
     CFG cfg = buildCFG(methodCode);
     LiveVariables liveVariables = LiveVariables.analyzeWithFields(cfg);
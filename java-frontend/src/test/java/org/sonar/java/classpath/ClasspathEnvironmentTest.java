@@ -0,0 +1,125 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClasspathEnvironmentTest {
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void entries_without_classes_are_excluded() throws IOException {
+    File classes = Files.createDirectories(tempDir.resolve("classes")).toFile();
+    File library = jar("library.jar", "org/foo/A.class", "org/foo/B.class", "META-INF/MANIFEST.MF");
+    File resources = jar("resources.jar", "org/foo/messages.properties");
+    File missing = tempDir.resolve("missing.jar").toFile();
+    File corrupted = Files.writeString(tempDir.resolve("corrupted.jar"), "not a jar").toFile();
+    List<File> classpath = List.of(classes, library, resources, missing, corrupted);
+
+    try (ClasspathEnvironment environment = new ClasspathEnvironment(classpath)) {
+      assertThat(environment.effectiveClasspath(List.of(library, classes, library, resources, missing, corrupted)))
+        .containsExactly(library, classes, corrupted);
+      assertThat(environment.effectiveClasspath(List.of(resources))).isEmpty();
+      assertThat(environment.openedJars()).isEqualTo(1);
+    }
+    assertThat(logTester.logs(Level.DEBUG))
+      .anyMatch(log -> log.startsWith("Unable to open " + corrupted))
+      .anyMatch(log -> log.matches("Opened 1 jars of the classpath, providing 2 classes, in \\d+ ms\\. 2 entries are excluded from the classpath\\."));
+  }
+
+  @Test
+  void pathing_jars_are_kept() throws IOException {
+    File library = jar("library.jar", "org/foo/A.class");
+    File pathing = pathingJar("pathing.jar", "library.jar");
+    File manifestOnly = pathingJar("manifest-only.jar", null);
+
+    try (ClasspathEnvironment environment = new ClasspathEnvironment(List.of(pathing, manifestOnly, library))) {
+      assertThat(environment.effectiveClasspath(List.of(pathing, manifestOnly, library))).containsExactly(pathing, library);
+      assertThat(environment.openedJars()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void jars_are_opened_once_until_the_environment_is_closed() throws IOException {
+    File library = jar("library.jar", "org/foo/A.class");
+    ClasspathEnvironment environment = new ClasspathEnvironment(List.of(library, library));
+    assertThat(environment.effectiveClasspath(List.of(library))).containsExactly(library);
+    assertThat(environment.effectiveClasspath(List.of(library))).containsExactly(library);
+    assertThat(environment.openedJars()).isEqualTo(1);
+    assertThat(logTester.logs(Level.DEBUG)).filteredOn(log -> log.startsWith("Opened ")).hasSize(1);
+
+    environment.close();
+    assertThat(environment.openedJars()).isZero();
+    environment.close();
+
+    // Used again after having been closed
+    assertThat(environment.effectiveClasspath(List.of(library))).containsExactly(library);
+    assertThat(environment.openedJars()).isEqualTo(1);
+    environment.close();
+  }
+
+  private File jar(String name, String... entries) throws IOException {
+    Path jar = tempDir.resolve(name);
+    try (OutputStream out = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(out)) {
+      for (String entry : entries) {
+        zip.putNextEntry(new ZipEntry(entry));
+        zip.write(new byte[] {0});
+        zip.closeEntry();
+      }
+    }
+    return jar.toFile();
+  }
+
+  private File pathingJar(String name, @Nullable String classPath) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (classPath != null) {
+      manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+    }
+    Path jar = tempDir.resolve(name);
+    try (OutputStream out = Files.newOutputStream(jar)) {
+      new JarOutputStream(out, manifest).close();
+    }
+    return jar.toFile();
+  }
+}
@@ -82,6 +82,7 @@ import org.sonar.plugins.java.api.tree.ParameterizedTypeTree;
 import org.sonar.plugins.java.api.tree.ParenthesizedTree;
 import org.sonar.plugins.java.api.tree.PatternInstanceOfTree;
 import org.sonar.plugins.java.api.tree.ReturnStatementTree;
+import org.sonar.plugins.java.api.tree.StatementTree;
 import org.sonar.plugins.java.api.tree.SwitchStatementTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TryStatementTree;
@@ -1753,4 +1754,36 @@ class JParserSemanticTest {
     assertThat(nestedCastWarning.message()).isEqualTo("Unnecessary cast from String to String");
     assertThat(nestedCastWarning.syntaxTree()).isEqualTo(parenthesizedTree);
   }
+
+  @Test
+  void many_warnings_are_mapped_to_their_trees_which_have_parents() {
+    List<String> importedTypes = List.of("java.util.List", "java.util.Map", "java.util.Set", "java.io.File", "java.io.InputStream",
+      "java.time.Instant", "java.net.URI", "java.nio.file.Path");
+    StringBuilder source = new StringBuilder();
+    importedTypes.forEach(type -> source.append("import ").append(type).append(";\n"));
+    source.append("class C {\n  void foo(String s) {\n");
+    int casts = 200;
+    for (int i = 0; i < casts; i++) {
+      source.append("    String s").append(i).append(" = (String) s;\n");
+    }
+    source.append("  }\n}\n");
+
+    JavaTree.CompilationUnitTreeImpl cu = test(source.toString());
+    List<StatementTree> statements = ((MethodTree) ((ClassTree) cu.types().get(0)).members().get(0)).block().body();
+    List<JWarning> castWarnings = cu.warnings(JWarning.Type.REDUNDANT_CAST);
+    assertThat(castWarnings).hasSize(casts);
+    for (int i = 0; i < casts; i++) {
+      VariableTree variable = (VariableTree) statements.get(i);
+      Tree syntaxTree = castWarnings.get(i).syntaxTree();
+      assertThat(syntaxTree).isSameAs(variable.initializer());
+      assertThat(syntaxTree.parent()).isSameAs(variable);
+    }
+    List<JWarning> importsWarnings = cu.warnings(JWarning.Type.UNUSED_IMPORT);
+    assertThat(importsWarnings).hasSize(importedTypes.size());
+    for (int i = 0; i < importedTypes.size(); i++) {
+      Tree syntaxTree = importsWarnings.get(i).syntaxTree();
+      assertThat(syntaxTree).isSameAs(cu.imports().get(i));
+      assertThat(syntaxTree.parent()).isSameAs(cu);
+    }
+  }
 }
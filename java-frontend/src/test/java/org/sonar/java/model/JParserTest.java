@@ -64,6 +64,8 @@ import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.EnumConstantTree;
 import org.sonar.plugins.java.api.tree.ForStatementTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TryStatementTree;
 import org.sonar.plugins.java.api.tree.VariableTree;
@@ -614,6 +616,36 @@ class JParserTest {
     test("class C { Object m() { return " + expression + " ; } }");
   }
 
+  @Test
+  void conversions_keep_every_token_and_comment_of_the_source() {
+    String source = "class C {\n  // comment\n  int f(int a) { return a + 1; }\n}\n";
+    List<String> expected = List.of("class", "C", "{", "int", "f", "(", "int", "a", ")", "{", "return", "a", "+", "1", ";", "}", "}", "");
+    // the formatter options are shared by the conversions, converting twice gives the same tokens
+    for (int i = 0; i < 2; i++) {
+      List<SyntaxToken> tokens = tokens(test(source));
+      assertThat(tokens).extracting(SyntaxToken::text).containsExactlyElementsOf(expected);
+      assertThat(tokens.get(3).trivias()).extracting(SyntaxTrivia::comment).containsExactly("// comment");
+    }
+  }
+
+  private static List<SyntaxToken> tokens(Tree tree) {
+    List<SyntaxToken> tokens = new ArrayList<>();
+    Deque<Tree> trees = new LinkedList<>();
+    trees.push(tree);
+    while (!trees.isEmpty()) {
+      Tree current = trees.pop();
+      if (current instanceof SyntaxToken token) {
+        tokens.add(token);
+      } else {
+        List<Tree> children = ((JavaTree) current).getChildren();
+        for (int i = children.size() - 1; i >= 0; i--) {
+          trees.push(children.get(i));
+        }
+      }
+    }
+    return tokens;
+  }
+
   private static CompilationUnitTree test(String source) {
     return JParserTestUtils.parse(source);
   }
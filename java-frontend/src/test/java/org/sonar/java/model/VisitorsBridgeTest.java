@@ -33,6 +33,7 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import org.slf4j.event.Level;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.testfixtures.log.LogAndArguments;
@@ -41,7 +42,13 @@ import org.sonar.java.AnalysisException;
 import org.sonar.java.CheckFailureException;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.TestUtils;
+import org.sonar.java.ast.visitors.FusableTreeVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.caching.CachePrefetcher;
+import org.sonar.java.caching.ContentHashCache;
+import org.sonar.java.caching.FileSummary;
+import org.sonar.java.caching.FileSummaryCache;
+import org.sonar.java.caching.JavaReadCacheImpl;
 import org.sonar.java.checks.EndOfAnalysisVisitor;
 import org.sonar.java.checks.VisitorThatCanBeSkipped;
 import org.sonar.java.exceptions.ApiMismatchException;
@@ -54,8 +61,13 @@ import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.api.JavaVersionAwareVisitor;
 import org.sonar.plugins.java.api.ModuleScannerContext;
 import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.internal.PrefetchedCacheEntries;
+import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -64,6 +76,7 @@ import org.sonar.plugins.java.api.tree.Tree.Kind;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -230,6 +243,32 @@ class VisitorsBridgeTest {
     verify(sonarComponents, never()).symbolizableFor(any());
   }
 
+  @Test
+  void file_summaries_are_written_for_parsed_files_when_enabled() {
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    JavaWriteCache writeCache = mock(JavaWriteCache.class);
+    CacheContext cacheContext = mock(CacheContext.class);
+    doReturn(true).when(cacheContext).isCacheEnabled();
+    doReturn(writeCache).when(cacheContext).getWriteCache();
+    VisitorsBridge bridge = new VisitorsBridge(Collections.emptySet(), Collections.emptyList(), sonarComponents);
+    bridge.setCacheContext(cacheContext);
+    InputFile inputFile = new GeneratedFile(Path.of("A.java"));
+    bridge.setCurrentFile(inputFile);
+    CompilationUnitTree tree = JParserTestUtils.parse("package org.foo; class A { }");
+
+    bridge.visitFile(tree, false);
+    verify(writeCache, never()).write(any(String.class), any(byte[].class));
+
+    doReturn(true).when(sonarComponents).isFileSummaryCacheEnabled();
+    bridge.visitFile(tree, false);
+    verify(writeCache).write(FileSummaryCache.cacheKey(inputFile), FileSummary.of(tree).toBytes());
+
+    // a summary which cannot be written does not fail the analysis of the file
+    doThrow(new IllegalStateException("boom")).when(writeCache).write(any(String.class), any(byte[].class));
+    bridge.visitFile(tree, false);
+    assertThat(logTester.logs(Level.WARN)).contains("Unable to write the file summary of A.java: boom");
+  }
+
   @Test
   void filter_scanner_by_java_version() {
     List<String> trace = new ArrayList<>();
@@ -433,6 +472,69 @@ class VisitorsBridgeTest {
       .isEqualTo("Optimized analysis for 1 of 1 files.");
   }
 
+  @Test
+  void fusable_tree_visitors_share_a_single_traversal() {
+    String code = "package org.foo; class A { int f = 1; void m() { int a = 2; class Skipped { int s = 3; } } }";
+    RecordingFusableVisitor ownTraversal = new RecordingFusableVisitor();
+    visitFusable(List.of(ownTraversal), false, code);
+
+    RecordingFusableVisitor sharedTraversal = new RecordingFusableVisitor();
+    RecordingFusableVisitor otherSharedTraversal = new RecordingFusableVisitor();
+    VisitorsBridge bridge = visitFusable(List.of(sharedTraversal, otherSharedTraversal), true, code);
+
+    // The literals of the skipped class are not visited
+    assertThat(ownTraversal.literals).containsExactly("1", "2");
+    assertThat(sharedTraversal.literals).containsExactly("1", "2");
+    assertThat(otherSharedTraversal.literals).containsExactly("1", "2");
+    // The package, scanned again from the class once the traversal passed it, is visited twice
+    assertThat(ownTraversal.packages).isEqualTo(2);
+    assertThat(sharedTraversal.packages).isEqualTo(2);
+
+    bridge.endOfAnalysis();
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Traversed the trees of 1 files 1 times (1.0 per file), they would have been traversed 2 times (2.0 per file) " +
+        "without sharing traversals between BaseTreeVisitor scanners.");
+  }
+
+  private static VisitorsBridge visitFusable(List<JavaFileScanner> visitors, boolean sharedTraversal, String code) {
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    doReturn(sharedTraversal).when(sonarComponents).isSharedTraversalEnabled();
+    VisitorsBridge bridge = new VisitorsBridge(visitors, Collections.emptyList(), sonarComponents);
+    bridge.setCurrentFile(new GeneratedFile(Path.of("A.java")));
+    bridge.visitFile(JParserTestUtils.parse(code), false);
+    return bridge;
+  }
+
+  private static class RecordingFusableVisitor extends FusableTreeVisitor {
+    private final List<String> literals = new ArrayList<>();
+    private int packages = 0;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scan(context.getTree());
+    }
+
+    @Override
+    public void visitPackage(PackageDeclarationTree tree) {
+      packages++;
+      super.visitPackage(tree);
+    }
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      if (tree.simpleName() != null && "Skipped".equals(tree.simpleName().name())) {
+        return;
+      }
+      scan(((CompilationUnitTree) tree.parent()).packageDeclaration());
+      super.visitClass(tree);
+    }
+
+    @Override
+    public void visitLiteral(LiteralTree tree) {
+      literals.add(tree.value());
+    }
+  }
+
   @Nested
   class ScanWithoutParsing {
 
@@ -570,6 +672,79 @@ class VisitorsBridgeTest {
       assertThat(warningLogs.get(0).getFormattedMsg()).isEqualTo(expectedLogMessage);
     }
 
+    @Test
+    void scanWithoutParsing_keeps_the_file_summary_for_the_next_analysis() throws ApiMismatchException {
+      SonarComponents sonarComponents = mock(SonarComponents.class);
+      doReturn(true).when(sonarComponents).fileCanBeSkipped(any(InputFile.class));
+      doReturn(true).when(sonarComponents).canSkipUnchangedFiles();
+      doReturn(true).when(sonarComponents).isFileSummaryCacheEnabled();
+      JavaReadCacheImpl readCache = mock(JavaReadCacheImpl.class);
+      JavaWriteCache writeCache = mock(JavaWriteCache.class);
+      CacheContext cacheContext = mock(CacheContext.class);
+      doReturn(true).when(cacheContext).isCacheEnabled();
+      doReturn(readCache).when(cacheContext).getReadCache();
+      doReturn(writeCache).when(cacheContext).getWriteCache();
+      InputFile inputFile = mock(InputFile.class);
+      doReturn("module:A.java").when(inputFile).key();
+      String cacheKey = FileSummaryCache.cacheKey(inputFile);
+      doReturn(true).when(readCache).contains(cacheKey);
+
+      VisitorsBridge visitorsBridge = new VisitorsBridge(List.of(new DefaultEndOfAnalysisCheck()), Collections.emptyList(), sonarComponents);
+      visitorsBridge.setCacheContext(cacheContext);
+      assertThat(visitorsBridge.scanWithoutParsing(inputFile)).isTrue();
+      verify(writeCache).copyFromPrevious(cacheKey);
+    }
+
+    @Test
+    void prefetchCacheEntries_loads_the_hashes_and_the_entries_read_by_the_scanners_that_cannot_be_skipped() throws ApiMismatchException {
+      SonarComponents sonarComponents = mock(SonarComponents.class);
+      doReturn(true).when(sonarComponents).canSkipUnchangedFiles();
+      doReturn(2).when(sonarComponents).getCachePrefetchThreads();
+      ContentHashCache contentHashCache = mock(ContentHashCache.class);
+      doReturn(contentHashCache).when(sonarComponents).contentHashCache();
+      JavaReadCacheImpl readCache = spy(new JavaReadCacheImpl(mock(ReadCache.class)));
+      CacheContext cacheContext = mock(CacheContext.class);
+      doReturn(readCache).when(cacheContext).getReadCache();
+
+      VisitorsBridge visitorsBridge = new VisitorsBridge(
+        List.of(new ScannerWithPrefetchedCacheEntries(), new VisitorThatCanBeSkipped()),
+        Collections.emptyList(),
+        sonarComponents
+      );
+      visitorsBridge.setCacheContext(cacheContext);
+
+      InputFile file1 = mock(InputFile.class);
+      doReturn("file1").when(file1).key();
+      InputFile file2 = mock(InputFile.class);
+      doReturn("file2").when(file2).key();
+      InputFile generatedFile = new GeneratedFile(Path.of("non-existing-generated-file.java"));
+      visitorsBridge.prefetchCacheEntries(List.of(file1, generatedFile, file2));
+
+      verify(contentHashCache).prefetch(eq(List.of(file1, file2)), any(CachePrefetcher.class));
+      verify(readCache).prefetch(List.of("prefetched:file1", "prefetched:file2"));
+
+      // The entries of a file are kept until it is analyzed
+      visitorsBridge.setCurrentFile(file1);
+      visitorsBridge.visitFile(null, false);
+      verify(readCache).releasePrefetched(List.of("prefetched:file1"));
+      verify(readCache, never()).releasePrefetched(List.of("prefetched:file2"));
+    }
+
+    @Test
+    void prefetchCacheEntries_does_nothing_when_unchanged_files_cannot_be_skipped() throws ApiMismatchException {
+      SonarComponents sonarComponents = mock(SonarComponents.class);
+      doReturn(false).when(sonarComponents).canSkipUnchangedFiles();
+      VisitorsBridge visitorsBridge = new VisitorsBridge(
+        List.of(new ScannerWithPrefetchedCacheEntries()),
+        Collections.emptyList(),
+        sonarComponents
+      );
+      visitorsBridge.prefetchCacheEntries(List.of(mock(InputFile.class)));
+      verify(sonarComponents, never()).contentHashCache();
+
+      new VisitorsBridge(null).prefetchCacheEntries(List.of(mock(InputFile.class)));
+    }
+
     private boolean scan_without_parsing(JavaFileScanner scanner) throws ApiMismatchException {
       SonarComponents sonarComponents = mock(SonarComponents.class);
       doReturn(true).when(sonarComponents).fileCanBeSkipped(any(InputFile.class));
@@ -761,6 +936,19 @@ class VisitorsBridgeTest {
     }
   }
 
+  private static class ScannerWithPrefetchedCacheEntries implements JavaFileScanner, PrefetchedCacheEntries {
+
+    @Override
+    public List<String> cacheKeysToPrefetch(InputFile inputFile) {
+      return List.of("prefetched:" + inputFile.key());
+    }
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      /* Do nothing */
+    }
+  }
+
   private static class IsvThatCannotScanWithoutParsing extends IssuableSubscriptionVisitor implements EndOfAnalysis {
 
     @Override
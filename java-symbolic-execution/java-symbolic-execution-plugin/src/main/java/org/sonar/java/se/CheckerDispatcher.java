@@ -21,6 +21,7 @@ package org.sonar.java.se;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -48,6 +49,10 @@ public class CheckerDispatcher implements CheckerContext {
   // used by walker to store chosen yield when adding a transition from MIT
   @Nullable
   MethodYield methodYield = null;
+  // time spent in each check when the walks are profiled, excluding the time of the transitions they trigger
+  @Nullable
+  private long[] checkNanos = null;
+  private long profiledNanos;
 
   public CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, List<SECheck> checks, JavaFileScannerContext scannerContext) {
     this.explodedGraphWalker = explodedGraphWalker;
@@ -58,9 +63,13 @@ public class CheckerDispatcher implements CheckerContext {
   public boolean executeCheckPreStatement(Tree syntaxNode) {
     this.syntaxNode = syntaxNode;
     ProgramState ps;
-    for (SECheck checker : checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      SECheck checker = checks.get(i);
       PerformanceMeasure.Duration checkerDuration = PerformanceMeasure.start(checker);
+      long startNanos = startProfiling();
+      long profiledBefore = profiledNanos;
       ps = checker.checkPreStatement(this, syntaxNode);
+      stopProfiling(i, startNanos, profiledBefore);
       checkerDuration.stop();
       if (ps == null) {
         return false;
@@ -109,8 +118,11 @@ public class CheckerDispatcher implements CheckerContext {
 
   private void executePost() {
     this.transition = false;
+    long startNanos = startProfiling();
+    long profiledBefore = profiledNanos;
     if (currentCheckerIndex < checks.size()) {
       explodedGraphWalker.programState = checks.get(currentCheckerIndex).checkPostStatement(this, syntaxNode);
+      stopProfiling(currentCheckerIndex, startNanos, profiledBefore);
     } else {
       Block block = explodedGraphWalker.programPosition.block;
       if (explodedGraphWalker.programPosition.i < block.elements().size()) {
@@ -119,6 +131,8 @@ public class CheckerDispatcher implements CheckerContext {
       explodedGraphWalker.enqueue(
         explodedGraphWalker.programPosition.next(),
         explodedGraphWalker.programState, explodedGraphWalker.node.exitPath, methodYield);
+      // the time spent by the walker is not attributed to the check which triggered the transition
+      stopProfiling(-1, startNanos, profiledBefore);
       return;
     }
     if (!transition) {
@@ -138,29 +152,76 @@ public class CheckerDispatcher implements CheckerContext {
   }
 
   public void executeCheckEndOfExecution() {
-    for (SECheck checker : checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      SECheck checker = checks.get(i);
       PerformanceMeasure.Duration checkerDuration = PerformanceMeasure.start(checker);
+      long startNanos = startProfiling();
+      long profiledBefore = profiledNanos;
       checker.checkEndOfExecution(this);
+      stopProfiling(i, startNanos, profiledBefore);
       checkerDuration.stop();
     }
   }
 
   public void executeCheckEndOfExecutionPath(ConstraintManager constraintManager) {
-    for (SECheck checker : checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      SECheck checker = checks.get(i);
       PerformanceMeasure.Duration checkerDuration = PerformanceMeasure.start(checker);
+      long startNanos = startProfiling();
+      long profiledBefore = profiledNanos;
       checker.checkEndOfExecutionPath(this, constraintManager);
+      stopProfiling(i, startNanos, profiledBefore);
       checkerDuration.stop();
     }
   }
 
   public void init(MethodTree methodTree, ControlFlowGraph cfg) {
-    for (SECheck checker : checks) {
+    for (int i = 0; i < checks.size(); i++) {
+      SECheck checker = checks.get(i);
       PerformanceMeasure.Duration checkerDuration = PerformanceMeasure.start(checker);
+      long startNanos = startProfiling();
+      long profiledBefore = profiledNanos;
       checker.init(methodTree, cfg);
+      stopProfiling(i, startNanos, profiledBefore);
       checkerDuration.stop();
     }
   }
 
+  /**
+   * Measures the time spent in each check from now on, until the end of the walk.
+   */
+  void profileChecks() {
+    checkNanos = new long[checks.size()];
+    profiledNanos = 0L;
+  }
+
+  /**
+   * @return the time spent in each check since {@link #profileChecks()}, by simple name of check class
+   */
+  Map<String, Long> checkNanos() {
+    return checkNanos == null ? Collections.emptyMap() : ExecutionProfile.byCheck(checks, checkNanos);
+  }
+
+  private long startProfiling() {
+    return checkNanos == null ? 0L : System.nanoTime();
+  }
+
+  /**
+   * Attributes to the check its own time, without the time of the nested checks and transitions: the time attributed while the check was
+   * running is subtracted from its elapsed time.
+   */
+  private void stopProfiling(int checkIndex, long startNanos, long profiledBefore) {
+    if (checkNanos == null) {
+      return;
+    }
+    long elapsed = System.nanoTime() - startNanos;
+    long own = elapsed - (profiledNanos - profiledBefore);
+    if (checkIndex >= 0) {
+      checkNanos[checkIndex] += own;
+    }
+    profiledNanos += own;
+  }
+
   @Override
   public ConstraintManager getConstraintManager() {
     return explodedGraphWalker.constraintManager;
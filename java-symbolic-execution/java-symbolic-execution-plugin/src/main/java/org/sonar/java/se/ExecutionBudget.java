@@ -0,0 +1,265 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Configuration;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Wall-clock and allocated memory budgets of the symbolic execution, per method and per file, on top of the limits of the
+ * {@link ExplodedGraphWalker} on the number of steps and states.
+ * <p>
+ * The budget of a file is shared by its methods: every walk is given at most its method budget, and at most an equal share of what
+ * remains of the file budget between the methods not walked yet, so that the budget left unused by a method goes to the following ones.
+ * The memory allocated by a walk is measured with the {@link com.sun.management.ThreadMXBean}, when the JVM supports it.
+ * <p>
+ * Truncated walks, whatever the limit they reached, are recorded and written as a JSON summary in the working directory at the end of
+ * the analysis. A budget is used by the thread walking the methods, it is not thread-safe.
+ */
+public class ExecutionBudget {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutionBudget.class);
+
+  public static final String METHOD_TIME_BUDGET_KEY = "sonar.java.experimental.se.methodTimeBudgetMs";
+  public static final String FILE_TIME_BUDGET_KEY = "sonar.java.experimental.se.fileTimeBudgetMs";
+  public static final String METHOD_MEMORY_BUDGET_KEY = "sonar.java.experimental.se.methodMemoryBudgetMB";
+  public static final String FILE_MEMORY_BUDGET_KEY = "sonar.java.experimental.se.fileMemoryBudgetMB";
+  public static final String MAX_STEPS_KEY = "sonar.java.experimental.se.maxSteps";
+
+  static final String SUMMARY_FILE_NAME = "symbolic-execution-truncations.json";
+  static final long UNLIMITED = Long.MAX_VALUE;
+  private static final long BYTES_PER_MB = 1024L * 1024L;
+
+  public enum Reason {
+    METHOD_TIME,
+    FILE_TIME,
+    METHOD_MEMORY,
+    FILE_MEMORY,
+    STEPS,
+    STARTING_STATES,
+    EXPLODED_GRAPH_TOO_BIG
+  }
+
+  public record Truncation(String file, String method, int line, Reason reason, int steps, long elapsedMillis, long allocatedBytes,
+    String message) {
+  }
+
+  private final long methodNanos;
+  private final long fileNanos;
+  private final long methodBytes;
+  private final long fileBytes;
+  private final int maxSteps;
+  private final LongSupplier nanoTime;
+  private final LongSupplier threadAllocatedBytes;
+
+  private final List<Truncation> truncations = new ArrayList<>();
+  private int walkedMethods = 0;
+  private String currentFile = "";
+  private long fileStartNanos;
+  private long fileStartBytes;
+  private int remainingMethods;
+
+  /**
+   * @param methodMillis wall-clock budget of a method, {@link #UNLIMITED} when there is none, likewise for the other budgets
+   * @param maxSteps maximum number of steps of a walk, 0 to keep the default limit of the walker
+   */
+  public ExecutionBudget(long methodMillis, long fileMillis, long methodBytes, long fileBytes, int maxSteps) {
+    this(methodMillis, fileMillis, methodBytes, fileBytes, maxSteps, System::nanoTime, currentThreadAllocatedBytes());
+  }
+
+  @VisibleForTesting
+  ExecutionBudget(long methodMillis, long fileMillis, long methodBytes, long fileBytes, int maxSteps, LongSupplier nanoTime,
+    LongSupplier allocatedBytes) {
+    this.methodNanos = toNanos(methodMillis);
+    this.fileNanos = toNanos(fileMillis);
+    this.methodBytes = methodBytes;
+    this.fileBytes = fileBytes;
+    this.maxSteps = maxSteps;
+    this.nanoTime = nanoTime;
+    this.threadAllocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * @return the budget configured for the analysis, or null when none of its properties is set
+   */
+  @CheckForNull
+  public static ExecutionBudget fromConfiguration(Configuration configuration) {
+    if (!configuration.hasKey(METHOD_TIME_BUDGET_KEY) && !configuration.hasKey(FILE_TIME_BUDGET_KEY)
+      && !configuration.hasKey(METHOD_MEMORY_BUDGET_KEY) && !configuration.hasKey(FILE_MEMORY_BUDGET_KEY)
+      && !configuration.hasKey(MAX_STEPS_KEY)) {
+      return null;
+    }
+    return new ExecutionBudget(
+      positiveOrUnlimited(configuration, METHOD_TIME_BUDGET_KEY, 1L),
+      positiveOrUnlimited(configuration, FILE_TIME_BUDGET_KEY, 1L),
+      positiveOrUnlimited(configuration, METHOD_MEMORY_BUDGET_KEY, BYTES_PER_MB),
+      positiveOrUnlimited(configuration, FILE_MEMORY_BUDGET_KEY, BYTES_PER_MB),
+      configuration.getInt(MAX_STEPS_KEY).filter(steps -> steps > 0).orElse(0));
+  }
+
+  private static long positiveOrUnlimited(Configuration configuration, String key, long unit) {
+    return configuration.getLong(key).filter(value -> value > 0).map(value -> value * unit).orElse(UNLIMITED);
+  }
+
+  private static long toNanos(long millis) {
+    return millis == UNLIMITED ? UNLIMITED : TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  private static LongSupplier currentThreadAllocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+      && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+      return threadMXBean::getCurrentThreadAllocatedBytes;
+    }
+    LOG.debug("[SE] Allocated memory of threads can not be measured, memory budgets of symbolic execution are ignored.");
+    return () -> 0L;
+  }
+
+  public void startFile(String file, int methods) {
+    currentFile = file;
+    fileStartNanos = nanoTime.getAsLong();
+    fileStartBytes = threadAllocatedBytes.getAsLong();
+    remainingMethods = methods;
+  }
+
+  public Allowance startMethod() {
+    long startNanos = nanoTime.getAsLong();
+    long startBytes = threadAllocatedBytes.getAsLong();
+    int sharingMethods = Math.max(1, remainingMethods);
+    remainingMethods = Math.max(0, remainingMethods - 1);
+    walkedMethods++;
+
+    long timeShare = share(fileNanos, startNanos - fileStartNanos, sharingMethods);
+    long memoryShare = share(fileBytes, startBytes - fileStartBytes, sharingMethods);
+    return new Allowance(
+      startNanos, Math.min(methodNanos, timeShare), timeShare < methodNanos ? Reason.FILE_TIME : Reason.METHOD_TIME,
+      startBytes, Math.min(methodBytes, memoryShare), memoryShare < methodBytes ? Reason.FILE_MEMORY : Reason.METHOD_MEMORY);
+  }
+
+  private static long share(long budget, long used, int sharingMethods) {
+    if (budget == UNLIMITED) {
+      return UNLIMITED;
+    }
+    return Math.max(0L, budget - used) / sharingMethods;
+  }
+
+  public void truncated(String method, int line, Reason reason, int steps, @Nullable Allowance allowance, String message) {
+    long elapsedMillis = allowance == null ? 0L : TimeUnit.NANOSECONDS.toMillis(allowance.elapsedNanos());
+    long allocated = allowance == null ? 0L : allowance.allocatedBytes();
+    truncations.add(new Truncation(currentFile, method, line, reason, steps, elapsedMillis, allocated, message));
+  }
+
+  @VisibleForTesting
+  List<Truncation> truncations() {
+    return Collections.unmodifiableList(truncations);
+  }
+
+  public void writeSummary(File workingDirectory) {
+    JsonObject summary = new JsonObject();
+    summary.addProperty("walkedMethods", walkedMethods);
+    summary.addProperty("truncatedMethods", truncations.size());
+    JsonArray jsonTruncations = new JsonArray(truncations.size());
+    for (Truncation truncation : truncations) {
+      JsonObject jsonTruncation = new JsonObject();
+      jsonTruncation.addProperty("file", truncation.file());
+      jsonTruncation.addProperty("method", truncation.method());
+      jsonTruncation.addProperty("line", truncation.line());
+      jsonTruncation.addProperty("reason", truncation.reason().name());
+      jsonTruncation.addProperty("steps", truncation.steps());
+      jsonTruncation.addProperty("elapsedMillis", truncation.elapsedMillis());
+      jsonTruncation.addProperty("allocatedBytes", truncation.allocatedBytes());
+      jsonTruncation.addProperty("message", truncation.message());
+      jsonTruncations.add(jsonTruncation);
+    }
+    summary.add("truncations", jsonTruncations);
+    Path summaryFile = workingDirectory.toPath().resolve(SUMMARY_FILE_NAME);
+    try {
+      Files.writeString(summaryFile, new GsonBuilder().setPrettyPrinting().create().toJson(summary), StandardCharsets.UTF_8);
+      LOG.debug("[SE] Symbolic execution truncated {} of {} walked methods, see {}", truncations.size(), walkedMethods, summaryFile);
+    } catch (IOException e) {
+      LOG.debug("[SE] Unable to write the summary of the truncated methods to {}: {}", summaryFile, e.getMessage());
+    }
+  }
+
+  /**
+   * Budget of a single walk.
+   */
+  public class Allowance {
+    private final long startNanos;
+    private final long nanos;
+    private final Reason timeReason;
+    private final long startBytes;
+    private final long bytes;
+    private final Reason memoryReason;
+
+    private Allowance(long startNanos, long nanos, Reason timeReason, long startBytes, long bytes, Reason memoryReason) {
+      this.startNanos = startNanos;
+      this.nanos = nanos;
+      this.timeReason = timeReason;
+      this.startBytes = startBytes;
+      this.bytes = bytes;
+      this.memoryReason = memoryReason;
+    }
+
+    /**
+     * @return the reason why the walk has to stop, or null if its budget is not exhausted
+     */
+    @CheckForNull
+    public Reason exhaustion() {
+      if (nanos != UNLIMITED && elapsedNanos() > nanos) {
+        return timeReason;
+      }
+      if (bytes != UNLIMITED && allocatedBytes() > bytes) {
+        return memoryReason;
+      }
+      return null;
+    }
+
+    public int maxSteps() {
+      return maxSteps;
+    }
+
+    long elapsedNanos() {
+      return nanoTime.getAsLong() - startNanos;
+    }
+
+    long allocatedBytes() {
+      return threadAllocatedBytes.getAsLong() - startBytes;
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Configuration;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Profile of the walks of the {@link ExplodedGraphWalker}, per method: steps, nodes, peak size of the worklist, starting states, time
+ * spent in the {@link FlowComputation}s and in each {@link org.sonar.java.se.checks.SECheck}, and the reason why the walk was aborted,
+ * if it was. The slowest walks are logged at the end of the analysis, like {@link org.sonar.java.ExecutionTimeReport} does for the
+ * files, and optionally written as a JSON dump in the working directory.
+ * A profile is used by the thread walking the methods, it is not thread-safe.
+ */
+public class ExecutionProfile {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutionProfile.class);
+
+  public static final String PROFILE_KEY = "sonar.java.experimental.se.profile";
+  public static final String PROFILE_DUMP_KEY = "sonar.java.experimental.se.profileDump";
+
+  static final String DUMP_FILE_NAME = "symbolic-execution-profile.json";
+  static final int MAX_REPORTED_METHODS = 10;
+  static final int MAX_DUMPED_METHODS = 1000;
+
+  public record MethodProfile(String file, String method, int line, long elapsedNanos, int steps, int nodes, int peakWorklistSize,
+    int startingStates, long flowNanos, Map<String, Long> checkNanos, @Nullable ExecutionBudget.Reason abortReason) {
+  }
+
+  private final boolean dump;
+  private final int maxKeptMethods;
+  private final LongSupplier nanoTime;
+
+  /**
+   * Slowest walks, sorted by decreasing elapsed time.
+   */
+  private final List<MethodProfile> slowest = new ArrayList<>();
+  private int profiledMethods = 0;
+  private int abortedMethods = 0;
+  private long totalNanos = 0L;
+  private String currentFile = "";
+
+  /**
+   * @param dump whether the slowest walks are written in the working directory at the end of the analysis
+   */
+  public ExecutionProfile(boolean dump) {
+    this(dump, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  ExecutionProfile(boolean dump, LongSupplier nanoTime) {
+    this.dump = dump;
+    this.maxKeptMethods = dump ? MAX_DUMPED_METHODS : MAX_REPORTED_METHODS;
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * @return the profile configured for the analysis, or null when profiling is not enabled
+   */
+  @CheckForNull
+  public static ExecutionProfile fromConfiguration(Configuration configuration) {
+    boolean dump = configuration.getBoolean(PROFILE_DUMP_KEY).orElse(false);
+    if (!dump && !configuration.getBoolean(PROFILE_KEY).orElse(false)) {
+      return null;
+    }
+    return new ExecutionProfile(dump);
+  }
+
+  void startFile(String file) {
+    currentFile = file;
+  }
+
+  long start() {
+    return nanoTime.getAsLong();
+  }
+
+  void walked(String method, int line, long startNanos, ExplodedGraphWalker walker, long flowNanos, @Nullable ExecutionBudget.Reason abortReason) {
+    long elapsedNanos = nanoTime.getAsLong() - startNanos;
+    profiledMethods++;
+    totalNanos += elapsedNanos;
+    if (abortReason != null) {
+      abortedMethods++;
+    }
+    int size = slowest.size();
+    if (size == maxKeptMethods && slowest.get(size - 1).elapsedNanos() >= elapsedNanos) {
+      return;
+    }
+    MethodProfile profile = new MethodProfile(currentFile, method, line, elapsedNanos, walker.steps, walker.exploredNodes(),
+      walker.peakWorklistSize, walker.startingStates, flowNanos, walker.checkerDispatcher.checkNanos(), abortReason);
+    int index = 0;
+    while (index < size && slowest.get(index).elapsedNanos() >= elapsedNanos) {
+      index++;
+    }
+    slowest.add(index, profile);
+    if (slowest.size() > maxKeptMethods) {
+      slowest.remove(slowest.size() - 1);
+    }
+  }
+
+  @VisibleForTesting
+  List<MethodProfile> slowest() {
+    return Collections.unmodifiableList(slowest);
+  }
+
+  public void report(@Nullable File workingDirectory) {
+    if (profiledMethods == 0) {
+      return;
+    }
+    StringBuilder report = new StringBuilder();
+    report.append("Slowest symbolic executions (").append(profiledMethods).append(" methods in ").append(toMillis(totalNanos)).append("ms, ")
+      .append(abortedMethods).append(" aborted):");
+    slowest.stream().limit(MAX_REPORTED_METHODS).forEach(profile -> report.append(System.lineSeparator()).append("    ").append(format(profile)));
+    LOG.info(report.toString());
+    if (dump && workingDirectory != null) {
+      writeDump(workingDirectory);
+    }
+  }
+
+  private static String format(MethodProfile profile) {
+    StringBuilder line = new StringBuilder();
+    line.append(profile.file()).append(" ").append(profile.method()).append(":").append(profile.line())
+      .append(" (").append(toMillis(profile.elapsedNanos())).append("ms, ")
+      .append(profile.steps()).append(" steps, ")
+      .append(profile.nodes()).append(" nodes, ")
+      .append("worklist ").append(profile.peakWorklistSize()).append(", ")
+      .append(profile.startingStates()).append(" starting states, ")
+      .append("flows ").append(toMillis(profile.flowNanos())).append("ms");
+    profile.checkNanos().entrySet().stream()
+      .max(Map.Entry.comparingByValue())
+      .ifPresent(check -> line.append(", slowest check ").append(check.getKey()).append(" ").append(toMillis(check.getValue())).append("ms"));
+    if (profile.abortReason() != null) {
+      line.append(", aborted: ").append(profile.abortReason());
+    }
+    return line.append(")").toString();
+  }
+
+  private void writeDump(File workingDirectory) {
+    JsonObject json = new JsonObject();
+    json.addProperty("profiledMethods", profiledMethods);
+    json.addProperty("abortedMethods", abortedMethods);
+    json.addProperty("totalMillis", toMillis(totalNanos));
+    JsonArray methods = new JsonArray(slowest.size());
+    for (MethodProfile profile : slowest) {
+      JsonObject method = new JsonObject();
+      method.addProperty("file", profile.file());
+      method.addProperty("method", profile.method());
+      method.addProperty("line", profile.line());
+      method.addProperty("elapsedMicros", toMicros(profile.elapsedNanos()));
+      method.addProperty("steps", profile.steps());
+      method.addProperty("nodes", profile.nodes());
+      method.addProperty("peakWorklistSize", profile.peakWorklistSize());
+      method.addProperty("startingStates", profile.startingStates());
+      method.addProperty("flowMicros", toMicros(profile.flowNanos()));
+      JsonObject checks = new JsonObject();
+      profile.checkNanos().forEach((check, nanos) -> checks.addProperty(check, toMicros(nanos)));
+      method.add("checkMicros", checks);
+      if (profile.abortReason() != null) {
+        method.addProperty("abortReason", profile.abortReason().name());
+      }
+      methods.add(method);
+    }
+    json.add("methods", methods);
+    Path dumpFile = workingDirectory.toPath().resolve(DUMP_FILE_NAME);
+    try {
+      Files.writeString(dumpFile, new GsonBuilder().setPrettyPrinting().create().toJson(json), StandardCharsets.UTF_8);
+      LOG.debug("[SE] Profile of the {} slowest symbolic executions written to {}", slowest.size(), dumpFile);
+    } catch (IOException e) {
+      LOG.debug("[SE] Unable to write the profile of the symbolic executions to {}: {}", dumpFile, e.getMessage());
+    }
+  }
+
+  /**
+   * @return the time spent in each check, by simple name of check class, in decreasing order
+   */
+  static Map<String, Long> byCheck(List<?> checks, long[] nanos) {
+    List<Integer> indexes = new ArrayList<>(checks.size());
+    for (int i = 0; i < checks.size(); i++) {
+      if (nanos[i] > 0L) {
+        indexes.add(i);
+      }
+    }
+    indexes.sort(Comparator.comparingLong((Integer i) -> nanos[i]).reversed());
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (int i : indexes) {
+      result.merge(checks.get(i).getClass().getSimpleName(), nanos[i], Long::sum);
+    }
+    return result;
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static long toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
@@ -19,96 +19,282 @@
  */
 package org.sonar.java.se;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
-import org.sonar.java.Preconditions;
-
-import org.sonar.java.se.xproc.MethodYield;
-import org.sonar.plugins.java.api.tree.Tree;
-
-import javax.annotation.Nullable;
-
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.java.Preconditions;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.se.xproc.MethodYield;
+import org.sonar.plugins.java.api.tree.Tree;
 
+/**
+ * Nodes are numbered in creation order and indexed by program point. The parents of a node are kept in an array of edges, which is
+ * indexed by parent only once a node has many parents, and the yields of an edge are only allocated for the edges of method invocations
+ * resolved with method behaviors.
+ */
 public class ExplodedGraph {
 
-  private final Map<Node, Node> nodes = new HashMap<>();
-  private final Map<ProgramPoint, List<Node>> nodesByProgramPoint = new HashMap<>();
+  private final Map<ProgramPoint, NodesAtProgramPoint> nodes = new HashMap<>();
+  private final ProgramStateInterner interner = new ProgramStateInterner();
+  private int nodeCount = 0;
+  @Nullable
+  private Map<Node, Node> nodesView;
+  final FlowBudget flowBudget;
+
+  public ExplodedGraph() {
+    this(FlowBudget.unlimited());
+  }
+
+  public ExplodedGraph(FlowBudget flowBudget) {
+    this.flowBudget = flowBudget;
+  }
+
+  private static final class NodesAtProgramPoint {
+    private final Map<ProgramState, Node> byProgramState = new HashMap<>();
+    private final List<Node> siblings = new ArrayList<>();
+  }
 
   /**
    * Returns node associated with given (programPoint,programState) pair. If no node for this pair exists, it is created.
+   * The program state of a new node shares its structure with the equal parts of the states already in the graph.
    */
   public Node node(ProgramPoint programPoint, @Nullable ProgramState programState) {
-    Node result = new Node(programPoint, programState, this);
-    Node cached = nodes.get(result);
+    NodesAtProgramPoint nodesAtProgramPoint = nodes.computeIfAbsent(programPoint, k -> new NodesAtProgramPoint());
+    Node cached = nodesAtProgramPoint.byProgramState.get(programState);
     if (cached != null) {
       cached.isNew = false;
       return cached;
     }
+    ProgramState state = programState == null ? null : interner.intern(programState);
+    Node result = new Node(nodeCount, programPoint, state, this);
+    nodeCount++;
     result.isNew = true;
-    nodes.put(result, result);
-    nodesByProgramPoint.computeIfAbsent(programPoint, k -> new LinkedList<>()).add(result);
+    nodesAtProgramPoint.byProgramState.put(state, result);
+    nodesAtProgramPoint.siblings.add(result);
     return result;
   }
 
+  /**
+   * @return the nodes already created at the given program point
+   */
+  Collection<Node> nodesAt(ProgramPoint programPoint) {
+    NodesAtProgramPoint nodesAtProgramPoint = nodes.get(programPoint);
+    return nodesAtProgramPoint == null ? Collections.emptyList() : Collections.unmodifiableCollection(nodesAtProgramPoint.byProgramState.values());
+  }
+
+  /**
+   * @return an unmodifiable view of the nodes of the graph, each one mapped to itself
+   */
   public Map<Node, Node> nodes() {
-    return nodes;
+    if (nodesView == null) {
+      nodesView = new NodesView();
+    }
+    return nodesView;
+  }
+
+  private final class NodesView extends AbstractMap<Node, Node> {
+
+    private final Set<Map.Entry<Node, Node>> entries = new AbstractSet<>() {
+      @Override
+      public Iterator<Map.Entry<Node, Node>> iterator() {
+        return nodes.values().stream()
+          .flatMap(nodesAtProgramPoint -> nodesAtProgramPoint.byProgramState.values().stream())
+          .<Map.Entry<Node, Node>>map(node -> new SimpleImmutableEntry<>(node, node))
+          .iterator();
+      }
+
+      @Override
+      public int size() {
+        return nodeCount;
+      }
+    };
+
+    @Override
+    public Set<Map.Entry<Node, Node>> entrySet() {
+      return entries;
+    }
+
+    @Override
+    public int size() {
+      return nodeCount;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    @CheckForNull
+    public Node get(Object key) {
+      if (!(key instanceof Node node)) {
+        return null;
+      }
+      NodesAtProgramPoint nodesAtProgramPoint = nodes.get(node.programPoint);
+      return nodesAtProgramPoint == null ? null : nodesAtProgramPoint.byProgramState.get(node.programState);
+    }
+  }
+
+  public int size() {
+    return nodeCount;
+  }
+
+  @VisibleForTesting
+  int sharedMaps() {
+    return interner.sharedMaps();
   }
 
   public static final class Node {
 
+    private static final Edge[] NO_EDGES = new Edge[0];
+    /**
+     * Above this number of parents, edges are also indexed by parent to keep {@link #addParent} constant time.
+     */
+    private static final int MAX_UNINDEXED_EDGES = 8;
+
     public final ProgramPoint programPoint;
     @Nullable
     public final ProgramState programState;
 
-    private final Map<Node, Edge> edges = new HashMap<>();
+    private final int id;
+    private Edge[] edges = NO_EDGES;
+    private int edgeCount = 0;
+    @Nullable
+    private Map<Node, Edge> edgesByParent;
+    @Nullable
+    private Set<Node> parentsView;
 
     private boolean isNew;
     boolean exitPath = false;
     private final int hashcode;
-    private final ExplodedGraph explodedGraph;
+    final ExplodedGraph explodedGraph;
 
-    private Node(ProgramPoint programPoint, @Nullable ProgramState programState, ExplodedGraph explodedGraph) {
-      Objects.requireNonNull(programPoint);
-      this.programPoint = programPoint;
+    private Node(int id, ProgramPoint programPoint, @Nullable ProgramState programState, ExplodedGraph explodedGraph) {
+      this.id = id;
+      this.programPoint = Objects.requireNonNull(programPoint);
       this.programState = programState;
       this.explodedGraph = explodedGraph;
       hashcode = programPoint.hashCode() * 31 + (programState == null ? 0 : programState.hashCode());
     }
 
+    /**
+     * @return the creation order of the node in its exploded graph
+     */
+    public int id() {
+      return id;
+    }
+
     public void addParent(@Nullable Node parent, @Nullable MethodYield methodYield) {
       if (parent == null) {
         return;
       }
-      Edge edge = edges.computeIfAbsent(parent, p -> new Edge(this, p));
+      Edge edge = edge(parent);
+      if (edge == null) {
+        edge = new Edge(this, parent);
+        addEdge(edge);
+      }
       if (methodYield != null) {
         Preconditions.checkState(parent.programPoint.syntaxTree().is(Tree.Kind.METHOD_INVOCATION), "Yield on edge where parent is not MIT");
-        edge.yields.add(methodYield);
+        edge.addYield(methodYield);
+      }
+    }
+
+    @CheckForNull
+    private Edge edge(Node parent) {
+      if (edgesByParent != null) {
+        return edgesByParent.get(parent);
+      }
+      for (int i = 0; i < edgeCount; i++) {
+        if (edges[i].parent.equals(parent)) {
+          return edges[i];
+        }
+      }
+      return null;
+    }
+
+    private void addEdge(Edge edge) {
+      if (edgeCount == edges.length) {
+        edges = Arrays.copyOf(edges, edgeCount == 0 ? 1 : (edgeCount * 2));
+      }
+      edges[edgeCount] = edge;
+      edgeCount++;
+      if (edgesByParent != null) {
+        edgesByParent.put(edge.parent, edge);
+      } else if (edgeCount > MAX_UNINDEXED_EDGES) {
+        edgesByParent = new HashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+          edgesByParent.put(edges[i].parent, edges[i]);
+        }
       }
     }
 
     public Collection<Node> siblings() {
-      Collection<Node> collection = explodedGraph.nodesByProgramPoint.getOrDefault(programPoint, Collections.emptyList());
-      collection.remove(this);
-      return collection;
+      List<Node> nodesAtProgramPoint = explodedGraph.nodes.get(programPoint).siblings;
+      nodesAtProgramPoint.remove(this);
+      return nodesAtProgramPoint;
     }
 
     @Nullable
     public Node parent() {
-      return parents().stream().findFirst().orElse(null);
+      return edgeCount == 0 ? null : edges[0].parent;
     }
 
     /**
-     * @return the ordered (by insertion) sets of parents
+     * @return the ordered (by insertion) sets of parents, as an unmodifiable view of the edges of the node
      */
     public Set<Node> parents() {
-      return edges.keySet();
+      if (parentsView == null) {
+        parentsView = new ParentsView();
+      }
+      return parentsView;
+    }
+
+    private final class ParentsView extends AbstractSet<Node> {
+
+      @Override
+      public Iterator<Node> iterator() {
+        return new Iterator<>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < edgeCount;
+          }
+
+          @Override
+          public Node next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Node parent = edges[next].parent;
+            next++;
+            return parent;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return edgeCount;
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof Node node && edge(node) != null;
+      }
     }
 
     @Override
@@ -130,8 +316,11 @@ public class ExplodedGraph {
       return "B" + programPoint.block.id() + "." + programPoint.i + ": " + programState;
     }
 
+    /**
+     * @return the edges to the parents, ordered by insertion
+     */
     public Collection<Edge> edges() {
-      return edges.values();
+      return Collections.unmodifiableList(Arrays.asList(edges).subList(0, edgeCount));
     }
 
     public boolean isNew() {
@@ -142,17 +331,16 @@ public class ExplodedGraph {
   public static final class Edge {
     final Node child;
     final Node parent;
-    final int hashcode;
 
     private Set<LearnedConstraint> lc;
     private Set<LearnedAssociation> la;
-    private final Set<MethodYield> yields = new LinkedHashSet<>();
+    @Nullable
+    private Set<MethodYield> yields;
 
     private Edge(Node child, Node parent) {
       Preconditions.checkState(!child.equals(parent));
       this.child = child;
       this.parent = parent;
-      hashcode = Objects.hash(child, parent);
     }
 
     public Node child() {
@@ -177,8 +365,15 @@ public class ExplodedGraph {
       return la;
     }
 
+    private void addYield(MethodYield methodYield) {
+      if (yields == null) {
+        yields = new LinkedHashSet<>();
+      }
+      yields.add(methodYield);
+    }
+
     public Set<MethodYield> yields() {
-      return yields;
+      return yields == null ? Collections.emptySet() : Collections.unmodifiableSet(yields);
     }
 
     @Override
@@ -196,7 +391,7 @@ public class ExplodedGraph {
 
     @Override
     public int hashCode() {
-      return hashcode;
+      return 31 * (31 + child.hashcode) + parent.hashcode;
     }
   }
 }
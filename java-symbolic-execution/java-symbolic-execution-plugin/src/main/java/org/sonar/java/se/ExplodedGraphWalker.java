@@ -23,11 +23,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -137,7 +135,7 @@ public class ExplodedGraphWalker {
   private ExplodedGraph explodedGraph;
 
   @VisibleForTesting
-  Deque<ExplodedGraph.Node> workList;
+  WorklistStrategy.Worklist workList;
   ExplodedGraph.Node node;
   ProgramPoint programPosition;
   ProgramState programState;
@@ -148,14 +146,23 @@ public class ExplodedGraphWalker {
 
   private final Sema semanticModel;
   private final BehaviorCache behaviorCache;
+  private final WorklistStrategy worklistStrategy;
+  private JoinPolicy joinPolicy = JoinPolicy.NONE;
+  @VisibleForTesting
+  int joinedStates = 0;
   @VisibleForTesting
   int steps;
+  int startingStates;
+  int peakWorklistSize;
 
   ConstraintManager constraintManager;
   private boolean cleanup = true;
   @Nullable
   MethodBehavior methodBehavior;
   private Set<ExplodedGraph.Node> endOfExecutionPath;
+  @Nullable
+  ExecutionBudget.Allowance allowance;
+  private FlowBudget flowBudget = FlowBudget.unlimited();
 
   public static class ExplodedGraphTooBigException extends RuntimeException {
 
@@ -184,6 +191,19 @@ public class ExplodedGraphWalker {
     }
   }
 
+  public static class BudgetExhaustedException extends RuntimeException {
+    private final ExecutionBudget.Reason reason;
+
+    public BudgetExhaustedException(String s, ExecutionBudget.Reason reason) {
+      super(s);
+      this.reason = reason;
+    }
+
+    public ExecutionBudget.Reason reason() {
+      return reason;
+    }
+  }
+
   @VisibleForTesting
   public ExplodedGraphWalker(BehaviorCache behaviorCache, JavaFileScannerContext context) {
     List<SECheck> checks = Arrays.asList(new NullDereferenceCheck(), new DivisionByZeroCheck(),
@@ -192,6 +212,7 @@ public class ExplodedGraphWalker {
     this.checkerDispatcher = new CheckerDispatcher(this, checks, context);
     this.behaviorCache = behaviorCache;
     this.semanticModel = (Sema) context.getSemanticModel();
+    this.worklistStrategy = WorklistStrategy.DEPTH_FIRST;
   }
 
   @VisibleForTesting
@@ -202,16 +223,49 @@ public class ExplodedGraphWalker {
 
   @VisibleForTesting
   protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, JavaFileScannerContext context) {
+    this(seChecks, behaviorCache, context, WorklistStrategy.DEPTH_FIRST);
+  }
+
+  protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, JavaFileScannerContext context, WorklistStrategy worklistStrategy) {
     this.alwaysTrueOrFalseExpressionCollector = new AlwaysTrueOrFalseExpressionCollector();
     this.checkerDispatcher = new CheckerDispatcher(this, seChecks, context);
     this.behaviorCache = behaviorCache;
     this.semanticModel = (Sema) context.getSemanticModel();
+    this.worklistStrategy = worklistStrategy;
+  }
+
+  /**
+   * Shares the flow budget of the file with the following walks.
+   */
+  public void setFlowBudget(FlowBudget flowBudget) {
+    this.flowBudget = flowBudget;
+  }
+
+  /**
+   * Decides whether the following walks skip the new states subsumed by explored ones at join points.
+   */
+  public void setJoinPolicy(JoinPolicy joinPolicy) {
+    this.joinPolicy = joinPolicy;
   }
 
   public MethodBehavior visitMethod(MethodTree tree) {
     return visitMethod(tree, null);
   }
 
+  /**
+   * Measures the time spent in each check by the following walk.
+   */
+  void profileChecks() {
+    checkerDispatcher.profileChecks();
+  }
+
+  /**
+   * Bounds the time and the memory spent by the following walk, on top of its limit of steps.
+   */
+  public void setAllowance(@Nullable ExecutionBudget.Allowance allowance) {
+    this.allowance = allowance;
+  }
+
   public MethodBehavior visitMethod(MethodTree tree, @Nullable MethodBehavior methodBehavior) {
     Preconditions.checkArgument(methodBehavior == null || !methodBehavior.isComplete() || !methodBehavior.isVisited(), "Trying to execute an already visited methodBehavior");
     this.methodBehavior = methodBehavior;
@@ -237,20 +291,23 @@ public class ExplodedGraphWalker {
     liveVariables = SELiveVariables.analyze(cfg);
     liveVariablesDuration.stop();
 
-    explodedGraph = new ExplodedGraph();
+    explodedGraph = new ExplodedGraph(flowBudget);
     methodTree = tree;
     constraintManager = new ConstraintManager();
-    workList = new LinkedList<>();
+    workList = worklistStrategy.newWorklist();
     // Linked hashSet is required to guarantee order of yields to be generated
     endOfExecutionPath = new LinkedHashSet<>();
     programState = ProgramState.EMPTY_STATE;
     steps = 0;
+    startingStates = 0;
+    peakWorklistSize = 0;
     enqueueStartingStates(tree, cfg);
     while (!workList.isEmpty()) {
       steps++;
       throwExceptionIfMaxStepsHasBeenReached(tree);
-      // LIFO:
-      setNode(workList.removeFirst());
+      setNode(workList.remove());
+      // checked once a node is set, as interrupting the walk restores the current node
+      throwExceptionIfBudgetIsExhausted(tree);
       Block block = programPosition.block;
       if (block.successors().isEmpty()) {
         endOfExecutionPath.add(node);
@@ -303,6 +360,7 @@ public class ExplodedGraphWalker {
 
   private void enqueueStartingStates(MethodTree tree, ControlFlowGraph cfg) {
     for (ProgramState startingState : startingStates(tree, programState)) {
+      startingStates++;
       enqueue(new ProgramPoint(cfg.entryBlock()), startingState);
     }
   }
@@ -333,6 +391,21 @@ public class ExplodedGraphWalker {
     }
   }
 
+  private void throwExceptionIfBudgetIsExhausted(MethodTree tree) {
+    // Measuring time and allocated memory is not free: the budget is checked on the first step, then every 256 steps
+    if (allowance == null || (steps & 0xFF) != 1) {
+      return;
+    }
+    ExecutionBudget.Reason exhaustion = allowance.exhaustion();
+    if (exhaustion != null) {
+      String message = String.format("exhausted %s budget after %d steps for method %s#%d in class %s",
+        exhaustion, steps, tree.simpleName().name(), SELineUtils.startLine(tree.simpleName()), tree.symbol().owner().name());
+      BudgetExhaustedException cause = new BudgetExhaustedException(message, exhaustion);
+      interrupted(cause);
+      throw cause;
+    }
+  }
+
   private void interrupted(Exception cause) {
     handleEndOfExecutionPath(true);
     checkerDispatcher.interruptedExecution(cause);
@@ -1272,6 +1345,12 @@ public class ExplodedGraphWalker {
     }
     checkExplodedGraphTooBig(programState);
     ProgramState ps = programState.visitedPoint(programPoint, nbOfExecution + 1);
+    if (joinPolicy != JoinPolicy.NONE && JoinPolicy.isJoinPoint(programPoint)) {
+      ps = join(programPoint, ps, nbOfExecution, exitPath, methodYield);
+      if (ps == null) {
+        return;
+      }
+    }
     ExplodedGraph.Node cachedNode = explodedGraph.node(programPoint, ps);
     if (!cachedNode.isNew() && exitPath == cachedNode.exitPath) {
       // has been enqueued earlier
@@ -1280,7 +1359,34 @@ public class ExplodedGraphWalker {
     }
     cachedNode.exitPath = exitPath;
     cachedNode.addParent(node, methodYield);
-    workList.addFirst(cachedNode);
+    workList.add(cachedNode);
+    peakWorklistSize = Math.max(peakWorklistSize, workList.size());
+  }
+
+  /**
+   * @return the state to explore at the join point, or null when an explored state subsumes it: the current node then becomes one of the
+   * parents of the explored node, so that flows can still go through it.
+   */
+  @CheckForNull
+  private ProgramState join(ProgramPoint programPoint, ProgramState programState, int nbOfExecution, boolean exitPath, @Nullable MethodYield methodYield) {
+    boolean widen = joinPolicy.widens(programPoint, nbOfExecution);
+    ProgramState result = programState;
+    for (ExplodedGraph.Node explored : explodedGraph.nodesAt(programPoint)) {
+      ProgramState exploredState = explored.programState;
+      if (explored == node || explored.exitPath != exitPath || exploredState == null || exploredState.equals(result)) {
+        continue;
+      }
+      if (exploredState.subsumes(result)) {
+        joinedStates++;
+        explored.addParent(node, methodYield);
+        return null;
+      }
+      if (widen) {
+        ProgramState widened = result.widen(exploredState);
+        result = widened == null ? result : widened;
+      }
+    }
+    return result;
   }
 
   private static boolean isRestartingForEachLoop(ProgramPoint programPoint) {
@@ -1296,8 +1402,26 @@ public class ExplodedGraphWalker {
     }
   }
 
+  /**
+   * @return the number of nodes of the exploded graph of the last walk
+   */
+  int exploredNodes() {
+    return explodedGraph == null ? 0 : explodedGraph.size();
+  }
+
+  /**
+   * @return the number of program state maps shared with equal maps in the exploded graph of the last walk
+   */
+  @VisibleForTesting
+  int sharedProgramStateMaps() {
+    return explodedGraph == null ? 0 : explodedGraph.sharedMaps();
+  }
+
   @VisibleForTesting
   protected int maxSteps() {
+    if (allowance != null && allowance.maxSteps() > 0) {
+      return allowance.maxSteps();
+    }
     return MAX_STEPS;
   }
 
@@ -1314,8 +1438,20 @@ public class ExplodedGraphWalker {
 
     @VisibleForTesting
     final List<SECheck> seChecks = new ArrayList<>();
+    private final WorklistStrategy worklistStrategy;
+    private final JoinPolicy joinPolicy;
 
     public ExplodedGraphWalkerFactory(List<SECheck> activeSEChecks) {
+      this(activeSEChecks, WorklistStrategy.DEPTH_FIRST);
+    }
+
+    public ExplodedGraphWalkerFactory(List<SECheck> activeSEChecks, WorklistStrategy worklistStrategy) {
+      this(activeSEChecks, worklistStrategy, JoinPolicy.NONE);
+    }
+
+    public ExplodedGraphWalkerFactory(List<SECheck> activeSEChecks, WorklistStrategy worklistStrategy, JoinPolicy joinPolicy) {
+      this.worklistStrategy = worklistStrategy;
+      this.joinPolicy = joinPolicy;
       List<SECheck> checks = new ArrayList<>(activeSEChecks);
 
       // This order of the mandatory SE checks is required by the ExplodedGraphWalker
@@ -1333,7 +1469,9 @@ public class ExplodedGraphWalker {
     }
 
     public ExplodedGraphWalker createWalker(BehaviorCache behaviorCache, JavaFileScannerContext context) {
-      return new ExplodedGraphWalker(seChecks, behaviorCache, context);
+      ExplodedGraphWalker walker = new ExplodedGraphWalker(seChecks, behaviorCache, context, worklistStrategy);
+      walker.setJoinPolicy(joinPolicy);
+      return walker;
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Configuration;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Wall-clock budget of the {@link FlowComputation}s of a file, and statistics about them. Once the budget of a file is spent, the issues
+ * of the file are reported without secondary flows. The statistics of a file are logged in debug at the end of the file, and the flows
+ * skipped in the whole analysis are reported in a warning at its end. A budget is used by the thread walking the methods, it is not
+ * thread-safe.
+ */
+public class FlowBudget {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlowBudget.class);
+
+  public static final String FILE_FLOW_TIME_BUDGET_KEY = "sonar.java.experimental.se.fileFlowTimeBudgetMs";
+
+  private final long fileNanos;
+  private final LongSupplier nanoTime;
+
+  private long spentNanos;
+  private int computed;
+  private int skipped;
+  private int skippedInAnalysis = 0;
+  private int filesWithSkippedFlows = 0;
+
+  /**
+   * @param fileMillis wall-clock budget of the flow computations of a file, {@link ExecutionBudget#UNLIMITED} when there is none
+   */
+  public FlowBudget(long fileMillis) {
+    this(fileMillis, System::nanoTime);
+  }
+
+  @VisibleForTesting
+  FlowBudget(long fileMillis, LongSupplier nanoTime) {
+    this.fileNanos = fileMillis == ExecutionBudget.UNLIMITED ? ExecutionBudget.UNLIMITED : TimeUnit.MILLISECONDS.toNanos(fileMillis);
+    this.nanoTime = nanoTime;
+  }
+
+  public static FlowBudget unlimited() {
+    return new FlowBudget(ExecutionBudget.UNLIMITED);
+  }
+
+  public static FlowBudget fromConfiguration(Configuration configuration) {
+    return new FlowBudget(configuration.getLong(FILE_FLOW_TIME_BUDGET_KEY).filter(value -> value > 0).orElse(ExecutionBudget.UNLIMITED));
+  }
+
+  void startFile() {
+    spentNanos = 0L;
+    computed = 0;
+    skipped = 0;
+  }
+
+  void endFile(String file) {
+    if (computed + skipped > 0) {
+      LOG.debug("Flows of {}: {} computed in {} ms, {} skipped", file, computed, TimeUnit.NANOSECONDS.toMillis(spentNanos), skipped);
+    }
+    if (skipped > 0) {
+      skippedInAnalysis += skipped;
+      filesWithSkippedFlows++;
+    }
+  }
+
+  void report() {
+    if (skippedInAnalysis > 0) {
+      LOG.warn("{} flows of {} files were not computed, as the flow budget of {} ms per file ({}) was spent. "
+        + "Their issues are reported without secondary locations.",
+        skippedInAnalysis, filesWithSkippedFlows, TimeUnit.NANOSECONDS.toMillis(fileNanos), FILE_FLOW_TIME_BUDGET_KEY);
+    }
+  }
+
+  boolean isExhausted() {
+    return spentNanos >= fileNanos;
+  }
+
+  long start() {
+    return nanoTime.getAsLong();
+  }
+
+  void computed(long startNanos) {
+    computed++;
+    spentNanos += nanoTime.getAsLong() - startNanos;
+  }
+
+  void skipped() {
+    skipped++;
+  }
+
+  long spentNanos() {
+    return spentNanos;
+  }
+
+  int computedFlows() {
+    return computed;
+  }
+
+  int skippedFlows() {
+    return skipped;
+  }
+}
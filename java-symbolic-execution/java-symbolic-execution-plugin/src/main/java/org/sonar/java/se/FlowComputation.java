@@ -145,7 +145,24 @@ public class FlowComputation {
     return flow(currentNode, setFromNullable(currentVal), addToFlow, terminateTraversal, domains, Collections.emptySet(), true, maxReturnedFlows);
   }
 
+  /**
+   * Flows are not computed anymore once the flow budget of the file is spent: a single empty flow is then returned.
+   */
   private static Set<Flow> flow(ExplodedGraph.Node currentNode, Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow,
+    Predicate<Constraint> terminateTraversal, List<Class<? extends Constraint>> domains, Set<Symbol> symbols,
+    boolean skipExceptionMessages, int maxReturnedFlows) {
+    FlowBudget budget = currentNode.explodedGraph.flowBudget;
+    if (budget.isExhausted()) {
+      budget.skipped();
+      return new HashSet<>(Collections.singleton(Flow.empty()));
+    }
+    long start = budget.start();
+    Set<Flow> flows = computeFlow(currentNode, symbolicValues, addToFlow, terminateTraversal, domains, symbols, skipExceptionMessages, maxReturnedFlows);
+    budget.computed(start);
+    return flows;
+  }
+
+  private static Set<Flow> computeFlow(ExplodedGraph.Node currentNode, Set<SymbolicValue> symbolicValues, Predicate<Constraint> addToFlow,
     Predicate<Constraint> terminateTraversal, List<Class<? extends Constraint>> domains, Set<Symbol> symbols,
     boolean skipExceptionMessages, int maxReturnedFlows) {
     Set<SymbolicValue> allSymbolicValues = symbolicValues.stream()
@@ -0,0 +1,91 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import org.sonar.api.config.Configuration;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * What the {@link ExplodedGraphWalker} does with a new program state reaching a join point of the CFG, i.e. the beginning of a block with
+ * several predecessors, where states of other paths may already have been explored.
+ */
+public enum JoinPolicy {
+
+  /**
+   * Every new state is explored: the historical behavior of the walker.
+   */
+  NONE("none"),
+
+  /**
+   * A new state is not explored when an explored state at the same program point subsumes it, see {@link ProgramState#subsumes}.
+   */
+  SUBSUMPTION("subsumption"),
+
+  /**
+   * On top of subsumption, once a loop has been iterated {@link #WIDENING_THRESHOLD} times, a new state at the loop head only keeps the
+   * constraints it shares with the explored states having the same values. This trades precision for the convergence of the loop.
+   */
+  WIDENING("widening");
+
+  public static final String JOIN_POLICY_KEY = "sonar.java.experimental.se.joinPolicy";
+
+  static final int WIDENING_THRESHOLD = 2;
+
+  private final String key;
+
+  JoinPolicy(String key) {
+    this.key = key;
+  }
+
+  public String key() {
+    return key;
+  }
+
+  static boolean isJoinPoint(ProgramPoint programPoint) {
+    return programPoint.i == 0 && programPoint.block.predecessors().size() > 1;
+  }
+
+  static boolean isLoopHead(ProgramPoint programPoint) {
+    Tree terminator = programPoint.block.terminator();
+    return programPoint.i == 0 && terminator != null
+      && terminator.is(Tree.Kind.WHILE_STATEMENT, Tree.Kind.DO_STATEMENT, Tree.Kind.FOR_STATEMENT, Tree.Kind.FOR_EACH_STATEMENT);
+  }
+
+  boolean widens(ProgramPoint programPoint, int numberOfVisits) {
+    return this == WIDENING && numberOfVisits >= WIDENING_THRESHOLD && isLoopHead(programPoint);
+  }
+
+  public static JoinPolicy fromConfiguration(Configuration configuration) {
+    return configuration.get(JOIN_POLICY_KEY)
+      .map(value -> fromKey(value.trim().toLowerCase(Locale.ROOT)))
+      .orElse(NONE);
+  }
+
+  static JoinPolicy fromKey(String key) {
+    return Arrays.stream(values())
+      .filter(policy -> policy.key.equals(key))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(String.format("Unknown join policy \"%s\" for property \"%s\", expected one of: %s.",
+        key, JOIN_POLICY_KEY, Arrays.stream(values()).map(JoinPolicy::key).collect(Collectors.joining(", ")))));
+  }
+}
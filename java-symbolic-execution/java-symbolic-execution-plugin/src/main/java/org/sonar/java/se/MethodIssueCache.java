@@ -0,0 +1,476 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.SymbolMetadata;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.BinaryExpressionTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.ModifierKeywordTree;
+import org.sonar.plugins.java.api.tree.ModifiersTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.PrimitiveTypeTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Issues raised by the symbolic execution of each method of a file, written to the cache of the analysis along with the fingerprint of
+ * the method, so that the next analysis reuses them instead of walking the methods whose fingerprint is unchanged.
+ * <p>
+ * The fingerprint of a method is a hash of its normalized syntax tree: the kinds of its trees in pre-order, with the names, literals and
+ * keywords they hold, but without their positions, whitespaces and comments. It also covers the signatures and annotations of the methods
+ * and fields it refers to, as well as the syntax trees of the methods declared in the file that it calls, directly or not, whose behaviors
+ * it may rely on. The issues are located by the pre-order index of their trees in the method, which is the same in methods with the same
+ * fingerprint.
+ * <p>
+ * The behaviors of the methods declared in other files are not covered by the fingerprint: issues are not reused when these behaviors are
+ * shared between files through a {@link org.sonar.java.se.xproc.MethodBehaviorStore}.
+ * <p>
+ * Methods are only reused when the walker does not need their behavior: a reused method walked anyway, to compute its behavior, reports
+ * its issues again, and its cached issues are then dropped. A cache is used by the thread walking the methods, it is not thread-safe.
+ */
+public class MethodIssueCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodIssueCache.class);
+
+  public static final String INCREMENTAL_KEY = "sonar.java.experimental.se.incremental";
+
+  @VisibleForTesting
+  static final String CACHE_KEY_PREFIX = "java:se:issues:";
+  private static final String JSON_CHECKS = "checks";
+  private static final String JSON_METHODS = "methods";
+  private static final String JSON_CHECK = "check";
+  private static final String JSON_TREE = "tree";
+  private static final String JSON_MESSAGE = "message";
+  private static final String JSON_FLOWS = "flows";
+
+  private final List<SECheck> checks;
+  private final JsonArray checkNames;
+
+  private int reusedMethods = 0;
+  private int executedMethods = 0;
+
+  @Nullable
+  private CacheContext cacheContext;
+  private String cacheKey = "";
+  private Map<String, JsonArray> previousIssues = Collections.emptyMap();
+  private final Map<MethodTree, String> fingerprints = new IdentityHashMap<>();
+  private final Map<MethodTree, MethodSummary> summaries = new IdentityHashMap<>();
+  private final Map<MethodTree, List<ReusedIssue>> reusedIssues = new IdentityHashMap<>();
+  private final Set<MethodTree> walkedMethods = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private record MethodSummary(String syntax, Set<String> dependencies, List<MethodTree> callees) {
+  }
+
+  private record ReusedIssue(SECheck check, Tree tree, String message, Set<Flow> flows) {
+  }
+
+  /**
+   * @param checks checks run by the walker, whose issues are cached
+   */
+  public MethodIssueCache(List<SECheck> checks) {
+    this.checks = checks;
+    this.checkNames = new JsonArray(checks.size());
+    checks.forEach(check -> checkNames.add(check.getClass().getName()));
+  }
+
+  void startFile(JavaFileScannerContext context) {
+    fingerprints.clear();
+    summaries.clear();
+    reusedIssues.clear();
+    walkedMethods.clear();
+    previousIssues = Collections.emptyMap();
+    cacheContext = context.getCacheContext();
+    if (cacheContext == null || !cacheContext.isCacheEnabled()) {
+      cacheContext = null;
+      return;
+    }
+    cacheKey = CACHE_KEY_PREFIX + context.getInputFile().key();
+    previousIssues = readFromCache();
+  }
+
+  private Map<String, JsonArray> readFromCache() {
+    byte[] bytes = cacheContext.getReadCache().readBytes(cacheKey);
+    if (bytes == null) {
+      return Collections.emptyMap();
+    }
+    try {
+      JsonObject json = JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8)).getAsJsonObject();
+      if (!checkNames.equals(json.getAsJsonArray(JSON_CHECKS))) {
+        // issues raised by other checks than the ones of this analysis
+        return Collections.emptyMap();
+      }
+      Map<String, JsonArray> issues = new HashMap<>();
+      json.getAsJsonObject(JSON_METHODS).entrySet().forEach(method -> issues.put(method.getKey(), method.getValue().getAsJsonArray()));
+      return issues;
+    } catch (RuntimeException e) {
+      LOG.debug("Invalid symbolic execution issues in cache entry '{}': {}", cacheKey, e.getMessage());
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * @return true if the issues of the method are reused from the previous analysis, and the method does not need to be walked
+   */
+  boolean reuse(MethodTree methodTree) {
+    if (cacheContext == null || methodTree.block() == null) {
+      return false;
+    }
+    JsonArray issues = previousIssues.get(fingerprint(methodTree));
+    if (issues == null) {
+      return false;
+    }
+    List<ReusedIssue> reused = resolve(methodTree, issues);
+    if (reused == null) {
+      return false;
+    }
+    reusedIssues.put(methodTree, reused);
+    reusedMethods++;
+    return true;
+  }
+
+  void walked(MethodTree methodTree) {
+    if (methodTree.block() != null) {
+      walkedMethods.add(methodTree);
+      executedMethods++;
+    }
+  }
+
+  /**
+   * Hands the reused issues of the methods which have not been walked to their checks, and writes the issues of all the methods of the
+   * file to the cache.
+   */
+  void endFile() {
+    if (cacheContext == null) {
+      return;
+    }
+    reusedIssues.forEach((methodTree, issues) -> {
+      if (!walkedMethods.contains(methodTree)) {
+        issues.forEach(issue -> issue.check().reportIssue(issue.tree(), issue.message(), issue.flows()));
+      }
+    });
+    JsonObject json = new JsonObject();
+    json.add(JSON_CHECKS, checkNames);
+    json.add(JSON_METHODS, issuesByFingerprint());
+    try {
+      cacheContext.getWriteCache().write(cacheKey, json.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      LOG.trace("Could not store data to cache key '{}': {}", cacheKey, e.getMessage());
+    }
+    cacheContext = null;
+  }
+
+  private JsonObject issuesByFingerprint() {
+    Map<MethodTree, JsonArray> issuesByMethod = new IdentityHashMap<>();
+    fingerprints.keySet().forEach(methodTree -> issuesByMethod.put(methodTree, new JsonArray()));
+    Map<MethodTree, Map<Tree, Integer>> indexesByMethod = new IdentityHashMap<>();
+    Set<MethodTree> notCacheable = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (SECheck check : checks) {
+      for (SECheck.SEIssue issue : check.pendingIssues()) {
+        MethodTree methodTree = enclosingMethod(issue.getTree());
+        if (methodTree == null) {
+          continue;
+        }
+        Map<Tree, Integer> indexes = indexesByMethod.computeIfAbsent(methodTree, MethodIssueCache::treeIndexes);
+        JsonObject jsonIssue = toJson(check, issue, indexes);
+        if (jsonIssue == null) {
+          notCacheable.add(methodTree);
+        } else {
+          issuesByMethod.get(methodTree).add(jsonIssue);
+        }
+      }
+    }
+    JsonObject jsonMethods = new JsonObject();
+    issuesByMethod.forEach((methodTree, issues) -> {
+      if (!notCacheable.contains(methodTree)) {
+        jsonMethods.add(fingerprints.get(methodTree), issues);
+      }
+    });
+    return jsonMethods;
+  }
+
+  /**
+   * @return the innermost method declaring the tree, among the methods of the file, or null if there is none
+   */
+  @CheckForNull
+  private MethodTree enclosingMethod(Tree tree) {
+    Tree parent = tree;
+    while (parent != null) {
+      if (parent.is(Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR) && fingerprints.containsKey(parent)) {
+        return (MethodTree) parent;
+      }
+      parent = parent.parent();
+    }
+    return null;
+  }
+
+  /**
+   * @return the issue, or null if one of its trees is not part of the method
+   */
+  @CheckForNull
+  private static JsonObject toJson(SECheck check, SECheck.SEIssue issue, Map<Tree, Integer> indexes) {
+    Integer treeIndex = indexes.get(issue.getTree());
+    if (treeIndex == null) {
+      return null;
+    }
+    JsonArray jsonFlows = new JsonArray();
+    for (List<JavaFileScannerContext.Location> flow : issue.getFlows()) {
+      JsonArray jsonFlow = new JsonArray(flow.size());
+      for (JavaFileScannerContext.Location location : flow) {
+        Integer locationIndex = indexes.get(location.syntaxNode);
+        if (locationIndex == null) {
+          return null;
+        }
+        JsonObject jsonLocation = new JsonObject();
+        jsonLocation.addProperty(JSON_TREE, locationIndex);
+        jsonLocation.addProperty(JSON_MESSAGE, location.msg);
+        jsonFlow.add(jsonLocation);
+      }
+      jsonFlows.add(jsonFlow);
+    }
+    JsonObject json = new JsonObject();
+    json.addProperty(JSON_CHECK, check.getClass().getName());
+    json.addProperty(JSON_TREE, treeIndex);
+    json.addProperty(JSON_MESSAGE, issue.getMessage());
+    json.add(JSON_FLOWS, jsonFlows);
+    return json;
+  }
+
+  /**
+   * @return the issues located in the method, or null if they can not all be located
+   */
+  @CheckForNull
+  private List<ReusedIssue> resolve(MethodTree methodTree, JsonArray issues) {
+    List<Tree> trees = trees(methodTree);
+    List<ReusedIssue> resolved = new ArrayList<>(issues.size());
+    try {
+      for (JsonElement element : issues) {
+        JsonObject issue = element.getAsJsonObject();
+        SECheck check = check(issue.get(JSON_CHECK).getAsString());
+        Tree tree = trees.get(issue.get(JSON_TREE).getAsInt());
+        Set<Flow> flows = new LinkedHashSet<>();
+        for (JsonElement jsonFlow : issue.getAsJsonArray(JSON_FLOWS)) {
+          Flow.Builder flow = Flow.builder();
+          for (JsonElement jsonLocation : jsonFlow.getAsJsonArray()) {
+            JsonObject location = jsonLocation.getAsJsonObject();
+            flow.add(new JavaFileScannerContext.Location(location.get(JSON_MESSAGE).getAsString(), trees.get(location.get(JSON_TREE).getAsInt())));
+          }
+          flows.add(flow.build());
+        }
+        resolved.add(new ReusedIssue(check, tree, issue.get(JSON_MESSAGE).getAsString(), flows));
+      }
+    } catch (RuntimeException e) {
+      LOG.debug("Unable to reuse the symbolic execution issues of method {}: {}", methodTree.simpleName().name(), e.getMessage());
+      return null;
+    }
+    return resolved;
+  }
+
+  private SECheck check(String className) {
+    return checks.stream()
+      .filter(check -> check.getClass().getName().equals(className))
+      .findFirst()
+      .orElseThrow(() -> new IllegalStateException("Unknown check " + className));
+  }
+
+  @VisibleForTesting
+  String fingerprint(MethodTree methodTree) {
+    return fingerprints.computeIfAbsent(methodTree, this::computeFingerprint);
+  }
+
+  private String computeFingerprint(MethodTree methodTree) {
+    MethodSummary summary = summary(methodTree);
+    Set<String> dependencies = new TreeSet<>(summary.dependencies());
+    Set<MethodTree> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    visited.add(methodTree);
+    Deque<MethodTree> callees = new ArrayDeque<>(summary.callees());
+    while (!callees.isEmpty()) {
+      MethodTree callee = callees.pop();
+      if (visited.add(callee)) {
+        MethodSummary calleeSummary = summary(callee);
+        dependencies.add("d:" + hash(calleeSummary.syntax()));
+        dependencies.addAll(calleeSummary.dependencies());
+        callees.addAll(calleeSummary.callees());
+      }
+    }
+    return hash(summary.syntax() + "\n" + String.join("\n", dependencies));
+  }
+
+  private MethodSummary summary(MethodTree methodTree) {
+    return summaries.computeIfAbsent(methodTree, tree -> {
+      SyntaxScanner scanner = new SyntaxScanner();
+      scanner.scan(tree);
+      Symbol.MethodSymbol symbol = tree.symbol();
+      for (Symbol owner = symbol.owner(); owner != null && owner.isTypeSymbol(); owner = owner.owner()) {
+        // a final owner makes its methods final, which lets the walker apply their behaviors
+        scanner.dependencies.add("o:" + owner.name() + (owner.isFinal() ? " final" : "") + annotations(owner.metadata()));
+      }
+      return new MethodSummary(scanner.syntax.toString(), scanner.dependencies, scanner.callees);
+    });
+  }
+
+  private static List<Tree> trees(MethodTree methodTree) {
+    List<Tree> trees = new ArrayList<>();
+    new PreOrderScanner() {
+      @Override
+      void visit(Tree tree) {
+        trees.add(tree);
+      }
+    }.scan(methodTree);
+    return trees;
+  }
+
+  private static Map<Tree, Integer> treeIndexes(MethodTree methodTree) {
+    List<Tree> trees = trees(methodTree);
+    Map<Tree, Integer> indexes = new IdentityHashMap<>(trees.size());
+    for (int i = 0; i < trees.size(); i++) {
+      indexes.put(trees.get(i), i);
+    }
+    return indexes;
+  }
+
+  private static String annotations(SymbolMetadata metadata) {
+    StringBuilder annotations = new StringBuilder();
+    metadata.annotations().forEach(annotation -> annotations.append(" @").append(annotation.symbol().type().fullyQualifiedName()));
+    return annotations.toString();
+  }
+
+  private static String hash(String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  void report() {
+    if (reusedMethods + executedMethods > 0) {
+      LOG.info("Symbolic execution of {} methods reused from the previous analysis, {} methods executed", reusedMethods, executedMethods);
+    }
+  }
+
+  @VisibleForTesting
+  int reusedMethods() {
+    return reusedMethods;
+  }
+
+  @VisibleForTesting
+  int executedMethods() {
+    return executedMethods;
+  }
+
+  /**
+   * Visits every tree of a method in pre-order, including the operands of binary expressions which {@link BaseTreeVisitor}
+   * visits without going through {@link #scan(Tree)}.
+   */
+  private abstract static class PreOrderScanner extends BaseTreeVisitor {
+
+    abstract void visit(Tree tree);
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (tree != null) {
+        visit(tree);
+        super.scan(tree);
+      }
+    }
+
+    @Override
+    public void visitBinaryExpression(BinaryExpressionTree tree) {
+      scan(tree.leftOperand());
+      scan(tree.rightOperand());
+    }
+  }
+
+  /**
+   * Normalized syntax of a method, and the symbols it depends on.
+   */
+  private static class SyntaxScanner extends PreOrderScanner {
+    private final StringBuilder syntax = new StringBuilder();
+    private final Set<String> dependencies = new TreeSet<>();
+    private final List<MethodTree> callees = new ArrayList<>();
+
+    @Override
+    void visit(Tree tree) {
+      syntax.append(tree.kind().name());
+      if (tree instanceof IdentifierTree identifier) {
+        syntax.append(' ').append(identifier.name());
+        dependsOn(identifier.symbol());
+      } else if (tree instanceof LiteralTree literal) {
+        syntax.append(' ').append(literal.value());
+      } else if (tree instanceof PrimitiveTypeTree primitiveType) {
+        syntax.append(' ').append(primitiveType.keyword().text());
+      } else if (tree instanceof ModifiersTree modifiers) {
+        modifiers.modifiers().stream()
+          .filter(ModifierKeywordTree.class::isInstance)
+          .forEach(modifier -> syntax.append(' ').append(((ModifierKeywordTree) modifier).keyword().text()));
+      } else if (tree instanceof NewClassTree newClass) {
+        dependsOn(newClass.methodSymbol());
+      }
+      syntax.append('\n');
+    }
+
+    private void dependsOn(Symbol symbol) {
+      if (symbol.isUnknown()) {
+        return;
+      }
+      if (symbol instanceof Symbol.MethodSymbol method) {
+        dependencies.add("m:" + method.signature() + annotations(method.metadata()));
+        MethodTree declaration = method.declaration();
+        if (declaration != null) {
+          callees.add(declaration);
+        }
+      } else if (symbol.isVariableSymbol() && symbol.owner() != null && symbol.owner().isTypeSymbol()) {
+        dependencies.add("f:" + symbol.owner().name() + "." + symbol.name() + ":" + symbol.type().fullyQualifiedName() + annotations(symbol.metadata()));
+      }
+    }
+  }
+
+}
@@ -197,6 +197,28 @@ public class ProgramState {
     entryException = ps.entryException;
   }
 
+  private ProgramState(ProgramState ps, PMap<Symbol, SymbolicValue> sharedValues, PMap<SymbolicValue, ConstraintsByDomain> sharedConstraints) {
+    values = sharedValues;
+    valuesByIndex = ps.valuesByIndex;
+    references = ps.references;
+    constraints = sharedConstraints;
+    constraintSize = ps.constraintSize;
+    visitedPoints = ps.visitedPoints;
+    exitSymbolicValue = ps.exitSymbolicValue;
+    stack = ps.stack;
+    entryException = ps.entryException;
+    hashCode = ps.hashCode;
+    knownRelations = ps.knownRelations;
+  }
+
+  /**
+   * @return an equal program state using the given maps, which must be equal to the ones of this state
+   * @see ProgramStateInterner
+   */
+  ProgramState sharing(PMap<Symbol, SymbolicValue> sharedValues, PMap<SymbolicValue, ConstraintsByDomain> sharedConstraints) {
+    return new ProgramState(this, sharedValues, sharedConstraints);
+  }
+
   public ProgramState withEntryException(@Nullable SymbolicValue.ExceptionalSymbolicValue exception) {
     return new ProgramState(values, valuesByIndex, references, constraints, visitedPoints, stack, exitSymbolicValue, exception);
   }
@@ -274,7 +296,8 @@ public class ProgramState {
       return false;
     }
     ProgramState that = (ProgramState) o;
-    return Objects.equals(values, that.values) &&
+    return hashCode() == that.hashCode() &&
+      Objects.equals(values, that.values) &&
       Objects.equals(constraints, that.constraints) &&
       Objects.equals(exitSymbolicValue, that.exitSymbolicValue) &&
       Objects.equals(stack, that.stack);
@@ -430,6 +453,82 @@ public class ProgramState {
       : this;
   }
 
+  /**
+   * A state subsumes another one when it has the same values, stack and exit value, and when its constraints are a subset of the
+   * constraints of the other state, the missing ones being on symbolic values which are irrelevant for the rest of the execution:
+   * not reachable from a symbol, the stack or the exit value, directly or through a relation, and not tracking a resource.
+   * Exploring the other state would then not teach anything more than exploring this one.
+   */
+  boolean subsumes(ProgramState other) {
+    if (!hasSameValues(other)) {
+      return false;
+    }
+    boolean[] subsumes = {true};
+    constraints.forEach((sv, svConstraints) -> {
+      ConstraintsByDomain otherConstraints = other.constraints.get(sv);
+      if (otherConstraints == null || svConstraints.stream().anyMatch(constraint -> !otherConstraints.hasConstraint(constraint))) {
+        subsumes[0] = false;
+      }
+    });
+    if (subsumes[0]) {
+      other.constraints.forEach((sv, otherConstraints) -> {
+        if (subsumes[0] && !otherConstraints.equals(constraints.get(sv)) && other.isRelevant(sv, otherConstraints)) {
+          subsumes[0] = false;
+        }
+      });
+    }
+    return subsumes[0];
+  }
+
+  /**
+   * @return this state, only keeping the constraints it shares with the given state, or null when both states have different values
+   */
+  @CheckForNull
+  ProgramState widen(ProgramState other) {
+    if (!hasSameValues(other)) {
+      return null;
+    }
+    class WidenAction implements BiConsumer<SymbolicValue, ConstraintsByDomain> {
+      PMap<SymbolicValue, ConstraintsByDomain> newConstraints = constraints;
+
+      @Override
+      public void accept(SymbolicValue sv, ConstraintsByDomain svConstraints) {
+        ConstraintsByDomain otherConstraints = other.constraints.get(sv);
+        ConstraintsByDomain shared = svConstraints;
+        for (Class<? extends Constraint> domain : svConstraints.domains().toList()) {
+          if (otherConstraints == null || !Objects.equals(svConstraints.get(domain), otherConstraints.get(domain))) {
+            shared = shared.remove(domain);
+          }
+        }
+        if (shared.isEmpty()) {
+          newConstraints = newConstraints.remove(sv);
+        } else if (shared != svConstraints) {
+          newConstraints = newConstraints.put(sv, shared);
+        }
+      }
+    }
+    WidenAction widenAction = new WidenAction();
+    constraints.forEach(widenAction);
+    return widenAction.newConstraints == constraints ? this : new ProgramState(this, widenAction.newConstraints);
+  }
+
+  private boolean hasSameValues(ProgramState other) {
+    return Objects.equals(values, other.values)
+      && Objects.equals(stack, other.stack)
+      && Objects.equals(exitSymbolicValue, other.exitSymbolicValue)
+      && Objects.equals(entryException, other.entryException);
+  }
+
+  private boolean isRelevant(SymbolicValue sv, ConstraintsByDomain svConstraints) {
+    if (NON_DISPOSABLE_CONSTRAINTS.stream().map(svConstraints::get).anyMatch(Objects::nonNull)
+      || canReach(sv) || inStack(stack, sv) || sv.equals(exitSymbolicValue)) {
+      return true;
+    }
+    boolean[] relevant = {stack.anyMatch(valueSymbol -> sv.references(valueSymbol.sv))};
+    references.forEach((referenced, count) -> relevant[0] |= count > 0 && sv.references(referenced));
+    return relevant[0];
+  }
+
   public ProgramState cleanupConstraints(Collection<SymbolicValue> protectedSymbolicValues) {
     class CleanAction implements BiConsumer<SymbolicValue, ConstraintsByDomain> {
       boolean newProgramState = false;
@@ -0,0 +1,69 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonarsource.analyzer.commons.collections.PMap;
+
+/**
+ * Shares the persistent maps of the program states of an exploded graph: a map equal to one already seen is replaced by the first
+ * instance, so that equal program states share their storage and are mostly compared by reference.
+ * An interner is owned by its exploded graph and is therefore released with it, at the end of the walk of a method.
+ */
+final class ProgramStateInterner {
+
+  private final Map<PMap<Symbol, SymbolicValue>, PMap<Symbol, SymbolicValue>> values = new HashMap<>();
+  private final Map<PMap<SymbolicValue, ConstraintsByDomain>, PMap<SymbolicValue, ConstraintsByDomain>> constraints = new HashMap<>();
+  private int sharedMaps = 0;
+
+  /**
+   * @return an equal program state of which the symbol values and the constraints are shared with the states already interned
+   */
+  ProgramState intern(ProgramState programState) {
+    PMap<Symbol, SymbolicValue> sharedValues = intern(values, programState.values);
+    PMap<SymbolicValue, ConstraintsByDomain> sharedConstraints = intern(constraints, programState.constraints);
+    if (sharedValues == programState.values && sharedConstraints == programState.constraints) {
+      return programState;
+    }
+    return programState.sharing(sharedValues, sharedConstraints);
+  }
+
+  /**
+   * @return number of maps which have been replaced by an equal map already interned
+   */
+  int sharedMaps() {
+    return sharedMaps;
+  }
+
+  private <K, V> PMap<K, V> intern(Map<PMap<K, V>, PMap<K, V>> interned, PMap<K, V> map) {
+    PMap<K, V> shared = interned.putIfAbsent(map, map);
+    if (shared == null) {
+      return map;
+    }
+    if (shared != map) {
+      sharedMaps++;
+    }
+    return shared;
+  }
+}
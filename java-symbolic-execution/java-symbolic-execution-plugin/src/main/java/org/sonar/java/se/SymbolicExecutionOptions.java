@@ -0,0 +1,165 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
+
+/**
+ * Options of a {@link SymbolicExecutionVisitor}. Without options, the methods are walked depth first without budget, profile, join of
+ * the states, nor behaviors and issues shared with other files or analyses.
+ */
+public class SymbolicExecutionOptions {
+
+  @Nullable
+  private final MethodBehaviorStore methodBehaviorStore;
+  @Nullable
+  private final ExecutionBudget budget;
+  private final WorklistStrategy worklistStrategy;
+  private final JoinPolicy joinPolicy;
+  private final FlowBudget flowBudget;
+  @Nullable
+  private final ExecutionProfile profile;
+  private final boolean incremental;
+
+  private SymbolicExecutionOptions(Builder builder) {
+    this.methodBehaviorStore = builder.methodBehaviorStore;
+    this.budget = builder.budget;
+    this.worklistStrategy = builder.worklistStrategy;
+    this.joinPolicy = builder.joinPolicy;
+    this.flowBudget = builder.flowBudget;
+    this.profile = builder.profile;
+    this.incremental = builder.incremental;
+  }
+
+  public static SymbolicExecutionOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Store sharing the behaviors of the methods between the files of the project, if any.
+   */
+  @CheckForNull
+  public MethodBehaviorStore methodBehaviorStore() {
+    return methodBehaviorStore;
+  }
+
+  /**
+   * Time and memory budgets of the walks, if any.
+   */
+  @CheckForNull
+  public ExecutionBudget budget() {
+    return budget;
+  }
+
+  /**
+   * Order in which the walks explore the exploded graphs.
+   */
+  public WorklistStrategy worklistStrategy() {
+    return worklistStrategy;
+  }
+
+  /**
+   * How the walks deal with the states reaching join points.
+   */
+  public JoinPolicy joinPolicy() {
+    return joinPolicy;
+  }
+
+  /**
+   * Time budget of the flow computations of a file.
+   */
+  public FlowBudget flowBudget() {
+    return flowBudget;
+  }
+
+  /**
+   * Profile of the walks of the methods, if any.
+   */
+  @CheckForNull
+  public ExecutionProfile profile() {
+    return profile;
+  }
+
+  /**
+   * Whether the issues of the methods unchanged since the previous analysis are reused instead of walking them again.
+   */
+  public boolean incremental() {
+    return incremental;
+  }
+
+  public static class Builder {
+
+    private MethodBehaviorStore methodBehaviorStore;
+    private ExecutionBudget budget;
+    private WorklistStrategy worklistStrategy = WorklistStrategy.DEPTH_FIRST;
+    private JoinPolicy joinPolicy = JoinPolicy.NONE;
+    private FlowBudget flowBudget = FlowBudget.unlimited();
+    private ExecutionProfile profile;
+    private boolean incremental;
+
+    private Builder() {
+    }
+
+    public Builder setMethodBehaviorStore(@Nullable MethodBehaviorStore methodBehaviorStore) {
+      this.methodBehaviorStore = methodBehaviorStore;
+      return this;
+    }
+
+    public Builder setBudget(@Nullable ExecutionBudget budget) {
+      this.budget = budget;
+      return this;
+    }
+
+    public Builder setWorklistStrategy(WorklistStrategy worklistStrategy) {
+      this.worklistStrategy = worklistStrategy;
+      return this;
+    }
+
+    public Builder setJoinPolicy(JoinPolicy joinPolicy) {
+      this.joinPolicy = joinPolicy;
+      return this;
+    }
+
+    public Builder setFlowBudget(FlowBudget flowBudget) {
+      this.flowBudget = flowBudget;
+      return this;
+    }
+
+    public Builder setProfile(@Nullable ExecutionProfile profile) {
+      this.profile = profile;
+      return this;
+    }
+
+    public Builder setIncremental(boolean incremental) {
+      this.incremental = incremental;
+      return this;
+    }
+
+    public SymbolicExecutionOptions build() {
+      return new SymbolicExecutionOptions(this);
+    }
+  }
+}
@@ -19,22 +19,27 @@
  */
 package org.sonar.java.se;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.model.SELineUtils;
 import org.sonar.java.se.checks.SECheck;
 import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.java.se.xproc.MethodBehavior;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.ModuleScannerContext;
+import org.sonar.plugins.java.api.internal.EndOfAnalysis;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
 import org.sonar.plugins.java.api.tree.MethodTree;
 
-public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFileScanner {
+public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFileScanner, EndOfAnalysis {
 
   private static final Logger LOG = LoggerFactory.getLogger(SymbolicExecutionVisitor.class);
   protected JavaFileScannerContext context;
@@ -42,23 +47,83 @@ public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFil
   @VisibleForTesting
   public final BehaviorCache behaviorCache;
   private final ExplodedGraphWalker.ExplodedGraphWalkerFactory egwFactory;
+  @Nullable
+  private final ExecutionBudget budget;
+  private final FlowBudget flowBudget;
+  @Nullable
+  private final ExecutionProfile profile;
+  @Nullable
+  private final MethodIssueCache issueCache;
 
   public SymbolicExecutionVisitor(List<SECheck> seChecks) {
-    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(seChecks);
-    this.behaviorCache = new BehaviorCache();
+    this(seChecks, SymbolicExecutionOptions.defaults());
+  }
+
+  public SymbolicExecutionVisitor(List<SECheck> seChecks, SymbolicExecutionOptions options) {
+    this.flowBudget = options.flowBudget();
+    this.profile = options.profile();
+    egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(seChecks, options.worklistStrategy(), options.joinPolicy());
+    if (options.incremental() && options.methodBehaviorStore() != null) {
+      // the fingerprints of the methods do not cover the behaviors of the methods declared in other files
+      LOG.warn("{} is ignored, as method behaviors are shared between files", MethodIssueCache.INCREMENTAL_KEY);
+      this.issueCache = null;
+    } else {
+      this.issueCache = options.incremental() ? new MethodIssueCache(egwFactory.seChecks) : null;
+    }
+    this.behaviorCache = new BehaviorCache(options.methodBehaviorStore());
+    this.budget = options.budget();
   }
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
     behaviorCache.cleanup();
     behaviorCache.setFileContext(this);
+    behaviorCache.setCacheContext(context.getCacheContext());
     this.context = context;
+    if (budget != null) {
+      MethodCounter methodCounter = new MethodCounter();
+      context.getTree().accept(methodCounter);
+      budget.startFile(String.valueOf(context.getInputFile()), methodCounter.methods);
+    }
+    flowBudget.startFile();
+    if (profile != null) {
+      profile.startFile(String.valueOf(context.getInputFile()));
+    }
+    if (issueCache != null) {
+      issueCache.startFile(context);
+    }
     scan(context.getTree());
+    if (issueCache != null) {
+      issueCache.endFile();
+    }
+    flowBudget.endFile(String.valueOf(context.getInputFile()));
+    behaviorCache.storeBehaviors(context.getInputFile());
+  }
+
+  @Override
+  public void endOfAnalysis(ModuleScannerContext context) {
+    if (issueCache != null) {
+      issueCache.report();
+    }
+    flowBudget.report();
+    if (profile == null && budget == null) {
+      // not every context provides a working directory, only query it when a report is requested
+      return;
+    }
+    File workingDirectory = context.getWorkingDirectory();
+    if (profile != null) {
+      profile.report(workingDirectory);
+    }
+    if (budget != null && workingDirectory != null) {
+      budget.writeSummary(workingDirectory);
+    }
   }
 
   @Override
   public void visitMethod(MethodTree tree) {
-    execute(tree);
+    if (issueCache == null || !issueCache.reuse(tree)) {
+      execute(tree);
+    }
     super.visitMethod(tree);
   }
 
@@ -69,15 +134,20 @@ public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFil
       if (methodCanNotBeOverriden(methodSymbol)) {
         MethodBehavior methodBehavior = behaviorCache.methodBehaviorForSymbol(methodSymbol);
         if (!methodBehavior.isVisited()) {
-          walker.visitMethod(methodTree, methodBehavior);
+          walk(walker, methodTree, methodBehavior);
         }
       } else {
-        walker.visitMethod(methodTree);
+        walk(walker, methodTree, null);
       }
     } catch (ExplodedGraphWalker.MaximumStepsReachedException
       | ExplodedGraphWalker.ExplodedGraphTooBigException
-      | ExplodedGraphWalker.MaximumStartingStatesException exception) {
+      | ExplodedGraphWalker.MaximumStartingStatesException
+      | ExplodedGraphWalker.BudgetExhaustedException exception) {
       LOG.debug("Could not complete symbolic execution: {}", exception.getMessage());
+      if (budget != null) {
+        budget.truncated(methodName(methodTree), SELineUtils.startLine(methodTree.simpleName()),
+          truncationReason(exception), walker.steps, walker.allowance, exception.getMessage());
+      }
       if (LOG.isTraceEnabled()) {
         StringWriter sw = new StringWriter();
         exception.printStackTrace(new PrintWriter(sw));
@@ -89,6 +159,56 @@ public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFil
     }
   }
 
+  private void walk(ExplodedGraphWalker walker, MethodTree methodTree, @Nullable MethodBehavior methodBehavior) {
+    walker.setFlowBudget(flowBudget);
+    if (issueCache != null) {
+      issueCache.walked(methodTree);
+    }
+    if (budget != null) {
+      walker.setAllowance(budget.startMethod());
+    }
+    if (profile == null) {
+      walker.visitMethod(methodTree, methodBehavior);
+      return;
+    }
+    walker.profileChecks();
+    long startNanos = profile.start();
+    long flowNanosBefore = flowBudget.spentNanos();
+    ExecutionBudget.Reason abortReason = null;
+    try {
+      walker.visitMethod(methodTree, methodBehavior);
+    } catch (ExplodedGraphWalker.MaximumStepsReachedException
+      | ExplodedGraphWalker.ExplodedGraphTooBigException
+      | ExplodedGraphWalker.MaximumStartingStatesException
+      | ExplodedGraphWalker.BudgetExhaustedException exception) {
+      abortReason = truncationReason(exception);
+      throw exception;
+    } finally {
+      // methods without body or with incomplete semantic are not walked
+      if (walker.steps > 0 || abortReason != null) {
+        profile.walked(methodName(methodTree), SELineUtils.startLine(methodTree.simpleName()), startNanos, walker,
+          flowBudget.spentNanos() - flowNanosBefore, abortReason);
+      }
+    }
+  }
+
+  private static String methodName(MethodTree methodTree) {
+    return methodTree.symbol().owner().name() + "#" + methodTree.simpleName().name();
+  }
+
+  private static ExecutionBudget.Reason truncationReason(RuntimeException exception) {
+    if (exception instanceof ExplodedGraphWalker.BudgetExhaustedException budgetExhausted) {
+      return budgetExhausted.reason();
+    }
+    if (exception instanceof ExplodedGraphWalker.ExplodedGraphTooBigException) {
+      return ExecutionBudget.Reason.EXPLODED_GRAPH_TOO_BIG;
+    }
+    if (exception instanceof ExplodedGraphWalker.MaximumStartingStatesException) {
+      return ExecutionBudget.Reason.STARTING_STATES;
+    }
+    return ExecutionBudget.Reason.STEPS;
+  }
+
   @VisibleForTesting
   protected ExplodedGraphWalker getWalker() {
     return egwFactory.createWalker(behaviorCache, context);
@@ -102,4 +222,14 @@ public class SymbolicExecutionVisitor extends BaseTreeVisitor implements JavaFil
       (methodSymbol.isPrivate() || methodSymbol.isFinal() || methodSymbol.isStatic() || methodSymbol.owner().isFinal());
   }
 
+  private static class MethodCounter extends BaseTreeVisitor {
+    private int methods = 0;
+
+    @Override
+    public void visitMethod(MethodTree tree) {
+      methods++;
+      super.visitMethod(tree);
+    }
+  }
+
 }
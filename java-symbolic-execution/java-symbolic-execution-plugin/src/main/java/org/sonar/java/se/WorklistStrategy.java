@@ -0,0 +1,211 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Configuration;
+
+/**
+ * Order in which the {@link ExplodedGraphWalker} explores the nodes of the exploded graph. The order does not matter when the walk
+ * completes, it decides which parts of the method are explored when the walk is interrupted by one of its limits.
+ */
+public enum WorklistStrategy {
+
+  /**
+   * Explores a path fully before switching to another one: the historical order of the walker.
+   */
+  DEPTH_FIRST("dfs") {
+    @Override
+    public Worklist newWorklist() {
+      return new DequeWorklist(true);
+    }
+  },
+
+  /**
+   * Explores all the paths step by step.
+   */
+  BREADTH_FIRST("bfs") {
+    @Override
+    public Worklist newWorklist() {
+      return new DequeWorklist(false);
+    }
+  },
+
+  /**
+   * Explores first the nodes whose program point has been the least explored, most recently enqueued nodes first, so that blocks
+   * which are not reached yet are explored before the walk runs out of steps.
+   */
+  COVERAGE_GUIDED("coverage") {
+    @Override
+    public Worklist newWorklist() {
+      return new CoverageGuidedWorklist();
+    }
+  };
+
+  public static final String WORKLIST_STRATEGY_KEY = "sonar.java.experimental.se.worklistStrategy";
+
+  private final String key;
+
+  WorklistStrategy(String key) {
+    this.key = key;
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public abstract Worklist newWorklist();
+
+  public static WorklistStrategy fromConfiguration(Configuration configuration) {
+    return configuration.get(WORKLIST_STRATEGY_KEY)
+      .map(value -> fromKey(value.trim().toLowerCase(Locale.ROOT)))
+      .orElse(DEPTH_FIRST);
+  }
+
+  static WorklistStrategy fromKey(String key) {
+    return Arrays.stream(values())
+      .filter(strategy -> strategy.key.equals(key))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(String.format("Unknown worklist strategy \"%s\" for property \"%s\", expected one of: %s.",
+        key, WORKLIST_STRATEGY_KEY, Arrays.stream(values()).map(WorklistStrategy::key).collect(Collectors.joining(", ")))));
+  }
+
+  /**
+   * Nodes of the exploded graph which are waiting to be explored.
+   */
+  public interface Worklist {
+
+    void add(ExplodedGraph.Node node);
+
+    /**
+     * Removes the next node to explore. The worklist must not be empty.
+     */
+    ExplodedGraph.Node remove();
+
+    /**
+     * @return the next node to explore, or null if the worklist is empty
+     */
+    @CheckForNull
+    ExplodedGraph.Node peek();
+
+    int size();
+
+    default boolean isEmpty() {
+      return size() == 0;
+    }
+  }
+
+  private static class DequeWorklist implements Worklist {
+    private final ArrayDeque<ExplodedGraph.Node> nodes = new ArrayDeque<>();
+    private final boolean lastInFirstOut;
+
+    DequeWorklist(boolean lastInFirstOut) {
+      this.lastInFirstOut = lastInFirstOut;
+    }
+
+    @Override
+    public void add(ExplodedGraph.Node node) {
+      if (lastInFirstOut) {
+        nodes.addFirst(node);
+      } else {
+        nodes.addLast(node);
+      }
+    }
+
+    @Override
+    public ExplodedGraph.Node remove() {
+      return nodes.removeFirst();
+    }
+
+    @CheckForNull
+    @Override
+    public ExplodedGraph.Node peek() {
+      return nodes.peekFirst();
+    }
+
+    @Override
+    public int size() {
+      return nodes.size();
+    }
+  }
+
+  private static class CoverageGuidedWorklist implements Worklist {
+    private final Map<ProgramPoint, Integer> explorations = new HashMap<>();
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>(
+      Comparator.comparingInt(Entry::explorations).thenComparing(Comparator.comparingLong(Entry::order).reversed()));
+    private long order = 0L;
+
+    @Override
+    public void add(ExplodedGraph.Node node) {
+      entries.add(new Entry(node, explorations(node), order++));
+    }
+
+    @Override
+    public ExplodedGraph.Node remove() {
+      Entry next = nextEntry();
+      entries.remove();
+      explorations.merge(next.node.programPoint, 1, Integer::sum);
+      return next.node;
+    }
+
+    @CheckForNull
+    @Override
+    public ExplodedGraph.Node peek() {
+      Entry next = nextEntry();
+      return next == null ? null : next.node;
+    }
+
+    /**
+     * Priorities are computed when nodes are enqueued, and updated lazily: an entry whose program point has been explored since then
+     * is enqueued again with its new priority, until the first entry is up to date.
+     */
+    @CheckForNull
+    private Entry nextEntry() {
+      Entry next = entries.peek();
+      while (next != null && next.explorations != explorations(next.node)) {
+        entries.remove();
+        entries.add(new Entry(next.node, explorations(next.node), next.order));
+        next = entries.peek();
+      }
+      return next;
+    }
+
+    private int explorations(ExplodedGraph.Node node) {
+      return explorations.getOrDefault(node.programPoint, 0);
+    }
+
+    @Override
+    public int size() {
+      return entries.size();
+    }
+
+    private record Entry(ExplodedGraph.Node node, int explorations, long order) {
+    }
+  }
+
+}
@@ -85,7 +85,14 @@ public abstract class SECheck implements JavaFileScanner {
     // By default do nothing
   }
 
-  protected static class SEIssue {
+  /**
+   * @return the issues raised in the current file, which are reported when the check scans the file
+   */
+  public Set<SEIssue> pendingIssues() {
+    return Collections.unmodifiableSet(issues);
+  }
+
+  public static class SEIssue {
     private final Tree tree;
     private final String message;
     private final Set<Flow> flows;
@@ -29,11 +29,13 @@ import org.sonarsource.analyzer.commons.collections.PMap;
 public class ConstraintsByDomain {
 
   private final PMap<Class<? extends Constraint>, Constraint> constraintPMap;
+  private final int hashCode;
 
   private static final ConstraintsByDomain EMPTY = new ConstraintsByDomain(PCollections.emptyMap());
 
   private ConstraintsByDomain(PMap<Class<? extends Constraint>, Constraint> constraintPMap) {
     this.constraintPMap = constraintPMap;
+    this.hashCode = constraintPMap.hashCode();
   }
 
   public static ConstraintsByDomain empty() {
@@ -91,7 +93,7 @@ public class ConstraintsByDomain {
       return false;
     }
     ConstraintsByDomain that = (ConstraintsByDomain) o;
-    return constraintPMap.equals(that.constraintPMap);
+    return hashCode == that.hashCode && constraintPMap.equals(that.constraintPMap);
   }
 
   @Override
@@ -101,6 +103,6 @@ public class ConstraintsByDomain {
 
   @Override
   public int hashCode() {
-    return constraintPMap.hashCode();
+    return hashCode;
   }
 }
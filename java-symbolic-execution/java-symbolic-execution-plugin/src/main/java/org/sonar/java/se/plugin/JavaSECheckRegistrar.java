@@ -21,15 +21,27 @@ package org.sonar.java.se.plugin;
 
 import java.util.ArrayList;
 import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.scanner.ScannerSide;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.java.se.ExecutionBudget;
+import org.sonar.java.se.ExecutionProfile;
+import org.sonar.java.se.SymbolicExecutionOptions;
 import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.java.se.FlowBudget;
+import org.sonar.java.se.JoinPolicy;
+import org.sonar.java.se.MethodIssueCache;
+import org.sonar.java.se.WorklistStrategy;
 import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonarsource.analyzer.commons.RuleMetadataLoader;
@@ -43,11 +55,31 @@ public class JavaSECheckRegistrar implements CheckRegistrar {
   static final String SONAR_WAY_PATH = RESOURCE_BASE_PATH + "/Sonar_way_profile.json";
   public static final String REPOSITORY_KEY = "java";
 
+  /**
+   * Shares the behaviors of the methods which can not be overridden between the files of the project, and between analyses through the
+   * analysis cache.
+   */
+  public static final String CROSS_FILE_BEHAVIORS_KEY = "sonar.java.experimental.se.crossFileBehaviors";
+
   private static final Set<String> RULE_TEMPLATES_KEY = Set.of("S3546");
   private final SonarRuntime runtime;
+  @Nullable
+  private final Configuration configuration;
+  @Nullable
+  private final FileSystem fileSystem;
 
   public JavaSECheckRegistrar(SonarRuntime runtime) {
+    this(runtime, null, null);
+  }
+
+  public JavaSECheckRegistrar(SonarRuntime runtime, @Nullable Configuration configuration) {
+    this(runtime, configuration, null);
+  }
+
+  public JavaSECheckRegistrar(SonarRuntime runtime, @Nullable Configuration configuration, @Nullable FileSystem fileSystem) {
     this.runtime = runtime;
+    this.configuration = configuration;
+    this.fileSystem = fileSystem;
   }
 
   @Override
@@ -66,10 +98,54 @@ public class JavaSECheckRegistrar implements CheckRegistrar {
 
     var ruleKeys = seChecks.stream().map(checks::ruleKey).toList();
 
-    registrarContext.registerMainSharedCheck(new SymbolicExecutionVisitor(seChecks), ruleKeys);
+    var options = SymbolicExecutionOptions.builder()
+      .setMethodBehaviorStore(methodBehaviorStore())
+      .setBudget(executionBudget())
+      .setWorklistStrategy(worklistStrategy())
+      .setJoinPolicy(joinPolicy())
+      .setFlowBudget(flowBudget())
+      .setProfile(executionProfile())
+      .setIncremental(incremental())
+      .build();
+    var visitor = new SymbolicExecutionVisitor(seChecks, options);
+    registrarContext.registerMainSharedCheck(visitor, ruleKeys);
     registrarContext.registerMainChecks(checks, seChecks);
   }
 
+  @CheckForNull
+  private MethodBehaviorStore methodBehaviorStore() {
+    if (fileSystem != null && configuration != null && configuration.getBoolean(CROSS_FILE_BEHAVIORS_KEY).orElse(false)) {
+      return new MethodBehaviorStore(fileSystem);
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private ExecutionBudget executionBudget() {
+    return configuration == null ? null : ExecutionBudget.fromConfiguration(configuration);
+  }
+
+  private WorklistStrategy worklistStrategy() {
+    return configuration == null ? WorklistStrategy.DEPTH_FIRST : WorklistStrategy.fromConfiguration(configuration);
+  }
+
+  private JoinPolicy joinPolicy() {
+    return configuration == null ? JoinPolicy.NONE : JoinPolicy.fromConfiguration(configuration);
+  }
+
+  private FlowBudget flowBudget() {
+    return configuration == null ? FlowBudget.unlimited() : FlowBudget.fromConfiguration(configuration);
+  }
+
+  @CheckForNull
+  private ExecutionProfile executionProfile() {
+    return configuration == null ? null : ExecutionProfile.fromConfiguration(configuration);
+  }
+
+  private boolean incremental() {
+    return configuration != null && configuration.getBoolean(MethodIssueCache.INCREMENTAL_KEY).orElse(false);
+  }
+
   @Override
   public void customRulesDefinition(RulesDefinition.Context context, RulesDefinition.NewRepository javaRepository) {
     RuleMetadataLoader ruleMetadataLoader = new RuleMetadataLoader(RESOURCE_BASE_PATH, SONAR_WAY_PATH, runtime);
@@ -0,0 +1,84 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.symbolicvalues;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Known relations seen as the edges of a graph whose nodes are their operands. A relation can only be combined with, or be decided by,
+ * the relations sharing one of its operands: looking them up in the graph, instead of going through all the known relations, makes the
+ * deduction of the transitive relations proportional to the number of relations connected to the deduced ones.
+ */
+final class RelationGraph {
+
+  private final Set<RelationalSymbolicValue> relations;
+  private final Map<SymbolicValue, List<RelationalSymbolicValue>> relationsByOperand;
+
+  RelationGraph(Set<RelationalSymbolicValue> relations) {
+    this.relations = relations;
+    this.relationsByOperand = new HashMap<>();
+    for (RelationalSymbolicValue relation : relations) {
+      relationsByOperand.computeIfAbsent(relation.leftOp, k -> new ArrayList<>()).add(relation);
+      if (!relation.rightOp.equals(relation.leftOp)) {
+        relationsByOperand.computeIfAbsent(relation.rightOp, k -> new ArrayList<>()).add(relation);
+      }
+    }
+  }
+
+  boolean contains(RelationalSymbolicValue relation) {
+    return relations.contains(relation);
+  }
+
+  /**
+   * @return the known relations having the given operand
+   */
+  List<RelationalSymbolicValue> relationsOf(SymbolicValue operand) {
+    return relationsByOperand.getOrDefault(operand, Collections.emptyList());
+  }
+
+  /**
+   * @return the known relations sharing at least one operand with the given relation, once each
+   */
+  List<RelationalSymbolicValue> adjacentTo(RelationalSymbolicValue relation) {
+    List<RelationalSymbolicValue> ofLeft = relationsOf(relation.leftOp);
+    if (relation.rightOp.equals(relation.leftOp)) {
+      return ofLeft;
+    }
+    List<RelationalSymbolicValue> ofRight = relationsOf(relation.rightOp);
+    if (ofRight.isEmpty()) {
+      return ofLeft;
+    }
+    List<RelationalSymbolicValue> adjacent = new ArrayList<>(ofLeft.size() + ofRight.size());
+    adjacent.addAll(ofLeft);
+    for (RelationalSymbolicValue other : ofRight) {
+      // relations between both operands are already in the relations of the left operand
+      if (!other.leftOp.equals(relation.leftOp) && !other.rightOp.equals(relation.leftOp)) {
+        adjacent.add(other);
+      }
+    }
+    return adjacent;
+  }
+
+}
@@ -46,7 +46,7 @@ import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.METH
 public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   private static final int MAX_ITERATIONS = 10_000;
-  private static final int MAX_DEDUCED_RELATIONS = 100_000;
+  private static final int MAX_COMBINED_RELATIONS = 100_000;
 
   public enum Kind {
     EQUAL("=="),
@@ -114,12 +114,13 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
     if (knownRelations.contains(this)) {
       return Collections.singletonList(initialProgramState);
     }
+    RelationGraph relationGraph = new RelationGraph(knownRelations);
     Set<RelationalSymbolicValue> newRelations = new HashSet<>();
     newRelations.add(this);
-    newRelations.addAll(transitiveRelations(knownRelations));
+    newRelations.addAll(transitiveRelations(relationGraph));
 
     boolean unfulfilled = newRelations.stream()
-      .map(r -> r.resolveRelationState(knownRelations))
+      .map(r -> r.resolveRelationState(relationGraph))
       .anyMatch(RelationState.UNFULFILLED::equals);
 
     if (unfulfilled) {
@@ -236,11 +237,16 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   @VisibleForTesting
   RelationState resolveRelationState(Set<RelationalSymbolicValue> knownRelations) {
+    return resolveRelationState(new RelationGraph(knownRelations));
+  }
+
+  private RelationState resolveRelationState(RelationGraph knownRelations) {
     if (hasSameOperand()) {
       return relationStateForSameOperand();
     }
 
-    return knownRelations.stream()
+    // only the relations between the same operands can decide this relation
+    return knownRelations.relationsOf(leftOp).stream()
       .map(r -> r.implies(this))
       .filter(RelationState::isDetermined)
       .findAny().orElse(RelationState.UNDETERMINED);
@@ -276,19 +282,29 @@ public class RelationalSymbolicValue extends BinarySymbolicValue {
 
   @VisibleForTesting
   Set<RelationalSymbolicValue> transitiveRelations(Set<RelationalSymbolicValue> knownRelations) {
+    return transitiveRelations(new RelationGraph(knownRelations));
+  }
+
+  /**
+   * Incremental closure of the known relations with this new relation: every deduced relation is only combined with the known relations
+   * sharing one of its operands, which are the only ones {@link #deduceTransitiveOrSimplified(RelationalSymbolicValue)} can combine it with.
+   */
+  private Set<RelationalSymbolicValue> transitiveRelations(RelationGraph knownRelations) {
     Set<RelationalSymbolicValue> newRelations = new HashSet<>();
     Deque<RelationalSymbolicValue> workList = new ArrayDeque<>();
     int iterations = 0;
+    int combinedRelations = 0;
     workList.add(this);
     while (!workList.isEmpty()) {
-      int relationSize = newRelations.size() * knownRelations.size();
-      if (relationSize > MAX_DEDUCED_RELATIONS || iterations > MAX_ITERATIONS) {
+      if (combinedRelations > MAX_COMBINED_RELATIONS || iterations > MAX_ITERATIONS) {
         // safety mechanism in case of an error in the algorithm
-        throw new RelationalSymbolicValue.TransitiveRelationExceededException("Used relations: " + relationSize + ". Iterations " + iterations);
+        throw new RelationalSymbolicValue.TransitiveRelationExceededException("Combined relations: " + combinedRelations + ". Iterations " + iterations);
       }
       iterations++;
       RelationalSymbolicValue relation = workList.pop();
-      for (RelationalSymbolicValue knownRelation : knownRelations) {
+      List<RelationalSymbolicValue> adjacentRelations = knownRelations.adjacentTo(relation);
+      combinedRelations += adjacentRelations.size();
+      for (RelationalSymbolicValue knownRelation : adjacentRelations) {
         RelationalSymbolicValue r = relation.deduceTransitiveOrSimplified(knownRelation);
         if (r != null && !knownRelations.contains(r) && newRelations.add(r)) {
           workList.add(r);
@@ -26,51 +26,115 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.plugins.java.api.caching.CacheContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodTree;
 
+/**
+ * Behaviors of the methods of a file, computed on demand, and hardcoded behaviors of library methods.
+ * <p>
+ * When a {@link MethodBehaviorStore} is provided, the behaviors of the methods declared in other files are taken from the ones it stored
+ * during the previous analysis, and the behaviors computed for the methods of the file are added to it once the file is analyzed.
+ */
 public class BehaviorCache {
 
   private static final Logger LOG = LoggerFactory.getLogger(BehaviorCache.class);
 
   private SymbolicExecutionVisitor sev;
+  @Nullable
+  private final MethodBehaviorStore store;
+  @Nullable
+  private CacheContext cacheContext;
 
   @VisibleForTesting
   public final Map<String, MethodBehavior> behaviors = new LinkedHashMap<>();
-  private Map<String, MethodBehavior> hardcodedBehaviors = null;
+
+  private final Set<String> privateMethods = new HashSet<>();
+  /**
+   * Hashes of the files of the stored behaviors which have been used while analyzing the file. The behaviors of the file are stored
+   * along with all of them, as they may have relied on any of them.
+   */
+  private final Map<String, String> storedBehaviorsFiles = new HashMap<>();
+
+  public BehaviorCache() {
+    this(null);
+  }
+
+  public BehaviorCache(@Nullable MethodBehaviorStore store) {
+    this.store = store;
+  }
 
   public void setFileContext(@Nullable SymbolicExecutionVisitor sev) {
     this.sev = sev;
   }
 
+  @VisibleForTesting
+  @CheckForNull
+  public MethodBehaviorStore store() {
+    return store;
+  }
+
+  public void setCacheContext(@Nullable CacheContext cacheContext) {
+    this.cacheContext = cacheContext;
+  }
+
   public void cleanup() {
     behaviors.clear();
+    privateMethods.clear();
+    storedBehaviorsFiles.clear();
+  }
+
+  /**
+   * Adds the behaviors computed for the non-private methods of the file to the store, if any.
+   */
+  public void storeBehaviors(InputFile inputFile) {
+    if (store == null) {
+      return;
+    }
+    String fileKey = inputFile.key();
+    String hash = inputFile.md5Hash();
+    for (MethodBehavior methodBehavior : behaviors.values()) {
+      if (privateMethods.contains(methodBehavior.signature())) {
+        // can not be invoked from other files
+        continue;
+      }
+      Map<String, String> files = new HashMap<>(storedBehaviorsFiles);
+      files.put(fileKey, hash);
+      store.put(methodBehavior, files, cacheContext);
+    }
   }
 
   @VisibleForTesting
   Map<String, MethodBehavior> hardcodedBehaviors() {
-    if (hardcodedBehaviors == null) {
-      hardcodedBehaviors = HardcodedMethodBehaviors.load();
-      LOG.debug("[SE] Loaded {} hardcoded method behaviors.", hardcodedBehaviors.size());
-    }
-    return hardcodedBehaviors;
+    return HardcodedMethodBehaviors.load();
   }
 
   public MethodBehavior methodBehaviorForSymbol(Symbol.MethodSymbol symbol) {
     String signature = symbol.signature();
     boolean varArgs = symbol.isVarArgsMethod();
+    if (symbol.isPrivate()) {
+      privateMethods.add(signature);
+    }
     return behaviors.computeIfAbsent(signature, k -> new MethodBehavior(signature, varArgs));
   }
 
@@ -90,15 +154,32 @@ public class BehaviorCache {
     if(mb != null) {
       return mb;
     }
-    if (symbol != null) {
+    if (symbol != null && SymbolicExecutionVisitor.methodCanNotBeOverriden(symbol)) {
       MethodTree declaration = symbol.declaration();
-      if (SymbolicExecutionVisitor.methodCanNotBeOverriden(symbol) && declaration != null) {
+      if (declaration != null) {
         sev.execute(declaration);
         return behaviors.get(signature);
       }
+      MethodBehavior storedBehavior = storedBehavior(signature);
+      if (storedBehavior != null) {
+        return storedBehavior;
+      }
     }
 
-    return hardcodedBehaviors().get(signature);
+    return HardcodedMethodBehaviors.get(signature);
+  }
+
+  @CheckForNull
+  private MethodBehavior storedBehavior(String signature) {
+    if (store == null) {
+      return null;
+    }
+    MethodBehaviorStore.StoredBehavior stored = store.get(signature, cacheContext);
+    if (stored == null) {
+      return null;
+    }
+    storedBehaviorsFiles.putAll(stored.files());
+    return stored.behavior();
   }
 
   /**
@@ -115,12 +196,17 @@ public class BehaviorCache {
       return mb;
     }
     // check for hardcoded signatures
-    return hardcodedBehaviors().get(signature);
+    return HardcodedMethodBehaviors.get(signature);
   }
 
+  /**
+   * Hardcoded behaviors are split in segments, one resource per library package. The segment of a signature is the resource named after
+   * the longest prefix of the owner of the method, and a segment is only parsed the first time one of its signatures is requested.
+   */
   static class HardcodedMethodBehaviors {
     private static final String UNABLE_LOAD_MSG = "[SE] Unable to load hardcoded method behaviors. Defaulting to no hardcoded method behaviors.";
 
+    private static final String RESOURCE_EXTENSION = ".json";
     private static final String[] BEHAVIORS_RESOURCES = {
       "java.lang.json",
       "java.util.json",
@@ -137,30 +223,58 @@ public class BehaviorCache {
 
     private static final Type LIST_OF_METHOD_BEHAVIORS_TYPE = new TypeToken<List<MethodBehavior>>() {}.getType();
 
-    private final Map<String, MethodBehavior> storedHardcodedMethodBehaviors;
+    private static final Map<String, Map<String, MethodBehavior>> SEGMENTS = new ConcurrentHashMap<>();
+
+    private static final Map<String, MethodBehavior> ALL_SEGMENTS = new AllSegmentsView();
 
     private HardcodedMethodBehaviors() {
-      this.storedHardcodedMethodBehaviors = loadHardcodedBehaviors();
+      // utility class
     }
 
-    private static HardcodedMethodBehaviors uniqueInstance = null;
+    @CheckForNull
+    static MethodBehavior get(String signature) {
+      String resource = segmentOf(signature);
+      return resource == null ? null : segment(resource).get(signature);
+    }
 
-    private static HardcodedMethodBehaviors uniqueInstance() {
-      if (uniqueInstance == null) {
-        uniqueInstance = new HardcodedMethodBehaviors();
+    /**
+     * @return an unmodifiable view over all the hardcoded behaviors. Lookups only load the segment of the signature, iterating loads the
+     * segments in order.
+     */
+    public static Map<String, MethodBehavior> load() {
+      return ALL_SEGMENTS;
+    }
+
+    @CheckForNull
+    static String segmentOf(String signature) {
+      int ownerEnd = signature.indexOf('#');
+      String owner = ownerEnd < 0 ? signature : signature.substring(0, ownerEnd);
+      String result = null;
+      for (String resource : BEHAVIORS_RESOURCES) {
+        int prefixLength = resource.length() - RESOURCE_EXTENSION.length();
+        if (owner.regionMatches(0, resource, 0, prefixLength) && (result == null || resource.length() > result.length())) {
+          result = resource;
+        }
       }
-      return uniqueInstance;
+      return result;
     }
 
-    public static Map<String, MethodBehavior> load() {
-      return uniqueInstance().storedHardcodedMethodBehaviors;
+    static Map<String, MethodBehavior> segment(String resource) {
+      return SEGMENTS.computeIfAbsent(resource, r -> {
+        Map<String, MethodBehavior> loaded = loadHardcodedBehaviors(() -> Collections.singletonList(BehaviorCache.class.getResourceAsStream(r)));
+        LOG.trace("[SE] Loaded {} hardcoded method behaviors from {}.", loaded.size(), r);
+        return loaded;
+      });
     }
 
-    private static Map<String, MethodBehavior> loadHardcodedBehaviors() {
-      return loadHardcodedBehaviors(
-        () -> Arrays.stream(BEHAVIORS_RESOURCES)
-          .map(BehaviorCache.class::getResourceAsStream)
-          .toList());
+    @VisibleForTesting
+    static Set<String> loadedSegments() {
+      return SEGMENTS.keySet();
+    }
+
+    @VisibleForTesting
+    static void unloadSegments() {
+      SEGMENTS.clear();
     }
 
     @VisibleForTesting
@@ -182,5 +296,35 @@ public class BehaviorCache {
       }
       return Collections.unmodifiableMap(result);
     }
+
+    private static class AllSegmentsView extends AbstractMap<String, MethodBehavior> {
+
+      @Override
+      public MethodBehavior get(Object key) {
+        return key instanceof String signature ? HardcodedMethodBehaviors.get(signature) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public Set<Entry<String, MethodBehavior>> entrySet() {
+        return new AbstractSet<>() {
+          @Override
+          public Iterator<Entry<String, MethodBehavior>> iterator() {
+            return Arrays.stream(BEHAVIORS_RESOURCES)
+              .flatMap(resource -> segment(resource).entrySet().stream())
+              .iterator();
+          }
+
+          @Override
+          public int size() {
+            return Arrays.stream(BEHAVIORS_RESOURCES).mapToInt(resource -> segment(resource).size()).sum();
+          }
+        };
+      }
+    }
   }
 }
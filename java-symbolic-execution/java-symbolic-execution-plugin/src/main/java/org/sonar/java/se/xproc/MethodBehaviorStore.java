@@ -0,0 +1,184 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.plugins.java.api.caching.CacheContext;
+
+/**
+ * Behaviors of the methods which can not be overridden, computed while analyzing the files declaring them, and provided to the next
+ * analysis of the other files of the project, where these methods are not declared.
+ * <p>
+ * Every behavior is written to the cache of the analysis along with the hashes of the files it has been computed from, by key of input
+ * file: the file declaring the method, and the files declaring the stored behaviors it relied on. The next analysis reuses it as long as
+ * these files are unchanged. Behaviors computed during an analysis are never read by the same analysis, so that the issues of a file do
+ * not depend on the order in which the files are analyzed.
+ */
+public class MethodBehaviorStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodBehaviorStore.class);
+
+  @VisibleForTesting
+  static final String CACHE_KEY_PREFIX = "java:se:behavior:";
+  private static final String JSON_FILES = "files";
+  private static final String JSON_BEHAVIOR = "behavior";
+
+  private final Gson gson = MethodBehaviorJsonAdapter.gson();
+  private final Map<String, StoredBehavior> behaviors = new ConcurrentHashMap<>();
+  private final Set<String> unavailableBehaviors = ConcurrentHashMap.newKeySet();
+  private final FileSystem fileSystem;
+  private Map<String, InputFile> inputFiles;
+
+  public MethodBehaviorStore(FileSystem fileSystem) {
+    this.fileSystem = fileSystem;
+  }
+
+  /**
+   * @param files hashes of the files the behavior has been computed from, by key of input file
+   */
+  public record StoredBehavior(MethodBehavior behavior, Map<String, String> files) {
+  }
+
+  /**
+   * @return the behavior of the method computed by the previous analysis, or null if it is unknown or outdated
+   */
+  @CheckForNull
+  public StoredBehavior get(String signature, @Nullable CacheContext cacheContext) {
+    StoredBehavior stored = behaviors.get(signature);
+    if (stored != null || cacheContext == null || !cacheContext.isCacheEnabled() || unavailableBehaviors.contains(signature)) {
+      return stored;
+    }
+    stored = readFromCache(signature, cacheContext);
+    if (stored == null || !isUpToDate(stored)) {
+      unavailableBehaviors.add(signature);
+      return null;
+    }
+    StoredBehavior previous = behaviors.putIfAbsent(signature, stored);
+    return previous != null ? previous : stored;
+  }
+
+  /**
+   * Writes the behavior of a method, computed from the given files, to the cache of the analysis for the next one. Incomplete behaviors,
+   * and behaviors relying on constraints or yields which can not be serialized, are ignored.
+   */
+  public void put(MethodBehavior behavior, Map<String, String> files, @Nullable CacheContext cacheContext) {
+    if (cacheContext == null || !cacheContext.isCacheEnabled() || !canBeStored(behavior)) {
+      return;
+    }
+    JsonObject json = new JsonObject();
+    JsonObject jsonFiles = new JsonObject();
+    new TreeMap<>(files).forEach(jsonFiles::addProperty);
+    json.add(JSON_FILES, jsonFiles);
+    json.add(JSON_BEHAVIOR, gson.toJsonTree(behavior));
+    String cacheKey = CACHE_KEY_PREFIX + behavior.signature();
+    try {
+      cacheContext.getWriteCache().write(cacheKey, json.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      LOG.trace("Could not store data to cache key '{}': {}", cacheKey, e.getMessage());
+    }
+  }
+
+  /**
+   * @return the hash of the content of the file of the project with the given key, or null if there is no such file
+   */
+  @CheckForNull
+  public String fileHash(String fileKey) {
+    InputFile inputFile = inputFiles().get(fileKey);
+    return inputFile == null ? null : inputFile.md5Hash();
+  }
+
+  private synchronized Map<String, InputFile> inputFiles() {
+    if (inputFiles == null) {
+      inputFiles = new HashMap<>();
+      fileSystem.inputFiles(fileSystem.predicates().hasLanguage("java")).forEach(inputFile -> inputFiles.put(inputFile.key(), inputFile));
+    }
+    return inputFiles;
+  }
+
+  private boolean isUpToDate(StoredBehavior stored) {
+    return stored.files().entrySet().stream().allMatch(file -> file.getValue().equals(fileHash(file.getKey())));
+  }
+
+  @CheckForNull
+  private StoredBehavior readFromCache(String signature, CacheContext cacheContext) {
+    String cacheKey = CACHE_KEY_PREFIX + signature;
+    byte[] bytes = cacheContext.getReadCache().readBytes(cacheKey);
+    if (bytes == null) {
+      return null;
+    }
+    try {
+      return fromJson(JsonParser.parseString(new String(bytes, StandardCharsets.UTF_8)).getAsJsonObject());
+    } catch (RuntimeException e) {
+      LOG.debug("Invalid method behavior in cache entry '{}': {}", cacheKey, e.getMessage());
+      return null;
+    }
+  }
+
+  private StoredBehavior fromJson(JsonObject json) {
+    Map<String, String> files = new TreeMap<>();
+    json.getAsJsonObject(JSON_FILES).entrySet().forEach(file -> files.put(file.getKey(), file.getValue().getAsString()));
+    JsonElement jsonBehavior = json.get(JSON_BEHAVIOR);
+    return new StoredBehavior(gson.fromJson(jsonBehavior, MethodBehavior.class), Collections.unmodifiableMap(files));
+  }
+
+  /**
+   * Only the yields and constraints supported by {@link MethodBehaviorJsonAdapter} can be stored: storing the others would lose some of
+   * their constraints, and make the yields apply to more invocations than they should.
+   */
+  @VisibleForTesting
+  static boolean canBeStored(MethodBehavior behavior) {
+    return behavior.isComplete() && behavior.yields().stream().allMatch(MethodBehaviorStore::isSerializable);
+  }
+
+  private static boolean isSerializable(MethodYield methodYield) {
+    if (!methodYield.parametersConstraints.stream().allMatch(MethodBehaviorStore::isSerializable)) {
+      return false;
+    }
+    if (methodYield.getClass() == HappyPathYield.class) {
+      return isSerializable(((HappyPathYield) methodYield).resultConstraint());
+    }
+    return methodYield.getClass() == ExceptionalYield.class && ((ExceptionalYield) methodYield).getExceptionType() != null;
+  }
+
+  private static boolean isSerializable(@Nullable ConstraintsByDomain constraints) {
+    return constraints == null || constraints.stream().allMatch(c -> c instanceof ObjectConstraint || c instanceof BooleanConstraint);
+  }
+
+}
@@ -130,4 +130,12 @@ class SELiveVariablesTest {
     assertThat(liveVariables.getOut(cfg.reversedBlocks().get(3))).isEmpty();
   }
 
+  @Test
+  void liveness_is_shared_with_the_frontend() {
+    ControlFlowGraph cfg = buildCFG("void foo(int a) { int i = a; if (false) ; foo(i); }");
+    SELiveVariables liveVariables = SELiveVariables.analyze(cfg);
+    LiveVariables frontendLiveVariables = LiveVariables.analyze((CFG) cfg);
+    cfg.reversedBlocks().forEach(block -> assertThat(liveVariables.getOut(block)).isSameAs(frontendLiveVariables.getOut(block)));
+  }
+
 }
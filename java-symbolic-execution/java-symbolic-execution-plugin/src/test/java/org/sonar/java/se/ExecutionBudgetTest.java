@@ -0,0 +1,169 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.java.se.xproc.MethodBehavior;
+import org.sonar.plugins.java.api.ModuleScannerContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExecutionBudgetTest {
+
+  private static final long UNLIMITED = ExecutionBudget.UNLIMITED;
+
+  @TempDir
+  Path tempDir;
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicLong allocatedBytes = new AtomicLong();
+
+  @Test
+  void method_budgets() {
+    ExecutionBudget budget = budget(10, UNLIMITED, 1_000, UNLIMITED);
+    budget.startFile("A.java", 2);
+
+    ExecutionBudget.Allowance allowance = budget.startMethod();
+    assertThat(allowance.exhaustion()).isNull();
+    advanceMillis(11);
+    assertThat(allowance.exhaustion()).isEqualTo(ExecutionBudget.Reason.METHOD_TIME);
+
+    allowance = budget.startMethod();
+    allocatedBytes.addAndGet(1_001);
+    assertThat(allowance.exhaustion()).isEqualTo(ExecutionBudget.Reason.METHOD_MEMORY);
+    assertThat(allowance.maxSteps()).isZero();
+  }
+
+  @Test
+  void file_budget_is_shared_between_the_remaining_methods() {
+    ExecutionBudget budget = budget(UNLIMITED, 100, UNLIMITED, UNLIMITED);
+    budget.startFile("A.java", 4);
+
+    // 100 ms for 4 methods: 25 ms each
+    ExecutionBudget.Allowance first = budget.startMethod();
+    advanceMillis(26);
+    assertThat(first.exhaustion()).isEqualTo(ExecutionBudget.Reason.FILE_TIME);
+
+    // 74 ms left for 3 methods, the second method uses only 4 ms
+    ExecutionBudget.Allowance second = budget.startMethod();
+    advanceMillis(4);
+    assertThat(second.exhaustion()).isNull();
+
+    // 70 ms left for 2 methods
+    ExecutionBudget.Allowance third = budget.startMethod();
+    advanceMillis(35);
+    assertThat(third.exhaustion()).isNull();
+    advanceMillis(1);
+    assertThat(third.exhaustion()).isEqualTo(ExecutionBudget.Reason.FILE_TIME);
+
+    budget.startFile("B.java", 1);
+    ExecutionBudget.Allowance otherFile = budget.startMethod();
+    advanceMillis(99);
+    assertThat(otherFile.exhaustion()).isNull();
+  }
+
+  @Test
+  void budget_from_configuration() {
+    MapSettings settings = new MapSettings();
+    assertThat(ExecutionBudget.fromConfiguration(settings.asConfig())).isNull();
+
+    settings.setProperty(ExecutionBudget.MAX_STEPS_KEY, 1_000);
+    ExecutionBudget budget = ExecutionBudget.fromConfiguration(settings.asConfig());
+    assertThat(budget).isNotNull();
+    budget.startFile("A.java", 1);
+    assertThat(budget.startMethod().maxSteps()).isEqualTo(1_000);
+
+    settings.setProperty(ExecutionBudget.METHOD_TIME_BUDGET_KEY, 0);
+    settings.setProperty(ExecutionBudget.FILE_MEMORY_BUDGET_KEY, 64);
+    assertThat(ExecutionBudget.fromConfiguration(settings.asConfig())).isNotNull();
+  }
+
+  @Test
+  void truncated_walks_are_summarized() throws IOException {
+    ExecutionBudget budget = budgetWithTickingClock(1);
+    // every measure of the time moves the clock one second forward: all the walks exhaust their budget on their first step
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(List.of(new NullDereferenceCheck()), SymbolicExecutionOptions.builder().setBudget(budget).build());
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+
+    List<ExecutionBudget.Truncation> truncations = budget.truncations();
+    assertThat(truncations).isNotEmpty().allMatch(truncation -> truncation.reason() == ExecutionBudget.Reason.METHOD_TIME);
+    assertThat(truncations.get(0).file()).endsWith("MethodBehavior.java");
+    assertThat(sev.behaviorCache.behaviors.values()).allMatch(MethodBehavior::isVisited).noneMatch(MethodBehavior::isComplete);
+
+    ModuleScannerContext moduleContext = mock(ModuleScannerContext.class);
+    when(moduleContext.getWorkingDirectory()).thenReturn(tempDir.toFile());
+    sev.endOfAnalysis(moduleContext);
+    String summary = Files.readString(tempDir.resolve(ExecutionBudget.SUMMARY_FILE_NAME));
+    assertThat(summary)
+      .contains("\"truncatedMethods\": " + truncations.size())
+      .contains("\"reason\": \"METHOD_TIME\"")
+      .contains("\"method\": \"MethodBehavior#topMethod\"");
+  }
+
+  @Test
+  void walks_without_budget_are_not_summarized() {
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(List.of(new NullDereferenceCheck()));
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+
+    ModuleScannerContext moduleContext = mock(ModuleScannerContext.class);
+    when(moduleContext.getWorkingDirectory()).thenReturn(tempDir.toFile());
+    sev.endOfAnalysis(moduleContext);
+    assertThat(tempDir.resolve(ExecutionBudget.SUMMARY_FILE_NAME)).doesNotExist();
+  }
+
+  private ExecutionBudget budget(long methodMillis, long fileMillis, long methodBytes, long fileBytes) {
+    return new ExecutionBudget(methodMillis, fileMillis, methodBytes, fileBytes, 0, nanos::get, allocatedBytes::get);
+  }
+
+  private ExecutionBudget budgetWithTickingClock(long methodMillis) {
+    return new ExecutionBudget(methodMillis, UNLIMITED, UNLIMITED, UNLIMITED, 0,
+      () -> nanos.addAndGet(TimeUnit.SECONDS.toNanos(1)), allocatedBytes::get);
+  }
+
+  private void advanceMillis(long millis) {
+    nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  private static void scanFile(SymbolicExecutionVisitor sev, String fileName) {
+    InputFile inputFile = InternalInputFile.inputFile("", new File(fileName));
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false));
+  }
+
+}
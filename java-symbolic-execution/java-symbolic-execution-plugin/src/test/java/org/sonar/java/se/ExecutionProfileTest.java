@@ -0,0 +1,158 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.plugins.java.api.ModuleScannerContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExecutionProfileTest {
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void profile_from_configuration() {
+    MapSettings settings = new MapSettings();
+    assertThat(ExecutionProfile.fromConfiguration(settings.asConfig())).isNull();
+    settings.setProperty(ExecutionProfile.PROFILE_KEY, "false");
+    assertThat(ExecutionProfile.fromConfiguration(settings.asConfig())).isNull();
+    settings.setProperty(ExecutionProfile.PROFILE_KEY, "true");
+    assertThat(ExecutionProfile.fromConfiguration(settings.asConfig())).isNotNull();
+
+    settings.clear();
+    settings.setProperty(ExecutionProfile.PROFILE_DUMP_KEY, "true");
+    assertThat(ExecutionProfile.fromConfiguration(settings.asConfig())).isNotNull();
+  }
+
+  @Test
+  void slowest_walks_are_reported() {
+    ExecutionProfile profile = new ExecutionProfile(false);
+    SymbolicExecutionVisitor sev = visitor(null, profile);
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+
+    List<ExecutionProfile.MethodProfile> slowest = profile.slowest();
+    assertThat(slowest)
+      .hasSizeLessThanOrEqualTo(ExecutionProfile.MAX_REPORTED_METHODS)
+      .isNotEmpty()
+      .isSortedAccordingTo(Comparator.comparingLong(ExecutionProfile.MethodProfile::elapsedNanos).reversed())
+      .allMatch(methodProfile -> methodProfile.file().endsWith("MethodBehavior.java"))
+      .allMatch(methodProfile -> methodProfile.steps() > 0 && methodProfile.nodes() > 0)
+      .allMatch(methodProfile -> methodProfile.startingStates() > 0 && methodProfile.peakWorklistSize() > 0)
+      .allMatch(methodProfile -> methodProfile.abortReason() == null);
+    assertThat(slowest.get(0).checkNanos()).containsKey("NullDereferenceCheck");
+
+    sev.endOfAnalysis(moduleContext());
+    List<String> reports = reports();
+    assertThat(reports).hasSize(1);
+    assertThat(reports.get(0))
+      .contains("MethodBehavior.java MethodBehavior#")
+      .contains(" steps, ")
+      .doesNotContain("aborted: ");
+    assertThat(tempDir.resolve(ExecutionProfile.DUMP_FILE_NAME)).doesNotExist();
+  }
+
+  @Test
+  void aborted_walks_are_dumped() throws IOException {
+    AtomicLong nanos = new AtomicLong();
+    // every measure of the time moves the clock one second forward: all the walks exhaust their budget on their first step
+    ExecutionBudget budget = new ExecutionBudget(1, ExecutionBudget.UNLIMITED, ExecutionBudget.UNLIMITED, ExecutionBudget.UNLIMITED, 0,
+      () -> nanos.addAndGet(TimeUnit.SECONDS.toNanos(1)), () -> 0L);
+    ExecutionProfile profile = new ExecutionProfile(true);
+    SymbolicExecutionVisitor sev = visitor(budget, profile);
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+
+    assertThat(profile.slowest())
+      .isNotEmpty()
+      .allMatch(methodProfile -> methodProfile.abortReason() == ExecutionBudget.Reason.METHOD_TIME);
+
+    sev.endOfAnalysis(moduleContext());
+    assertThat(reports()).hasSize(1).allMatch(report -> report.contains("aborted: METHOD_TIME"));
+    String dump = Files.readString(tempDir.resolve(ExecutionProfile.DUMP_FILE_NAME));
+    assertThat(dump)
+      .contains("\"profiledMethods\": " + profile.slowest().size())
+      .contains("\"abortedMethods\": " + profile.slowest().size())
+      .contains("\"method\": \"MethodBehavior#topMethod\"")
+      .contains("\"abortReason\": \"METHOD_TIME\"")
+      .contains("\"checkMicros\": {");
+  }
+
+  @Test
+  void walks_are_not_profiled_by_default() {
+    SymbolicExecutionVisitor sev = visitor(null, null);
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+
+    sev.endOfAnalysis(moduleContext());
+    assertThat(reports()).isEmpty();
+    assertThat(tempDir.resolve(ExecutionProfile.DUMP_FILE_NAME)).doesNotExist();
+  }
+
+  private List<String> reports() {
+    return logTester.logs(Level.INFO).stream().filter(log -> log.startsWith("Slowest symbolic executions (")).toList();
+  }
+
+  private ModuleScannerContext moduleContext() {
+    ModuleScannerContext moduleContext = mock(ModuleScannerContext.class);
+    when(moduleContext.getWorkingDirectory()).thenReturn(tempDir.toFile());
+    return moduleContext;
+  }
+
+  private static SymbolicExecutionVisitor visitor(@Nullable ExecutionBudget budget, @Nullable ExecutionProfile profile) {
+    return new SymbolicExecutionVisitor(List.of(new NullDereferenceCheck()), SymbolicExecutionOptions.builder()
+      .setBudget(budget)
+      .setProfile(profile)
+      .build());
+  }
+
+  private static void scanFile(SymbolicExecutionVisitor sev, String fileName) {
+    InputFile inputFile = InternalInputFile.inputFile("", new File(fileName));
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false));
+  }
+
+}
@@ -19,9 +19,18 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.semantic.Symbol;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -54,6 +63,75 @@ class ExplodedGraphTest {
     assertThat(child.parents()).hasSize(2);
   }
 
+  @Test
+  void nodes_with_many_parents() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node child = eg.node(mockProgramPoint("child"), null);
+    assertThat(child.id()).isZero();
+    List<ExplodedGraph.Node> parents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ExplodedGraph.Node parent = eg.node(mockProgramPoint("parent" + i), null);
+      assertThat(parent.id()).isEqualTo(i + 1);
+      parents.add(parent);
+      child.addParent(parent, null);
+      child.addParent(parent, null);
+    }
+    assertThat(eg.size()).isEqualTo(21);
+    assertThat(child.edges()).hasSize(20);
+    assertThat(child.parents()).containsExactlyElementsOf(parents);
+    assertThat(child.parent()).isSameAs(parents.get(0));
+    assertThat(child.edges()).allMatch(edge -> edge.yields().isEmpty());
+  }
+
+  @Test
+  void parents_are_a_view_of_the_edges_in_insertion_order() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node child = eg.node(mockProgramPoint("child"), null);
+    Set<ExplodedGraph.Node> parentsView = child.parents();
+    assertThat(parentsView).isEmpty();
+    List<ExplodedGraph.Node> parents = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      ExplodedGraph.Node parent = eg.node(mockProgramPoint("parent" + i), null);
+      parents.add(parent);
+      child.addParent(parent, null);
+    }
+
+    assertThat(child.parents()).isSameAs(parentsView).hasSize(12);
+    Iterator<ExplodedGraph.Node> iterator = parentsView.iterator();
+    for (ExplodedGraph.Node parent : parents) {
+      assertThat(iterator.next()).isSameAs(parent);
+    }
+    assertThat(iterator.hasNext()).isFalse();
+    assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    assertThat(parentsView.contains(parents.get(11))).isTrue();
+    assertThat(parentsView.contains(child)).isFalse();
+    assertThat(parentsView.contains("not a node")).isFalse();
+    assertThatThrownBy(() -> parentsView.add(child)).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void nodes_are_a_view_of_the_graph() {
+    ExplodedGraph eg = new ExplodedGraph();
+    Map<ExplodedGraph.Node, ExplodedGraph.Node> nodes = eg.nodes();
+    assertThat(nodes).isEmpty();
+    ProgramPoint pp = mockProgramPoint("pp");
+    ExplodedGraph.Node node1 = eg.node(pp, mock(ProgramState.class));
+    ExplodedGraph.Node node2 = eg.node(pp, mock(ProgramState.class));
+    ExplodedGraph.Node node3 = eg.node(mockProgramPoint("pp3"), null);
+
+    assertThat(eg.nodes()).isSameAs(nodes).hasSize(3);
+    assertThat(nodes.get(node2)).isSameAs(node2);
+    assertThat(nodes.containsKey(node3)).isTrue();
+    assertThat(nodes.get(new ExplodedGraph().node(mockProgramPoint("other"), null))).isNull();
+    assertThat(nodes.get("not a node")).isNull();
+    assertThat(nodes.entrySet()).hasSize(3).allMatch(entry -> entry.getKey() == entry.getValue());
+    assertThat(nodes.keySet()).containsExactlyInAnyOrder(node1, node2, node3);
+    // the siblings of a node are not removed from the graph
+    assertThat(node1.siblings()).containsExactly(node2);
+    assertThat(nodes).hasSize(3).containsKey(node1);
+    assertThatThrownBy(() -> nodes.put(node1, node1)).isInstanceOf(UnsupportedOperationException.class);
+  }
+
   @Test
   void test_node_equality() {
     ExplodedGraph eg = new ExplodedGraph();
@@ -77,6 +155,27 @@ class ExplodedGraphTest {
     assertThat(node1).isNotEqualTo(notANode);
   }
 
+  @Test
+  void equal_program_states_share_their_maps() {
+    ExplodedGraph eg = new ExplodedGraph();
+    Symbol symbol = mock(Symbol.class);
+    SymbolicValue sv = new SymbolicValue();
+    ProgramPoint pp1 = mockProgramPoint("pp1");
+    ProgramState ps1 = ProgramState.EMPTY_STATE.put(symbol, sv);
+    ProgramState ps2 = ProgramState.EMPTY_STATE.put(symbol, sv).visitedPoint(pp1, 1);
+    assertThat(ps2.values).isNotSameAs(ps1.values);
+
+    ExplodedGraph.Node node1 = eg.node(pp1, ps1);
+    ExplodedGraph.Node node2 = eg.node(mockProgramPoint("pp2"), ps2);
+    assertThat(node1.programState).isSameAs(ps1);
+    assertThat(node2.programState).isEqualTo(ps2).isNotSameAs(ps2);
+    assertThat(node2.programState.values).isSameAs(ps1.values);
+    assertThat(node2.programState.constraints).isSameAs(ps1.constraints);
+    assertThat(node2.programState.numberOfTimeVisited(pp1)).isEqualTo(1);
+    assertThat(eg.sharedMaps()).isEqualTo(1);
+    assertThat(eg.nodes()).hasSize(2);
+  }
+
   private ProgramPoint mockProgramPoint(String toString) {
     ProgramPoint mock = mock(ProgramPoint.class);
     when(mock.toString()).thenReturn(toString);
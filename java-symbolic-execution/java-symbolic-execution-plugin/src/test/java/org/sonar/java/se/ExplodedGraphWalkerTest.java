@@ -115,6 +115,24 @@ class ExplodedGraphWalkerTest {
         .isGreaterThan(steps[1]);
   }
 
+  @Test
+  void equal_program_states_share_their_maps_without_changing_the_issues() {
+    List<ExplodedGraphWalker> walkers = new ArrayList<>();
+    SECheckVerifier.newVerifier()
+      .onFile("src/test/files/se/SeEngineTest.java")
+      .withChecks(new SymbolicExecutionVisitor(Stream.of(seChecks()).map(SECheck.class::cast).toList()) {
+        @Override
+        protected ExplodedGraphWalker getWalker() {
+          ExplodedGraphWalker walker = super.getWalker();
+          walkers.add(walker);
+          return walker;
+        }
+      })
+      .withClassPath(SETestUtils.CLASS_PATH)
+      .verifyIssues();
+    assertThat(walkers.stream().mapToInt(ExplodedGraphWalker::sharedProgramStateMaps).sum()).isPositive();
+  }
+
   @Test
   void reproducer() throws Exception {
     SECheckVerifier.newVerifier()
@@ -208,10 +226,10 @@ class ExplodedGraphWalkerTest {
 
               if (getNode) {
                 if (firstExceptionalNode == null) {
-                  firstExceptionalNode = workList.peekFirst();
+                  firstExceptionalNode = workList.peek();
                 }
-                assertThat(workList).as("Should have created a new node in the graph for each of the exceptions").hasSize(workListSize + 1);
-                assertThat(workList.peekFirst().programState.peekValue()).as("Exceptional Symbolic Value should stay on the stack").isEqualTo(exceptionSV);
+                assertThat(workList.size()).as("Should have created a new node in the graph for each of the exceptions").isEqualTo(workListSize + 1);
+                assertThat(workList.peek().programState.peekValue()).as("Exceptional Symbolic Value should stay on the stack").isEqualTo(exceptionSV);
                 tested[0]++;
               }
             }
@@ -263,10 +281,10 @@ class ExplodedGraphWalkerTest {
 
               super.enqueue(programPoint, programState, exitPath);
 
-              assertThat(workList).hasSize(workListSize + 1);
+              assertThat(workList.size()).isEqualTo(workListSize + 1);
               if (shouldEnqueueFalseBranch) {
                 assertThat(programPoints[1]).isNull();
-                programPoints[1] = workList.peekFirst().programPoint;
+                programPoints[1] = workList.peek().programPoint;
               }
             }
           };
@@ -0,0 +1,110 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.plugins.java.api.cfg.ControlFlowGraph;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlowBudgetTest {
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  private final Symbol symbol = mock(Symbol.class);
+  private final SymbolicValue sv = new SymbolicValue();
+
+  @Test
+  void every_flow_is_computed() {
+    FlowBudget budget = FlowBudget.unlimited();
+    ExplodedGraph graph = new ExplodedGraph(budget);
+    ProgramState parentState = ProgramState.EMPTY_STATE.put(symbol, sv);
+    ExplodedGraph.Node parent = graph.node(programPoint(1), parentState);
+    ExplodedGraph.Node child = graph.node(programPoint(2), parentState.addConstraint(sv, ObjectConstraint.NOT_NULL));
+    child.addParent(parent, null);
+
+    Set<Flow> flows = FlowComputation.flow(child, sv, Collections.emptyList(), FlowComputation.MAX_REPORTED_FLOWS);
+    assertThat(FlowComputation.flow(child, sv, Collections.emptyList(), FlowComputation.MAX_REPORTED_FLOWS)).isEqualTo(flows);
+    assertThat(budget.computedFlows()).isEqualTo(2);
+    assertThat(budget.skippedFlows()).isZero();
+    budget.endFile("A.java");
+    budget.report();
+    assertThat(logTester.logs(Level.WARN)).isEmpty();
+  }
+
+  @Test
+  void flows_are_skipped_once_the_budget_of_the_file_is_spent() {
+    long[] now = {0L};
+    FlowBudget budget = new FlowBudget(10L, () -> now[0] += TimeUnit.MILLISECONDS.toNanos(6));
+    ExplodedGraph graph = new ExplodedGraph(budget);
+    ExplodedGraph.Node node = graph.node(programPoint(1), ProgramState.EMPTY_STATE.put(symbol, sv));
+
+    budget.startFile();
+    assertThat(budget.isExhausted()).isFalse();
+    FlowComputation.flow(node, sv, Collections.emptyList(), FlowComputation.MAX_REPORTED_FLOWS);
+    assertThat(budget.isExhausted()).isFalse();
+    FlowComputation.flow(node, sv, List.of(ObjectConstraint.class), FlowComputation.MAX_REPORTED_FLOWS);
+    assertThat(budget.isExhausted()).isTrue();
+
+    assertThat(FlowComputation.flow(node, new SymbolicValue(), Collections.emptyList(), FlowComputation.MAX_REPORTED_FLOWS)).containsExactly(Flow.empty());
+    assertThat(budget.computedFlows()).isEqualTo(2);
+    assertThat(budget.skippedFlows()).isEqualTo(1);
+
+    budget.endFile("A.java");
+    budget.startFile();
+    assertThat(budget.isExhausted()).isFalse();
+    assertThat(budget.skippedFlows()).isZero();
+
+    budget.report();
+    assertThat(logTester.logs(Level.WARN)).containsExactly("1 flows of 1 files were not computed, as the flow budget of 10 ms per file "
+      + "(sonar.java.experimental.se.fileFlowTimeBudgetMs) was spent. Their issues are reported without secondary locations.");
+  }
+
+  @Test
+  void budget_from_configuration() {
+    MapSettings settings = new MapSettings();
+    assertThat(FlowBudget.fromConfiguration(settings.asConfig()).isExhausted()).isFalse();
+    settings.setProperty(FlowBudget.FILE_FLOW_TIME_BUDGET_KEY, "0");
+    assertThat(FlowBudget.fromConfiguration(settings.asConfig()).isExhausted()).isFalse();
+  }
+
+  private static ProgramPoint programPoint(int blockId) {
+    ControlFlowGraph.Block block = mock(ControlFlowGraph.Block.class);
+    when(block.id()).thenReturn(blockId);
+    when(block.terminator()).thenReturn(mock(Tree.class));
+    return new ProgramPoint(block);
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.java.se.symbolicvalues.RelationalSymbolicValue;
+import org.sonar.java.se.symbolicvalues.SymbolicValue;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.plugins.java.api.semantic.Symbol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class JoinPolicyTest {
+
+  private final Symbol symbol = mock(Symbol.class);
+  private final SymbolicValue referenced = new SymbolicValue();
+  private final ProgramState base = ProgramState.EMPTY_STATE.put(symbol, referenced);
+
+  @Test
+  void state_with_more_constraints_on_unreachable_values_is_subsumed() {
+    ProgramState withIrrelevantConstraint = base.addConstraint(new SymbolicValue(), ObjectConstraint.NOT_NULL);
+
+    assertThat(base.subsumes(withIrrelevantConstraint)).isTrue();
+    assertThat(withIrrelevantConstraint.subsumes(base)).isFalse();
+    assertThat(base.subsumes(base)).isTrue();
+  }
+
+  @Test
+  void state_with_more_constraints_on_reachable_values_is_not_subsumed() {
+    assertThat(base.subsumes(base.addConstraint(referenced, ObjectConstraint.NOT_NULL))).isFalse();
+    assertThat(base.subsumes(base.stackValue(new SymbolicValue()))).isFalse();
+
+    SymbolicValue onStack = new SymbolicValue();
+    ProgramState stacked = base.stackValue(onStack);
+    assertThat(stacked.subsumes(stacked.addConstraint(onStack, ObjectConstraint.NULL))).isFalse();
+
+    RelationalSymbolicValue relation = new RelationalSymbolicValue(RelationalSymbolicValue.Kind.EQUAL);
+    relation.computedFrom(List.of(new ProgramState.SymbolicValueSymbol(referenced, null), new ProgramState.SymbolicValueSymbol(new SymbolicValue(), null)));
+    assertThat(base.subsumes(base.addConstraint(relation, BooleanConstraint.TRUE))).isFalse();
+  }
+
+  @Test
+  void states_with_different_values_do_not_subsume_each_other() {
+    ProgramState otherValue = ProgramState.EMPTY_STATE.put(symbol, new SymbolicValue());
+    assertThat(base.subsumes(otherValue)).isFalse();
+    assertThat(base.widen(otherValue)).isNull();
+  }
+
+  @Test
+  void widening_keeps_shared_constraints() {
+    ProgramState notNull = base.addConstraint(referenced, ObjectConstraint.NOT_NULL).addConstraint(referenced, BooleanConstraint.TRUE);
+    ProgramState isNull = base.addConstraint(referenced, ObjectConstraint.NULL).addConstraint(referenced, BooleanConstraint.TRUE);
+
+    ProgramState widened = notNull.widen(isNull);
+    assertThat(widened.getConstraint(referenced, ObjectConstraint.class)).isNull();
+    assertThat(widened.getConstraint(referenced, BooleanConstraint.class)).isEqualTo(BooleanConstraint.TRUE);
+    assertThat(widened.subsumes(notNull)).isFalse();
+    assertThat(notNull.widen(notNull)).isSameAs(notNull);
+    assertThat(notNull.widen(base)).isEqualTo(base);
+  }
+
+  @Test
+  void policy_from_configuration() {
+    MapSettings settings = new MapSettings();
+    assertThat(JoinPolicy.fromConfiguration(settings.asConfig())).isEqualTo(JoinPolicy.NONE);
+    settings.setProperty(JoinPolicy.JOIN_POLICY_KEY, "Subsumption");
+    assertThat(JoinPolicy.fromConfiguration(settings.asConfig())).isEqualTo(JoinPolicy.SUBSUMPTION);
+    settings.setProperty(JoinPolicy.JOIN_POLICY_KEY, " widening ");
+    assertThat(JoinPolicy.fromConfiguration(settings.asConfig())).isEqualTo(JoinPolicy.WIDENING);
+
+    settings.setProperty(JoinPolicy.JOIN_POLICY_KEY, "merge");
+    assertThatThrownBy(() -> JoinPolicy.fromConfiguration(settings.asConfig()))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unknown join policy \"merge\" for property \"sonar.java.experimental.se.joinPolicy\", expected one of: none, subsumption, widening.");
+  }
+
+  @Test
+  void subsumption_does_not_take_more_steps() {
+    int stepsWithoutJoin = steps(JoinPolicy.NONE);
+    assertThat(stepsWithoutJoin).isPositive();
+    assertThat(steps(JoinPolicy.SUBSUMPTION)).isBetween(1, stepsWithoutJoin);
+    assertThat(steps(JoinPolicy.WIDENING)).isPositive();
+  }
+
+  private static int steps(JoinPolicy joinPolicy) {
+    List<ExplodedGraphWalker> walkers = new ArrayList<>();
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(List.of(new NullDereferenceCheck()),
+      SymbolicExecutionOptions.builder().setJoinPolicy(joinPolicy).build()) {
+      @Override
+      protected ExplodedGraphWalker getWalker() {
+        ExplodedGraphWalker walker = super.getWalker();
+        walkers.add(walker);
+        return walker;
+      }
+    };
+    InputFile inputFile = InternalInputFile.inputFile("", new File("src/test/resources/se/MethodBehavior.java"));
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false));
+    return walkers.stream().mapToInt(walker -> walker.steps).sum();
+  }
+
+}
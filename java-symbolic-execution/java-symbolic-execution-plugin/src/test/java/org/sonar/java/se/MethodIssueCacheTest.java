@@ -0,0 +1,221 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
+import org.sonar.plugins.java.api.ModuleScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MethodIssueCacheTest {
+
+  private static final String SOURCE = """
+    class A {
+      public void deref(Object o) {
+        if (o == null) {
+          o.toString();
+        }
+      }
+      public int other(int i) {
+        return i + 1;
+      }
+    }
+    """;
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path tempDir;
+
+  private final Map<String, byte[]> cache = new HashMap<>();
+
+  @Test
+  void issues_of_unchanged_methods_are_reused() throws IOException {
+    Path file = tempDir.resolve("A.java");
+    Files.writeString(file, SOURCE);
+    NullDereferenceCheck firstCheck = new NullDereferenceCheck();
+    SymbolicExecutionVisitor firstAnalysis = visitor(firstCheck);
+    scanFile(firstAnalysis, file);
+    List<String> firstIssues = issues(firstCheck);
+    assertThat(firstIssues).hasSize(1);
+    assertThat(cache).hasSize(1);
+    assertThat(cache.keySet().iterator().next()).startsWith(MethodIssueCache.CACHE_KEY_PREFIX);
+
+    // 'deref' only differs by its formatting and comments, 'other' has changed
+    Files.writeString(file, SOURCE
+      .replace("public void deref(Object o) {", "// reformatted\n  public void deref(Object o)\n  {")
+      .replace("i + 1", "i + 2"));
+    NullDereferenceCheck secondCheck = new NullDereferenceCheck();
+    SymbolicExecutionVisitor secondAnalysis = visitor(secondCheck);
+    scanFile(secondAnalysis, file);
+
+    assertThat(issues(secondCheck)).hasSize(1);
+    assertThat(issues(secondCheck).get(0)).isEqualTo(firstIssues.get(0).replace("line 4", "line 6"));
+    ModuleScannerContext moduleContext = mock(ModuleScannerContext.class);
+    secondAnalysis.endOfAnalysis(moduleContext);
+    assertThat(logTester.logs(Level.INFO)).contains("Symbolic execution of 1 methods reused from the previous analysis, 1 methods executed");
+  }
+
+  @Test
+  void issues_are_not_reused_without_cache() throws IOException {
+    Path file = tempDir.resolve("A.java");
+    Files.writeString(file, SOURCE);
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    SymbolicExecutionVisitor sev = visitor(check);
+    InputFile inputFile = InternalInputFile.inputFile("", file.toFile());
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false));
+
+    assertThat(issues(check)).hasSize(1);
+    assertThat(cache).isEmpty();
+  }
+
+  @Test
+  void fingerprints_depend_on_the_methods_called_in_the_file() {
+    String callerFingerprint = new MethodIssueCache(List.of()).fingerprint(method(callerSource("return null;"), "caller"));
+    assertThat(new MethodIssueCache(List.of()).fingerprint(method(callerSource("return null;"), "caller")))
+      .isEqualTo(callerFingerprint);
+    assertThat(new MethodIssueCache(List.of()).fingerprint(method(callerSource("return new Object();"), "caller")))
+      .isNotEqualTo(callerFingerprint);
+  }
+
+  @Test
+  void fingerprints_depend_on_the_final_modifier_of_the_owner() {
+    String source = "class C { Object m() { return null; } }";
+    String fingerprint = new MethodIssueCache(List.of()).fingerprint(method(source, "m"));
+    assertThat(new MethodIssueCache(List.of()).fingerprint(method("final " + source, "m"))).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void issues_are_not_reused_when_behaviors_are_shared_between_files() throws IOException {
+    Path file = tempDir.resolve("A.java");
+    Files.writeString(file, SOURCE);
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.builder()
+      .setIncremental(true)
+      .setMethodBehaviorStore(mock(MethodBehaviorStore.class))
+      .build();
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    scanFile(new SymbolicExecutionVisitor(List.of(check), options), file);
+
+    assertThat(issues(check)).hasSize(1);
+    assertThat(cache.keySet()).noneMatch(key -> key.startsWith(MethodIssueCache.CACHE_KEY_PREFIX));
+    assertThat(logTester.logs(Level.WARN)).contains(MethodIssueCache.INCREMENTAL_KEY + " is ignored, as method behaviors are shared between files");
+  }
+
+  @Test
+  void invalid_cache_entries_are_ignored() throws IOException {
+    Path file = tempDir.resolve("A.java");
+    Files.writeString(file, SOURCE);
+    cache.put(MethodIssueCache.CACHE_KEY_PREFIX + InternalInputFile.inputFile("", file.toFile()).key(), "{\"checks\":".getBytes(StandardCharsets.UTF_8));
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    scanFile(visitor(check), file);
+
+    assertThat(issues(check)).hasSize(1);
+    assertThat(logTester.logs(Level.DEBUG)).anyMatch(log -> log.startsWith("Invalid symbolic execution issues in cache entry"));
+  }
+
+  private static String callerSource(String calleeBody) {
+    return """
+      class B {
+        Object caller() {
+          return callee();
+        }
+        private Object callee() {
+          %s
+        }
+      }
+      """.formatted(calleeBody);
+  }
+
+  private static MethodTree method(String source, String name) {
+    CompilationUnitTree cut = JParserTestUtils.parse(source);
+    return ((ClassTree) cut.types().get(0)).members().stream()
+      .map(MethodTree.class::cast)
+      .filter(method -> method.simpleName().name().equals(name))
+      .findFirst()
+      .orElseThrow();
+  }
+
+  private static SymbolicExecutionVisitor visitor(SECheck check) {
+    return new SymbolicExecutionVisitor(List.of(check), SymbolicExecutionOptions.builder().setIncremental(true).build());
+  }
+
+  private void scanFile(SymbolicExecutionVisitor sev, Path file) {
+    InputFile inputFile = InternalInputFile.inputFile("", file.toFile());
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false, cacheContext()));
+  }
+
+  private static List<String> issues(SECheck check) {
+    return check.pendingIssues().stream()
+      .map(issue -> "line " + issue.getTree().firstToken().range().start().line() + ": " + issue.getMessage() + " "
+        + issue.getFlows().stream().map(flow -> flow.stream().map(location -> location.msg).toList().toString()).sorted().collect(Collectors.joining()))
+      .toList();
+  }
+
+  private CacheContext cacheContext() {
+    JavaReadCache readCache = mock(JavaReadCache.class);
+    when(readCache.readBytes(anyString())).thenAnswer(invocation -> cache.get(invocation.<String>getArgument(0)));
+    JavaWriteCache writeCache = mock(JavaWriteCache.class);
+    doAnswer(invocation -> cache.put(invocation.getArgument(0), invocation.getArgument(1)))
+      .when(writeCache).write(anyString(), any(byte[].class));
+    CacheContext cacheContext = mock(CacheContext.class);
+    when(cacheContext.isCacheEnabled()).thenReturn(true);
+    when(cacheContext.getReadCache()).thenReturn(readCache);
+    when(cacheContext.getWriteCache()).thenReturn(writeCache);
+    return cacheContext;
+  }
+
+}
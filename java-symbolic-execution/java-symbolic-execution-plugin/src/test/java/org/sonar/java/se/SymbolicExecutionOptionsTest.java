@@ -0,0 +1,65 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.java.se.xproc.MethodBehaviorStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SymbolicExecutionOptionsTest {
+
+  @Test
+  void defaults() {
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.defaults();
+    assertThat(options.methodBehaviorStore()).isNull();
+    assertThat(options.budget()).isNull();
+    assertThat(options.worklistStrategy()).isEqualTo(WorklistStrategy.DEPTH_FIRST);
+    assertThat(options.joinPolicy()).isEqualTo(JoinPolicy.NONE);
+    assertThat(options.flowBudget()).isNotNull();
+    assertThat(options.profile()).isNull();
+    assertThat(options.incremental()).isFalse();
+  }
+
+  @Test
+  void builder() {
+    MethodBehaviorStore store = mock(MethodBehaviorStore.class);
+    ExecutionBudget budget = mock(ExecutionBudget.class);
+    FlowBudget flowBudget = new FlowBudget(10);
+    ExecutionProfile profile = mock(ExecutionProfile.class);
+    SymbolicExecutionOptions options = SymbolicExecutionOptions.builder()
+      .setMethodBehaviorStore(store)
+      .setBudget(budget)
+      .setWorklistStrategy(WorklistStrategy.BREADTH_FIRST)
+      .setJoinPolicy(JoinPolicy.SUBSUMPTION)
+      .setFlowBudget(flowBudget)
+      .setProfile(profile)
+      .setIncremental(true)
+      .build();
+    assertThat(options.methodBehaviorStore()).isSameAs(store);
+    assertThat(options.budget()).isSameAs(budget);
+    assertThat(options.worklistStrategy()).isEqualTo(WorklistStrategy.BREADTH_FIRST);
+    assertThat(options.joinPolicy()).isEqualTo(JoinPolicy.SUBSUMPTION);
+    assertThat(options.flowBudget()).isSameAs(flowBudget);
+    assertThat(options.profile()).isSameAs(profile);
+    assertThat(options.incremental()).isTrue();
+  }
+}
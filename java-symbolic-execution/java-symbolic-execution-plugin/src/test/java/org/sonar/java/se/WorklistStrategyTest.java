@@ -0,0 +1,172 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.java.checks.verifier.TestUtils;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.java.se.xproc.MethodBehavior;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.cfg.ControlFlowGraph;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+class WorklistStrategyTest {
+
+  @Test
+  void depth_first() {
+    WorklistStrategy.Worklist worklist = WorklistStrategy.DEPTH_FIRST.newWorklist();
+    ExplodedGraph.Node a = node(1);
+    ExplodedGraph.Node b = node(2);
+    ExplodedGraph.Node c = node(3);
+    worklist.add(a);
+    worklist.add(b);
+    worklist.add(c);
+
+    assertThat(worklist.size()).isEqualTo(3);
+    assertThat(worklist.peek()).isSameAs(c);
+    assertThat(removeAll(worklist)).containsExactly(c, b, a);
+    assertThat(worklist.isEmpty()).isTrue();
+    assertThat(worklist.peek()).isNull();
+  }
+
+  @Test
+  void breadth_first() {
+    WorklistStrategy.Worklist worklist = WorklistStrategy.BREADTH_FIRST.newWorklist();
+    ExplodedGraph.Node a = node(1);
+    ExplodedGraph.Node b = node(2);
+    ExplodedGraph.Node c = node(3);
+    worklist.add(a);
+    worklist.add(b);
+    worklist.add(c);
+
+    assertThat(worklist.peek()).isSameAs(a);
+    assertThat(removeAll(worklist)).containsExactly(a, b, c);
+  }
+
+  @Test
+  void coverage_guided_prefers_the_least_explored_program_points() {
+    WorklistStrategy.Worklist worklist = WorklistStrategy.COVERAGE_GUIDED.newWorklist();
+    ExplodedGraph.Node a1 = node(1);
+    ExplodedGraph.Node b1 = node(2);
+    worklist.add(a1);
+    worklist.add(b1);
+    // nothing explored yet: most recent first
+    assertThat(worklist.remove()).isSameAs(b1);
+
+    ExplodedGraph.Node a2 = node(1);
+    ExplodedGraph.Node b2 = node(2);
+    worklist.add(a2);
+    worklist.add(b2);
+    // B1 has been explored once, B2 never
+    assertThat(worklist.peek()).isSameAs(a2);
+    assertThat(worklist.remove()).isSameAs(a2);
+    // both have been explored once, 'a1' is enqueued again with its updated priority
+    assertThat(worklist.remove()).isSameAs(b2);
+    assertThat(worklist.remove()).isSameAs(a1);
+    assertThat(worklist.isEmpty()).isTrue();
+    assertThat(worklist.peek()).isNull();
+  }
+
+  @Test
+  void strategy_from_configuration() {
+    MapSettings settings = new MapSettings();
+    assertThat(WorklistStrategy.fromConfiguration(settings.asConfig())).isEqualTo(WorklistStrategy.DEPTH_FIRST);
+    settings.setProperty(WorklistStrategy.WORKLIST_STRATEGY_KEY, "BFS");
+    assertThat(WorklistStrategy.fromConfiguration(settings.asConfig())).isEqualTo(WorklistStrategy.BREADTH_FIRST);
+    settings.setProperty(WorklistStrategy.WORKLIST_STRATEGY_KEY, " coverage ");
+    assertThat(WorklistStrategy.fromConfiguration(settings.asConfig())).isEqualTo(WorklistStrategy.COVERAGE_GUIDED);
+
+    settings.setProperty(WorklistStrategy.WORKLIST_STRATEGY_KEY, "random");
+    assertThatThrownBy(() -> WorklistStrategy.fromConfiguration(settings.asConfig()))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unknown worklist strategy \"random\" for property \"sonar.java.experimental.se.worklistStrategy\", expected one of: dfs, bfs, coverage.");
+  }
+
+  @Test
+  void completed_walks_compute_the_same_behaviors_whatever_the_strategy() {
+    Map<String, Integer> yieldsWithDepthFirst = yieldsBySignature(WorklistStrategy.DEPTH_FIRST);
+    assertThat(yieldsWithDepthFirst).isNotEmpty();
+    assertThat(yieldsBySignature(WorklistStrategy.BREADTH_FIRST)).isEqualTo(yieldsWithDepthFirst);
+    assertThat(yieldsBySignature(WorklistStrategy.COVERAGE_GUIDED)).isEqualTo(yieldsWithDepthFirst);
+  }
+
+  @Test
+  void every_strategy_raises_the_issues_of_the_checks() {
+    for (WorklistStrategy strategy : WorklistStrategy.values()) {
+      NullDereferenceCheck check = new NullDereferenceCheck();
+      scanFile(new SymbolicExecutionVisitor(List.of(check), SymbolicExecutionOptions.builder().setWorklistStrategy(strategy).build()),
+        TestUtils.mainCodeSourcesPath("symbolicexecution/checks/NullDereferenceCheck_constants_in_loop.java"));
+      JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+      check.scanFile(context);
+      assertThat(mockingDetails(context).getInvocations())
+        .as(strategy.name())
+        .filteredOn(invocation -> invocation.getMethod().getName().equals("reportIssueWithFlow"))
+        .hasSize(1);
+    }
+  }
+
+  private static Map<String, Integer> yieldsBySignature(WorklistStrategy strategy) {
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(List.of(new NullDereferenceCheck()),
+      SymbolicExecutionOptions.builder().setWorklistStrategy(strategy).build());
+    scanFile(sev, "src/test/resources/se/MethodBehavior.java");
+    return sev.behaviorCache.behaviors.values().stream()
+      .filter(MethodBehavior::isComplete)
+      .collect(Collectors.toMap(MethodBehavior::signature, behavior -> behavior.yields().size()));
+  }
+
+  private static void scanFile(SymbolicExecutionVisitor sev, String path) {
+    InputFile inputFile = InternalInputFile.inputFile("", new File(path));
+    JavaTree.CompilationUnitTreeImpl cut = (JavaTree.CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true, false));
+  }
+
+  private static ExplodedGraph.Node node(int blockId) {
+    ControlFlowGraph.Block block = mock(ControlFlowGraph.Block.class);
+    when(block.id()).thenReturn(blockId);
+    return new ExplodedGraph().node(new ProgramPoint(block), ProgramState.EMPTY_STATE);
+  }
+
+  private static List<ExplodedGraph.Node> removeAll(WorklistStrategy.Worklist worklist) {
+    List<ExplodedGraph.Node> nodes = new ArrayList<>();
+    while (!worklist.isEmpty()) {
+      nodes.add(worklist.remove());
+    }
+    return nodes;
+  }
+
+}
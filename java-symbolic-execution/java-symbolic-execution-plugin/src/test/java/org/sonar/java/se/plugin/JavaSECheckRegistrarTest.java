@@ -27,20 +27,24 @@ import org.junit.jupiter.api.Test;
 import org.sonar.api.SonarEdition;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.utils.Version;
 import org.sonar.check.Rule;
 import org.sonar.java.checks.verifier.TestCheckRegistrarContext;
+import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.java.se.checks.SECheck;
 import org.sonar.plugins.java.api.CheckRegistrar;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 class JavaSECheckRegistrarTest {
 
@@ -56,6 +60,32 @@ class JavaSECheckRegistrarTest {
 
     assertThat(context.mainRuleKeys).map(RuleKey::toString).containsExactlyInAnyOrder(getRuleKeysWithRepo());
     assertThat(context.testRuleKeys).isEmpty();
+    assertThat(symbolicExecutionVisitor(context).behaviorCache.store()).isNull();
+  }
+
+  @Test
+  void register_rules_with_cross_file_behaviors() {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(JavaSECheckRegistrar.CROSS_FILE_BEHAVIORS_KEY, true);
+    CheckRegistrar registrar = new JavaSECheckRegistrar(null, settings.asConfig(), mock(FileSystem.class));
+    TestCheckRegistrarContext context = new TestCheckRegistrarContext();
+
+    registrar.register(context, new CheckFactory(activeRules));
+
+    assertThat(symbolicExecutionVisitor(context).behaviorCache.store()).isNotNull();
+
+    // behaviors are shared by key of input file: without file system, they can not be
+    context = new TestCheckRegistrarContext();
+    new JavaSECheckRegistrar(null, settings.asConfig()).register(context, new CheckFactory(activeRules));
+    assertThat(symbolicExecutionVisitor(context).behaviorCache.store()).isNull();
+  }
+
+  private static SymbolicExecutionVisitor symbolicExecutionVisitor(TestCheckRegistrarContext context) {
+    return context.mainCheckInstances.stream()
+      .filter(SymbolicExecutionVisitor.class::isInstance)
+      .map(SymbolicExecutionVisitor.class::cast)
+      .findFirst()
+      .orElseThrow();
   }
 
   @Test
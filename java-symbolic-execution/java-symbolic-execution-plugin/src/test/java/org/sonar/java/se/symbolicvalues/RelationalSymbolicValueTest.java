@@ -19,10 +19,13 @@
  */
 package org.sonar.java.se.symbolicvalues;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -59,6 +62,7 @@ import static org.sonar.java.se.constraint.BooleanConstraint.TRUE;
 import static org.sonar.java.se.symbolicvalues.RelationState.FULFILLED;
 import static org.sonar.java.se.symbolicvalues.RelationState.UNFULFILLED;
 import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.EQUAL;
+import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.LESS_THAN;
 import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.METHOD_EQUALS;
 import static org.sonar.java.se.symbolicvalues.RelationalSymbolicValue.Kind.NOT_EQUAL;
 import static org.sonar.java.se.symbolicvalues.SymbolicValue.NULL_LITERAL;
@@ -514,15 +518,67 @@ class RelationalSymbolicValueTest {
   }
 
   @Test
-  void too_many_relationship_should_stop_se_engine() throws Exception {
+  void many_relationships_do_not_exceed_the_transitive_relations_limit() throws Exception {
     logTester.setLevel(Level.TRACE);
     SETestUtils.createSymbolicExecutionVisitor("src/test/files/se/ExceedTransitiveLimit.java", new NullDereferenceCheck());
-    String exceptionMessage = "reached maximum number of transitive relations generated for method hashCode in class ExceedTransitiveLimit";
+    // the relations are only combined with the relations sharing one of their operands: the walk goes on until the usual limits
     assertThat(logTester.logs(Level.DEBUG))
-      .contains("Could not complete symbolic execution: " + exceptionMessage);
-    assertThat(logTester.logs(Level.TRACE))
-      .hasSize(1)
-      .allMatch(trace -> trace.startsWith("org.sonar.java.se.ExplodedGraphWalker$MaximumStepsReachedException: " + exceptionMessage));
+      .anyMatch(log -> log.startsWith("Could not complete symbolic execution: "))
+      .noneMatch(log -> log.contains("transitive relations"));
+  }
+
+  @Test
+  void transitive_relations_are_only_combined_with_relations_sharing_an_operand() {
+    RelationalSymbolicValue ab = relationalSV(Tree.Kind.LESS_THAN, a, b);
+    RelationalSymbolicValue bc = relationalSV(Tree.Kind.LESS_THAN, b, c);
+    RelationalSymbolicValue de = relationalSV(Tree.Kind.LESS_THAN, d, e);
+    RelationGraph graph = new RelationGraph(SetUtils.immutableSetOf(ab, bc, de));
+    assertThat(graph.adjacentTo(relationalSV(Tree.Kind.EQUAL_TO, c, a))).containsOnly(ab, bc);
+    // 'ab' has both operands, it is only returned once
+    assertThat(graph.adjacentTo(relationalSV(Tree.Kind.EQUAL_TO, a, b))).containsExactlyInAnyOrder(ab, bc);
+    assertThat(graph.relationsOf(e)).containsExactly(de);
+    assertThat(graph.relationsOf(NULL_LITERAL)).isEmpty();
+
+    assertThat(ab.transitiveRelations(SetUtils.immutableSetOf(ab, bc, de))).containsOnly(relationalSV(Tree.Kind.LESS_THAN, a, c));
+  }
+
+  @Test
+  void transitive_relations_are_the_ones_deduced_over_all_known_relations() {
+    // x0 < x1 < ... < xn, not closed yet, along with as many unrelated equalities
+    int length = 50;
+    SymbolicValue[] chain = new SymbolicValue[length + 2];
+    for (int i = 0; i < chain.length; i++) {
+      chain[i] = new SymbolicValue();
+    }
+    Set<RelationalSymbolicValue> known = new HashSet<>();
+    for (int i = 0; i < length; i++) {
+      known.add(new RelationalSymbolicValue(LESS_THAN, chain[i], chain[i + 1]));
+      known.add(eq(new SymbolicValue(), new SymbolicValue()));
+    }
+    RelationalSymbolicValue added = new RelationalSymbolicValue(LESS_THAN, chain[length], chain[length + 1]);
+
+    assertThat(added.transitiveRelations(known))
+      .isNotEmpty()
+      .isEqualTo(deduceOverAllRelations(added, known));
+  }
+
+  /**
+   * Deduction without {@link RelationGraph}: every deduced relation is combined with all the known relations.
+   */
+  private static Set<RelationalSymbolicValue> deduceOverAllRelations(RelationalSymbolicValue added, Set<RelationalSymbolicValue> known) {
+    Set<RelationalSymbolicValue> newRelations = new HashSet<>();
+    Deque<RelationalSymbolicValue> workList = new ArrayDeque<>();
+    workList.add(added);
+    while (!workList.isEmpty()) {
+      RelationalSymbolicValue relation = workList.pop();
+      for (RelationalSymbolicValue knownRelation : known) {
+        RelationalSymbolicValue deduced = relation.deduceTransitiveOrSimplified(knownRelation);
+        if (deduced != null && !known.contains(deduced) && newRelations.add(deduced)) {
+          workList.add(deduced);
+        }
+      }
+    }
+    return newRelations;
   }
 
   @Test
@@ -21,6 +21,7 @@ package org.sonar.java.se.xproc;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -59,6 +60,7 @@ import org.sonar.plugins.java.api.tree.MethodInvocationTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -199,7 +201,44 @@ class BehaviorCacheTest {
 
     assertThat(behaviorCache.behaviors).isEmpty();
     assertThat(behaviorCache.hardcodedBehaviors()).hasSize(255);
-    assertThat(logTester.logs(Level.DEBUG)).containsOnly("[SE] Loaded 255 hardcoded method behaviors.");
+    assertThat(logTester.logs(Level.DEBUG)).isEmpty();
+  }
+
+  @Test
+  void hardcoded_behaviors_are_loaded_by_segment() {
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.apache.commons.lang3.StringUtils#isBlank(Ljava/lang/CharSequence;)Z"))
+      .isEqualTo("org.apache.commons.lang3.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.apache.commons.lang.StringUtils#isBlank(Ljava/lang/String;)Z"))
+      .isEqualTo("org.apache.commons.lang.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.apache.commons.collections4.MapUtils#size(Ljava/util/Map;)I"))
+      .isEqualTo("org.apache.commons.collections.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.junit.jupiter.api.Assertions#fail()Ljava/lang/Object;"))
+      .isEqualTo("org.junit.jupiter.api.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.junit.Assert#fail()V")).isEqualTo("org.junit.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.segmentOf("org.foo.A#foo()Z")).isNull();
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.get("org.foo.A#foo()Z")).isNull();
+
+    Map<String, MethodBehavior> all = BehaviorCache.HardcodedMethodBehaviors.load();
+    assertThat(all).hasSize(255);
+    all.forEach((signature, behavior) -> assertThat(BehaviorCache.HardcodedMethodBehaviors.get(signature)).isSameAs(behavior));
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.load()).isSameAs(all);
+    assertThat(all).doesNotContainKey("org.foo.A#foo()Z");
+    assertThatThrownBy(() -> all.put("org.foo.A#foo()Z", null)).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  void hardcoded_behaviors_are_parsed_only_for_the_segment_of_the_requested_signature() {
+    String requireNonNull = "java.util.Objects#requireNonNull(Ljava/lang/Object;)Ljava/lang/Object;";
+    BehaviorCache.HardcodedMethodBehaviors.unloadSegments();
+
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.get("org.foo.A#foo()Z")).isNull();
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.loadedSegments()).isEmpty();
+
+    MethodBehavior behavior = BehaviorCache.HardcodedMethodBehaviors.get(requireNonNull);
+    assertThat(behavior).isNotNull();
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.loadedSegments()).containsExactly("java.util.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.get(requireNonNull)).isSameAs(behavior);
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.loadedSegments()).containsExactly("java.util.json");
   }
 
   @Test
@@ -0,0 +1,221 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.java.se.checks.DivisionByZeroCheck;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+import org.sonar.plugins.java.api.semantic.Symbol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MethodBehaviorStoreTest {
+
+  private static final String SIGNATURE = "org.foo.A#foo(Ljava/lang/Object;)Z";
+
+  @TempDir
+  Path tempDir;
+
+  private DefaultFileSystem fileSystem;
+
+  @BeforeEach
+  void setUp() {
+    fileSystem = new DefaultFileSystem(tempDir);
+  }
+
+  @Test
+  void behaviors_are_only_read_by_the_next_analysis() {
+    InputFile file = sourceFile("A.java", "class A {}");
+    Map<String, byte[]> previousAnalysis = new HashMap<>();
+    Map<String, byte[]> currentAnalysis = new HashMap<>();
+    MethodBehaviorStore store = new MethodBehaviorStore(fileSystem);
+    MethodBehavior behavior = behavior(SIGNATURE);
+
+    store.put(behavior, Map.of(file.key(), file.md5Hash()), cacheContext(previousAnalysis, currentAnalysis));
+
+    // the issues of the files analyzed after 'A' do not depend on it being analyzed first
+    assertThat(store.get(SIGNATURE, cacheContext(previousAnalysis, currentAnalysis))).isNull();
+    assertThat(currentAnalysis).containsOnlyKeys(MethodBehaviorStore.CACHE_KEY_PREFIX + SIGNATURE);
+
+    MethodBehaviorStore.StoredBehavior stored = new MethodBehaviorStore(fileSystem).get(SIGNATURE, cacheContext(currentAnalysis, new HashMap<>()));
+    assertThat(stored).isNotNull();
+    assertThat(stored.behavior()).isEqualTo(behavior).isNotSameAs(behavior);
+    assertThat(stored.files()).containsOnlyKeys("module:A.java");
+  }
+
+  @Test
+  void behaviors_which_can_not_be_serialized_are_not_stored() {
+    MethodBehaviorStore store = new MethodBehaviorStore(fileSystem);
+    Map<String, byte[]> cache = new HashMap<>();
+
+    MethodBehavior incomplete = new MethodBehavior(SIGNATURE, false);
+    store.put(incomplete, Map.of(), cacheContext(cache));
+    assertThat(cache).isEmpty();
+
+    MethodBehavior zeroConstraint = new MethodBehavior(SIGNATURE, false);
+    HappyPathYield yield = new HappyPathYield(zeroConstraint);
+    yield.setResult(-1, ConstraintsByDomain.empty().put(DivisionByZeroCheck.ZeroConstraint.ZERO));
+    yield.parametersConstraints.add(ConstraintsByDomain.empty());
+    zeroConstraint.addYield(yield);
+    zeroConstraint.completed();
+    assertThat(MethodBehaviorStore.canBeStored(zeroConstraint)).isFalse();
+
+    MethodBehavior unknownException = new MethodBehavior(SIGNATURE, false);
+    ExceptionalYield exceptionalYield = new ExceptionalYield(unknownException);
+    exceptionalYield.parametersConstraints.add(ConstraintsByDomain.empty());
+    unknownException.addYield(exceptionalYield);
+    unknownException.completed();
+    assertThat(MethodBehaviorStore.canBeStored(unknownException)).isFalse();
+
+    assertThat(MethodBehaviorStore.canBeStored(behavior(SIGNATURE))).isTrue();
+  }
+
+  @Test
+  void behaviors_are_reused_by_the_next_analysis_while_their_files_are_unchanged() {
+    InputFile file = sourceFile("A.java", "class A {}");
+    Map<String, byte[]> cache = new HashMap<>();
+    MethodBehaviorStore firstAnalysis = new MethodBehaviorStore(fileSystem);
+    firstAnalysis.put(behavior(SIGNATURE), Map.of(file.key(), file.md5Hash()), cacheContext(cache));
+    assertThat(cache).containsOnlyKeys(MethodBehaviorStore.CACHE_KEY_PREFIX + SIGNATURE);
+
+    MethodBehaviorStore.StoredBehavior stored = new MethodBehaviorStore(fileSystem).get(SIGNATURE, cacheContext(cache));
+    assertThat(stored).isNotNull();
+    assertThat(stored.behavior()).isEqualTo(behavior(SIGNATURE));
+
+    fileSystem = new DefaultFileSystem(tempDir);
+    sourceFile("A.java", "class A { }");
+    assertThat(new MethodBehaviorStore(fileSystem).get(SIGNATURE, cacheContext(cache))).isNull();
+
+    // the file has been removed from the project
+    assertThat(new MethodBehaviorStore(new DefaultFileSystem(tempDir)).get(SIGNATURE, cacheContext(cache))).isNull();
+  }
+
+  @Test
+  void invalid_cache_entries_are_ignored() {
+    Map<String, byte[]> cache = new HashMap<>();
+    cache.put(MethodBehaviorStore.CACHE_KEY_PREFIX + SIGNATURE, "{\"files\":".getBytes(StandardCharsets.UTF_8));
+    MethodBehaviorStore store = new MethodBehaviorStore(fileSystem);
+
+    assertThat(store.get(SIGNATURE, cacheContext(cache))).isNull();
+    assertThat(store.fileHash("module:Missing.java")).isNull();
+  }
+
+  @Test
+  void behavior_cache_uses_and_feeds_the_store() {
+    InputFile declaringFile = sourceFile("A.java", "class A {}");
+    InputFile usingFile = sourceFile("B.java", "class B {}");
+    Map<String, byte[]> previousAnalysis = new HashMap<>();
+    new MethodBehaviorStore(fileSystem).put(behavior(SIGNATURE), Map.of(declaringFile.key(), declaringFile.md5Hash()), cacheContext(previousAnalysis));
+    Map<String, byte[]> currentAnalysis = new HashMap<>();
+
+    BehaviorCache behaviorCache = new BehaviorCache(new MethodBehaviorStore(fileSystem));
+    behaviorCache.setFileContext(mock(SymbolicExecutionVisitor.class));
+    behaviorCache.setCacheContext(cacheContext(previousAnalysis, currentAnalysis));
+    Symbol.MethodSymbol declaredElsewhere = methodSymbol(SIGNATURE);
+    Symbol.MethodSymbol declaredInFile = methodSymbol("org.foo.B#bar()V");
+    Symbol.MethodSymbol privateInFile = methodSymbol("org.foo.B#qix()V");
+    when(privateInFile.isPrivate()).thenReturn(true);
+    assertThat(behaviorCache.get(declaredElsewhere)).isEqualTo(behavior(SIGNATURE));
+
+    MethodBehavior bar = behaviorCache.methodBehaviorForSymbol(declaredInFile);
+    bar.addYield(new HappyPathYield(bar));
+    bar.completed();
+    MethodBehavior qix = behaviorCache.methodBehaviorForSymbol(privateInFile);
+    qix.addYield(new HappyPathYield(qix));
+    qix.completed();
+    behaviorCache.storeBehaviors(usingFile);
+
+    MethodBehaviorStore nextAnalysis = new MethodBehaviorStore(fileSystem);
+    MethodBehaviorStore.StoredBehavior storedBar = nextAnalysis.get("org.foo.B#bar()V", cacheContext(currentAnalysis));
+    assertThat(storedBar).isNotNull();
+    // 'bar' may rely on the behavior of 'foo', it becomes outdated when the file declaring 'foo' changes
+    assertThat(storedBar.files()).containsOnlyKeys("module:A.java", "module:B.java");
+    // private methods can not be invoked from other files
+    assertThat(nextAnalysis.get("org.foo.B#qix()V", cacheContext(currentAnalysis))).isNull();
+  }
+
+  private InputFile sourceFile(String name, String content) {
+    InputFile file = new TestInputFileBuilder("module", name)
+      .setLanguage("java")
+      .initMetadata(content)
+      .build();
+    fileSystem.add(file);
+    return file;
+  }
+
+  private static MethodBehavior behavior(String signature) {
+    MethodBehavior behavior = new MethodBehavior(signature, false);
+    HappyPathYield happyPathYield = new HappyPathYield(behavior);
+    happyPathYield.setResult(-1, ConstraintsByDomain.empty().put(BooleanConstraint.TRUE));
+    happyPathYield.parametersConstraints.add(ConstraintsByDomain.empty().put(ObjectConstraint.NOT_NULL));
+    behavior.addYield(happyPathYield);
+    ExceptionalYield exceptionalYield = new ExceptionalYield(behavior);
+    exceptionalYield.setExceptionType("java.lang.IllegalArgumentException");
+    exceptionalYield.parametersConstraints.add(ConstraintsByDomain.empty().put(ObjectConstraint.NULL));
+    behavior.addYield(exceptionalYield);
+    behavior.completed();
+    return behavior;
+  }
+
+  private static Symbol.MethodSymbol methodSymbol(String signature) {
+    Symbol.MethodSymbol symbol = mock(Symbol.MethodSymbol.class);
+    when(symbol.signature()).thenReturn(signature);
+    when(symbol.isStatic()).thenReturn(true);
+    return symbol;
+  }
+
+  private static CacheContext cacheContext(Map<String, byte[]> cache) {
+    return cacheContext(cache, cache);
+  }
+
+  private static CacheContext cacheContext(Map<String, byte[]> previousAnalysis, Map<String, byte[]> currentAnalysis) {
+    JavaReadCache readCache = mock(JavaReadCache.class);
+    when(readCache.readBytes(anyString())).thenAnswer(invocation -> previousAnalysis.get(invocation.<String>getArgument(0)));
+    JavaWriteCache writeCache = mock(JavaWriteCache.class);
+    doAnswer(invocation -> currentAnalysis.put(invocation.getArgument(0), invocation.getArgument(1)))
+      .when(writeCache).write(anyString(), any(byte[].class));
+    CacheContext cacheContext = mock(CacheContext.class);
+    when(cacheContext.isCacheEnabled()).thenReturn(true);
+    when(cacheContext.getReadCache()).thenReturn(readCache);
+    when(cacheContext.getWriteCache()).thenReturn(writeCache);
+    return cacheContext;
+  }
+
+}